@@ -0,0 +1,118 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按接入点和账号缓存登录凭证，凭证在有效期的后段由第一个访问者提前刷新，刷新期间其他访问者继续使用旧凭证。
+ * 没有可用凭证时，同一个 key 只有一个线程执行登录，其他线程等待登录结果。
+ */
+public class AccessTokenCache<T> {
+
+    // 有效期过去这个比例之后开始刷新
+    private static final double REFRESH_RATIO = 0.8;
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<T>> loading = new ConcurrentHashMap<>();
+
+    private final LongSupplier clock;
+
+    public AccessTokenCache() {
+        this(System::currentTimeMillis);
+    }
+
+    AccessTokenCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * get the cached token, login if absent or expired, refresh if it is about to expire
+     *
+     * @param key endpoint and credential of the token
+     * @param loader login and return the token, null if failed
+     * @param ttlMilli ttl of the loaded token
+     * @return token, null if the login failed
+     */
+    public T get(String key, Supplier<T> loader, ToLongFunction<T> ttlMilli) {
+        long now = clock.getAsLong();
+        Entry<T> entry = entries.get(key);
+        if (null != entry && now < entry.expireTime) {
+            if (now >= entry.refreshTime) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                if (null == loading.putIfAbsent(key, future)) {
+                    T value = load(key, future, loader, ttlMilli);
+                    if (null != value) {
+                        return value;
+                    }
+                }
+            }
+            return entry.value;
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> inflight = loading.putIfAbsent(key, future);
+        if (null != inflight) {
+            return inflight.join();
+        }
+        return load(key, future, loader, ttlMilli);
+    }
+
+    /**
+     * drop the token, e.g. the server rejects it before it expires
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    private T load(String key, CompletableFuture<T> future, Supplier<T> loader, ToLongFunction<T> ttlMilli) {
+        T value = null;
+        try {
+            value = loader.get();
+            if (null != value) {
+                long ttl = ttlMilli.applyAsLong(value);
+                long now = clock.getAsLong();
+                entries.put(key, new Entry<>(value, now + (long) (ttl * REFRESH_RATIO), now + ttl));
+            }
+        } finally {
+            loading.remove(key, future);
+            future.complete(value);
+        }
+        return value;
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+
+        private final long refreshTime;
+
+        private final long expireTime;
+
+        Entry(T value, long refreshTime, long expireTime) {
+            this.value = value;
+            this.refreshTime = refreshTime;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按地址统计请求耗时（EWMA）和错误率，选择负载最低的健康节点。
+ * 连续失败的节点会被摘除一段时间，到期后只放行一个探测请求，探测成功才恢复，失败则加倍摘除时长。
+ * 选择地址不占用探测名额，只有 begin 开始的请求才算作探测；探测请求超时未结束时释放名额，避免节点无法恢复。
+ * 统计按 host:port 维度在进程内共享，所有插件访问同一个节点的结果会相互参考。
+ */
+public class AddressBalancer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AddressBalancer.class);
+
+    private static final double LATENCY_DECAY = 0.3;
+
+    private static final double ERROR_DECAY = 0.1;
+
+    private static final int EJECT_CONSECUTIVE_FAILURES = 3;
+
+    private static final long EJECT_BASE_MS = 5 * 1000;
+
+    private static final long EJECT_MAX_MS = 60 * 1000;
+
+    private static final long PROBE_TIMEOUT_MS = 30 * 1000;
+
+    private static final AddressBalancer SHARED = new AddressBalancer();
+
+    private final Map<String, AddressStat> stats = new ConcurrentHashMap<>();
+
+    private final LongSupplier clock;
+
+    public AddressBalancer() {
+        this(System::currentTimeMillis);
+    }
+
+    AddressBalancer(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static AddressBalancer shared() {
+        return SHARED;
+    }
+
+    public String pick(List<String> addresses) {
+        return pick(addresses, Collections.emptySet());
+    }
+
+    /**
+     * pick the least loaded healthy address
+     *
+     * @param addresses candidate addresses, host:port with or without scheme
+     * @param excludes addresses already tried, ignored if all addresses are excluded
+     * @return picked address, the original value in addresses
+     */
+    public String pick(List<String> addresses, Collection<String> excludes) {
+        if (addresses.size() == 1) {
+            return addresses.get(0);
+        }
+        List<String> candidates = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            if (!excludes.contains(address)) {
+                candidates.add(address);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = addresses;
+        }
+        long now = clock.getAsLong();
+        List<String> healthy = new ArrayList<>(candidates.size());
+        String soonest = null;
+        long soonestTime = Long.MAX_VALUE;
+        for (String address : candidates) {
+            AddressStat stat = getStat(address);
+            if (!stat.isEjected()) {
+                healthy.add(address);
+                continue;
+            }
+            if (stat.canProbe(now)) {
+                // 摘除到期，放行一个探测请求
+                return address;
+            }
+            if (stat.ejectedUntil < soonestTime) {
+                soonestTime = stat.ejectedUntil;
+                soonest = address;
+            }
+        }
+        if (healthy.isEmpty()) {
+            // 全部节点都被摘除，退化为选择最早恢复的节点
+            return soonest;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        // power of two choices，在随机的两个节点中选择负载较低的一个
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(healthy.size());
+        int j = random.nextInt(healthy.size() - 1);
+        if (j >= i) {
+            j++;
+        }
+        String first = healthy.get(i);
+        String second = healthy.get(j);
+        return getStat(first).score() <= getStat(second).score() ? first : second;
+    }
+
+    /**
+     * start a call to the address, the call must be ended with the result
+     *
+     * @param addressOrUrl address or the full request url
+     */
+    public Call begin(String addressOrUrl) {
+        AddressStat stat = getStat(addressOrUrl);
+        long now = clock.getAsLong();
+        if (stat.isEjected()) {
+            stat.tryProbe(now);
+        }
+        stat.inflight.incrementAndGet();
+        return new Call(stat, now);
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> values = new LinkedHashMap<>();
+        for (Map.Entry<String, AddressStat> entry : stats.entrySet()) {
+            AddressStat stat = entry.getValue();
+            synchronized (stat) {
+                values.put(entry.getKey(), new Snapshot((long) stat.latencyEwma, stat.errorEwma,
+                        stat.inflight.get(), stat.isEjected()));
+            }
+        }
+        return values;
+    }
+
+    private AddressStat getStat(String addressOrUrl) {
+        return stats.computeIfAbsent(toKey(addressOrUrl), key -> new AddressStat(key, clock));
+    }
+
+    static String toKey(String addressOrUrl) {
+        String value = addressOrUrl;
+        int idx = value.indexOf("://");
+        if (idx >= 0) {
+            value = value.substring(idx + 3);
+        }
+        idx = value.indexOf('/');
+        if (idx >= 0) {
+            value = value.substring(0, idx);
+        }
+        return value;
+    }
+
+    public static class Call {
+
+        private final AddressStat stat;
+
+        private final long startTime;
+
+        private Call(AddressStat stat, long startTime) {
+            this.stat = stat;
+            this.startTime = startTime;
+        }
+
+        /**
+         * @param success false if the address is unreachable or returns server error
+         */
+        public void end(boolean success) {
+            stat.inflight.decrementAndGet();
+            stat.onResult(stat.clock.getAsLong() - startTime, success);
+        }
+    }
+
+    private static class AddressStat {
+
+        private final String key;
+
+        private final LongSupplier clock;
+
+        private final AtomicInteger inflight = new AtomicInteger(0);
+
+        private double latencyEwma;
+
+        private double errorEwma;
+
+        private int consecutiveFailures;
+
+        private int ejectCount;
+
+        private volatile long ejectedUntil;
+
+        private boolean probing;
+
+        private long probeStartTime;
+
+        AddressStat(String key, LongSupplier clock) {
+            this.key = key;
+            this.clock = clock;
+        }
+
+        boolean isEjected() {
+            return ejectedUntil > 0;
+        }
+
+        synchronized boolean canProbe(long now) {
+            return now >= ejectedUntil && (!probing || now - probeStartTime >= PROBE_TIMEOUT_MS);
+        }
+
+        synchronized boolean tryProbe(long now) {
+            if (!isEjected() || !canProbe(now)) {
+                return false;
+            }
+            probing = true;
+            probeStartTime = now;
+            return true;
+        }
+
+        synchronized double score() {
+            return (latencyEwma + 1) * (inflight.get() + 1) / Math.max(0.05, 1 - errorEwma);
+        }
+
+        synchronized void onResult(long latencyMilli, boolean success) {
+            latencyEwma = latencyEwma <= 0 ? latencyMilli
+                    : latencyEwma + LATENCY_DECAY * (latencyMilli - latencyEwma);
+            errorEwma = errorEwma + ERROR_DECAY * ((success ? 0 : 1) - errorEwma);
+            if (success) {
+                consecutiveFailures = 0;
+                if (isEjected()) {
+                    LOG.info("[Rest] address {} recovered", key);
+                }
+                ejectCount = 0;
+                ejectedUntil = 0;
+                probing = false;
+                return;
+            }
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= EJECT_CONSECUTIVE_FAILURES) {
+                long ejectMilli = Math.min(EJECT_MAX_MS, EJECT_BASE_MS << Math.min(ejectCount, 10));
+                ejectCount++;
+                ejectedUntil = clock.getAsLong() + ejectMilli;
+                probing = false;
+                LOG.warn("[Rest] address {} ejected for {}ms, consecutive failures {}", key, ejectMilli,
+                        consecutiveFailures);
+            }
+        }
+    }
+
+    public static class Snapshot {
+
+        private final long latencyMilli;
+
+        private final double errorRate;
+
+        private final int inflight;
+
+        private final boolean ejected;
+
+        Snapshot(long latencyMilli, double errorRate, int inflight, boolean ejected) {
+            this.latencyMilli = latencyMilli;
+            this.errorRate = errorRate;
+            this.inflight = inflight;
+            this.ejected = ejected;
+        }
+
+        public long getLatencyMilli() {
+            return latencyMilli;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public int getInflight() {
+            return inflight;
+        }
+
+        public boolean isEjected() {
+            return ejected;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 按接入点地址和账号缓存登录凭证，凭证被服务端提前拒绝（403）时失效，下次操作重新登录。
+ *
+ * @param <T> login response which carries the token
+ */
+public class EndpointTokenCache<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EndpointTokenCache.class);
+
+    // 服务端没有返回有效期时使用的缓存时间
+    private static final long DEFAULT_TOKEN_TTL_MS = 60 * 1000;
+
+    private final AccessTokenCache<T> tokenCache = new AccessTokenCache<>();
+
+    private final ToLongFunction<T> tokenTtlSeconds;
+
+    /**
+     * @param tokenTtlSeconds ttl in seconds returned by the server, non-positive if absent
+     */
+    public EndpointTokenCache(ToLongFunction<T> tokenTtlSeconds) {
+        this.tokenTtlSeconds = tokenTtlSeconds;
+    }
+
+    /**
+     * get the cached token of the endpoint, login if the token is absent or about to expire
+     *
+     * @param loader login and return the token, null if failed
+     * @return token, null if the login failed
+     */
+    public T get(Collection<String> addresses, String username, String password, Supplier<T> loader) {
+        return tokenCache.get(toTokenKey(addresses, username, password), loader, this::toTokenTtlMilli);
+    }
+
+    /**
+     * the token is rejected by the server before it expires, login again on next operation
+     */
+    public void invalidateIfForbidden(Collection<String> addresses, String username, String password,
+            RestResponse<?> restResponse) {
+        if (restResponse.getRawStatusCode() == HttpStatus.FORBIDDEN.value()) {
+            LOG.info("[Rest] access token is forbidden by {}, invalidate it", String.join(",", addresses));
+            tokenCache.invalidate(toTokenKey(addresses, username, password));
+        }
+    }
+
+    private static String toTokenKey(Collection<String> addresses, String username, String password) {
+        return String.join(",", addresses) + "|" + username + "|" + password;
+    }
+
+    private long toTokenTtlMilli(T token) {
+        long ttl = tokenTtlSeconds.applyAsLong(token);
+        if (ttl <= 0) {
+            return DEFAULT_TOKEN_TTL_MS;
+        }
+        return TimeUnit.SECONDS.toMillis(ttl);
+    }
+}
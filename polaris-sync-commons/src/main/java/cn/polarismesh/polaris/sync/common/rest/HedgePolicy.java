@@ -0,0 +1,149 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * 对冲读策略：读请求超过历史延迟的指定分位数仍未返回时，向另一个节点发送相同的请求，取先返回的结果。
+ * 对冲请求受预算限制，最多只占普通请求的一定比例，避免在整体故障时放大压力。
+ */
+public class HedgePolicy {
+
+    public static final String OPTION_HEDGE_PERCENTILE = "hedge_percentile";
+
+    public static final String OPTION_HEDGE_BUDGET_PERCENT = "hedge_budget_percent";
+
+    public static final String OPTION_HEDGE_MIN_DELAY = "hedge_min_delay_ms";
+
+    private static final int DEFAULT_BUDGET_PERCENT = 10;
+
+    private static final long DEFAULT_MIN_DELAY_MS = 10;
+
+    // 样本不足时使用的对冲延迟
+    private static final long WARMUP_DELAY_MS = 1000;
+
+    private static final int WINDOW_SIZE = 512;
+
+    private static final int MIN_SAMPLES = 32;
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    // 预算最多累积的对冲次数
+    private static final double MAX_BUDGET = 10;
+
+    private final double percentile;
+
+    private final double budgetRatio;
+
+    private final long minDelayMilli;
+
+    private final long[] samples = new long[WINDOW_SIZE];
+
+    private int sampleCount;
+
+    private int sampleIndex;
+
+    private long delayMilli = WARMUP_DELAY_MS;
+
+    private double budget = 1;
+
+    private final AtomicLong hedgedCount = new AtomicLong(0);
+
+    private final AtomicLong hedgeWinCount = new AtomicLong(0);
+
+    public HedgePolicy(double percentile, int budgetPercent, long minDelayMilli) {
+        this.percentile = percentile;
+        this.budgetRatio = budgetPercent / 100.0;
+        this.minDelayMilli = minDelayMilli;
+    }
+
+    /**
+     * create the policy from the endpoint options, hedging is disabled if the percentile is not configured
+     *
+     * @return policy, null if disabled
+     */
+    public static HedgePolicy fromOptions(Map<String, String> options) {
+        if (null == options) {
+            return null;
+        }
+        double percentile = NumberUtils.toDouble(options.get(OPTION_HEDGE_PERCENTILE), 0);
+        if (percentile <= 0 || percentile >= 100) {
+            return null;
+        }
+        int budgetPercent = NumberUtils.toInt(options.get(OPTION_HEDGE_BUDGET_PERCENT), DEFAULT_BUDGET_PERCENT);
+        long minDelayMilli = NumberUtils.toLong(options.get(OPTION_HEDGE_MIN_DELAY), DEFAULT_MIN_DELAY_MS);
+        if (budgetPercent <= 0) {
+            return null;
+        }
+        return new HedgePolicy(percentile, budgetPercent, minDelayMilli);
+    }
+
+    /**
+     * @return time to wait before sending the hedged request
+     */
+    public synchronized long getDelayMilli() {
+        return delayMilli;
+    }
+
+    /**
+     * record the latency of the request to the first address, and earn the budget
+     */
+    public synchronized void record(long latencyMilli) {
+        samples[sampleIndex] = latencyMilli;
+        sampleIndex = (sampleIndex + 1) % WINDOW_SIZE;
+        sampleCount++;
+        budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+        if (sampleCount >= MIN_SAMPLES && sampleCount % RECOMPUTE_EVERY == 0) {
+            int size = Math.min(sampleCount, WINDOW_SIZE);
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int idx = (int) Math.min(size - 1, Math.ceil(percentile / 100 * size) - 1);
+            delayMilli = Math.max(minDelayMilli, sorted[Math.max(0, idx)]);
+        }
+    }
+
+    /**
+     * consume one hedge from the budget
+     *
+     * @return false if the budget is used up
+     */
+    public synchronized boolean tryAcquire() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        hedgedCount.incrementAndGet();
+        return true;
+    }
+
+    public void onHedgeWin() {
+        hedgeWinCount.incrementAndGet();
+    }
+
+    public long getHedgedCount() {
+        return hedgedCount.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * 插件 REST 报文共享的 JSON 编解码器，ObjectMapper 以及各类型的 ObjectReader 只创建一次，
+ * 响应报文可以直接从输入流解码为插件模型，不需要先读取成字符串。
+ */
+public class JsonCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .setSerializationInclusion(Include.NON_EMPTY);
+
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    public static String encode(Object value) throws IOException {
+        return WRITER.writeValueAsString(value);
+    }
+
+    public static <T> T decode(String jsonText, Class<T> clazz) throws IOException {
+        return reader(clazz).readValue(jsonText);
+    }
+
+    public static <T> T decode(byte[] content, Class<T> clazz) throws IOException {
+        return reader(clazz).readValue(content);
+    }
+
+    public static <T> T decode(InputStream inputStream, Class<T> clazz) throws IOException {
+        return reader(clazz).readValue(inputStream);
+    }
+
+    private static ObjectReader reader(Class<?> clazz) {
+        return READERS.computeIfAbsent(clazz, MAPPER::readerFor);
+    }
+
+    /**
+     * message converter to decode the response stream into the plugin model directly, only json media types
+     * are accepted, so an html error page from a proxy is not decoded as the model
+     */
+    public static MappingJackson2HttpMessageConverter newMessageConverter() {
+        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter(MAPPER);
+        converter.setSupportedMediaTypes(Arrays.asList(MediaType.APPLICATION_JSON,
+                new MediaType("application", "*+json")));
+        return converter;
+    }
+}
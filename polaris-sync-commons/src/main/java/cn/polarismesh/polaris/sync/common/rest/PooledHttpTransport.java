@@ -0,0 +1,252 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * 基于连接池的 HTTP 传输层，保持长连接并按 host 限制最大连接数，空闲连接定期回收。
+ * 进程内共享同一个连接池，访问同一个 host 的插件复用已经建立的连接。
+ * 异步请求使用少量 IO 线程的事件循环客户端，首次使用时才创建。
+ */
+public class PooledHttpTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledHttpTransport.class);
+
+    public static final int DEFAULT_MAX_TOTAL = 200;
+
+    public static final int DEFAULT_MAX_PER_ROUTE = 32;
+
+    public static final long DEFAULT_KEEP_ALIVE_MS = 30 * 1000;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    private static final int ASYNC_IO_THREADS = 2;
+
+    private static final PooledHttpTransport SHARED = new PooledHttpTransport(
+            DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_KEEP_ALIVE_MS, DEFAULT_IDLE_TIMEOUT_MS);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final AtomicLong createdCount = new AtomicLong(0);
+
+    private final int maxTotal;
+
+    private final int maxPerRoute;
+
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+
+    private volatile PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+    private volatile CloseableHttpAsyncClient asyncClient;
+
+    public PooledHttpTransport(int maxTotal, int maxPerRoute, long keepAliveMilli, long idleTimeoutMilli) {
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build(), new CountingConnectionFactory());
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // 长时间空闲的连接可能已经被服务端关闭，复用之前先检查
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+        keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : keepAliveMilli;
+        };
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutMilli, TimeUnit.MILLISECONDS)
+                .disableCookieManagement()
+                .build();
+    }
+
+    /**
+     * shared transport of the process, connections to the same host are reused by all plugins
+     */
+    public static PooledHttpTransport shared() {
+        return SHARED;
+    }
+
+    public ClientHttpRequestFactory newRequestFactory(int connectTimeout, int readTimeout) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        requestFactory.setConnectionRequestTimeout(connectTimeout);
+        return requestFactory;
+    }
+
+    /**
+     * get the shared event-loop client, created on first use. callbacks are executed in the io threads
+     * so they must not block, the timeouts are set by the request config of each request
+     */
+    public CloseableHttpAsyncClient getAsyncClient() {
+        if (null != asyncClient) {
+            return asyncClient;
+        }
+        synchronized (this) {
+            if (null != asyncClient) {
+                return asyncClient;
+            }
+            PoolingNHttpClientConnectionManager manager;
+            try {
+                manager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                        IOReactorConfig.custom().setIoThreadCount(ASYNC_IO_THREADS).build()));
+            } catch (IOReactorException e) {
+                throw new IllegalStateException("fail to create io reactor for async http client", e);
+            }
+            manager.setMaxTotal(maxTotal);
+            manager.setDefaultMaxPerRoute(maxPerRoute);
+            CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                    .setConnectionManager(manager)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .disableCookieManagement()
+                    .build();
+            client.start();
+            asyncConnectionManager = manager;
+            asyncClient = client;
+            return client;
+        }
+    }
+
+    public Stats stats() {
+        PoolStats total = connectionManager.getTotalStats();
+        Map<String, Stats> routes = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            PoolStats stats = connectionManager.getStats(route);
+            routes.put(route.getTargetHost().toHostString(), new Stats(stats, 0, null, null));
+        }
+        Stats async = null;
+        PoolingNHttpClientConnectionManager manager = asyncConnectionManager;
+        if (null != manager) {
+            async = new Stats(manager.getTotalStats(), 0, null, null);
+        }
+        return new Stats(total, createdCount.get(), routes, async);
+    }
+
+    public void close() {
+        try {
+            httpClient.close();
+            if (null != asyncClient) {
+                asyncClient.close();
+            }
+        } catch (IOException e) {
+            LOG.error("[Rest] fail to close pooled http transport", e);
+        }
+    }
+
+    private class CountingConnectionFactory extends ManagedHttpClientConnectionFactory {
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            createdCount.incrementAndGet();
+            return super.create(route, config);
+        }
+    }
+
+    public static class Stats {
+
+        private final int leased;
+
+        private final int pending;
+
+        private final int available;
+
+        private final int max;
+
+        private final long created;
+
+        private final Map<String, Stats> routes;
+
+        private final Stats async;
+
+        Stats(PoolStats poolStats, long created, Map<String, Stats> routes, Stats async) {
+            this.leased = poolStats.getLeased();
+            this.pending = poolStats.getPending();
+            this.available = poolStats.getAvailable();
+            this.max = poolStats.getMax();
+            this.created = created;
+            this.routes = routes;
+            this.async = async;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public Map<String, Stats> getRoutes() {
+            return routes;
+        }
+
+        public Stats getAsync() {
+            return async;
+        }
+    }
+}
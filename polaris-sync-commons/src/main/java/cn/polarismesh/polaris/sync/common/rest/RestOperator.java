@@ -1,64 +1,342 @@
-/*
- * Tencent is pleased to support the open source community by making Polaris available.
- *
- * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
- *
- * Licensed under the BSD 3-Clause License (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- * https://opensource.org/licenses/BSD-3-Clause
- *
- * Unless required by applicable law or agreed to in writing, software distributed
- * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
- * CONDITIONS OF ANY KIND, either express or implied. See the License for the
- * specific language governing permissions and limitations under the License.
- */
-
-package cn.polarismesh.polaris.sync.common.rest;
-
-import java.time.Duration;
-import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-
-public class RestOperator {
-
-    private static final int DEFAULT_HTTP_TIMEOUT = 5000;
-
-    private static final int DEFAULT_HTTP_READ_TIMEOUT = 10000;
-
-    private final RestTemplate restTemplate;
-
-    public RestOperator() {
-        RestTemplateBuilder restTemplateBuilder = new RestTemplateBuilder();
-        restTemplateBuilder.setConnectTimeout(Duration.ofMillis(DEFAULT_HTTP_TIMEOUT))
-                .setReadTimeout(Duration.ofMillis(DEFAULT_HTTP_READ_TIMEOUT));
-        restTemplate = restTemplateBuilder.build();
-    }
-
-    public static String pickAddress(List<String> addresses) {
-        if (addresses.size() == 1) {
-            return addresses.get(0);
-        }
-        int i = ThreadLocalRandom.current().nextInt(addresses.size());
-        return addresses.get(i);
-    }
-
-    public <T> RestResponse<T> curlRemoteEndpoint(String url, HttpMethod method,
-            HttpEntity<?> requestEntity, Class<T> clazz) {
-        ResponseEntity<T> queryEntity;
-        try {
-            queryEntity = restTemplate.exchange(url, method, requestEntity, clazz);
-        } catch (RestClientException e) {
-            return RestResponse.withRestClientException(e);
-        }
-        return RestResponse.withNormalResponse(queryEntity);
-    }
-}
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.UnknownContentTypeException;
+
+public class RestOperator {
+
+    private static final int DEFAULT_HTTP_TIMEOUT = 5000;
+
+    private static final int DEFAULT_HTTP_READ_TIMEOUT = 10000;
+
+    private static final int MAX_READ_ATTEMPTS = 2;
+
+    private static final RequestConfig ASYNC_REQUEST_CONFIG = RequestConfig.custom()
+            .setConnectTimeout(DEFAULT_HTTP_TIMEOUT)
+            .setConnectionRequestTimeout(DEFAULT_HTTP_TIMEOUT)
+            .setSocketTimeout(DEFAULT_HTTP_READ_TIMEOUT)
+            .build();
+
+    private static final MediaType JSON_SUFFIX_TYPE = new MediaType("application", "*+json");
+
+    private final RestTemplate restTemplate;
+
+    private final PooledHttpTransport transport;
+
+    private final HedgePolicy hedgePolicy;
+
+    public RestOperator() {
+        this(PooledHttpTransport.shared(), null);
+    }
+
+    /**
+     * @param hedgePolicy hedge the idempotent reads, null to disable
+     */
+    public RestOperator(HedgePolicy hedgePolicy) {
+        this(PooledHttpTransport.shared(), hedgePolicy);
+    }
+
+    public RestOperator(PooledHttpTransport transport, HedgePolicy hedgePolicy) {
+        this.transport = transport;
+        this.hedgePolicy = hedgePolicy;
+        RestTemplateBuilder restTemplateBuilder = new RestTemplateBuilder();
+        restTemplate = restTemplateBuilder
+                .requestFactory(() -> transport.newRequestFactory(DEFAULT_HTTP_TIMEOUT, DEFAULT_HTTP_READ_TIMEOUT))
+                .build();
+        useSharedJsonCodec(restTemplate.getMessageConverters());
+    }
+
+    /**
+     * replace the default jackson converter, so that the response body is decoded from the stream
+     * by the shared codec when a model class is requested
+     */
+    private static void useSharedJsonCodec(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                converters.set(i, JsonCodec.newMessageConverter());
+                return;
+            }
+        }
+        converters.add(JsonCodec.newMessageConverter());
+    }
+
+    public PooledHttpTransport.Stats transportStats() {
+        return transport.stats();
+    }
+
+    public static String pickAddress(List<String> addresses) {
+        return AddressBalancer.shared().pick(addresses);
+    }
+
+    public <T> RestResponse<T> curlRemoteEndpoint(String url, HttpMethod method,
+            HttpEntity<?> requestEntity, Class<T> clazz) {
+        AddressBalancer.Call call = AddressBalancer.shared().begin(url);
+        RestResponse<T> restResponse;
+        try {
+            restResponse = RestResponse.withNormalResponse(restTemplate.exchange(url, method, requestEntity, clazz));
+        } catch (RestClientException e) {
+            restResponse = RestResponse.withRestClientException(e);
+        }
+        call.end(!restResponse.isServerFailure());
+        return restResponse;
+    }
+
+    /**
+     * send an idempotent read request, retry on another address if the picked one is unreachable or returns 5xx.
+     * if the hedge policy is set, the request is also sent to another address when it is slower than expected.
+     *
+     * @param addresses server addresses
+     * @param urlBuilder build the request url with the picked address
+     */
+    public <T> RestResponse<T> readRemoteEndpoint(List<String> addresses, Function<String, String> urlBuilder,
+            HttpMethod method, HttpEntity<?> requestEntity, Class<T> clazz) {
+        if (null != hedgePolicy && addresses.size() > 1) {
+            return hedgedReadRemoteEndpoint(addresses, urlBuilder, method, requestEntity, clazz);
+        }
+        Set<String> tried = new HashSet<>();
+        int attempts = Math.min(addresses.size(), MAX_READ_ATTEMPTS);
+        RestResponse<T> restResponse = null;
+        for (int i = 0; i < attempts; i++) {
+            String address = AddressBalancer.shared().pick(addresses, tried);
+            restResponse = curlRemoteEndpoint(urlBuilder.apply(address), method, requestEntity, clazz);
+            if (!restResponse.isServerFailure()) {
+                return restResponse;
+            }
+            tried.add(address);
+        }
+        return restResponse;
+    }
+
+    private <T> RestResponse<T> hedgedReadRemoteEndpoint(List<String> addresses, Function<String, String> urlBuilder,
+            HttpMethod method, HttpEntity<?> requestEntity, Class<T> clazz) {
+        String address = AddressBalancer.shared().pick(addresses);
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<RestResponse<T>> primary = curlRemoteEndpointAsync(
+                urlBuilder.apply(address), method, requestEntity, clazz);
+        primary.whenComplete((restResponse, e) -> hedgePolicy.record(System.currentTimeMillis() - startTime));
+        RestResponse<T> restResponse = await(primary, hedgePolicy.getDelayMilli());
+        if (null != restResponse) {
+            if (!restResponse.isServerFailure()) {
+                return restResponse;
+            }
+            // 首个节点很快就失败了，按照普通读请求的方式换一个节点重试
+            String retryAddress = AddressBalancer.shared().pick(addresses, Collections.singleton(address));
+            return curlRemoteEndpoint(urlBuilder.apply(retryAddress), method, requestEntity, clazz);
+        }
+        if (!hedgePolicy.tryAcquire()) {
+            return primary.join();
+        }
+        // 拿到对冲名额后再选择节点，避免无效的选择
+        String hedgeAddress = AddressBalancer.shared().pick(addresses, Collections.singleton(address));
+        CompletableFuture<RestResponse<T>> hedged = curlRemoteEndpointAsync(
+                urlBuilder.apply(hedgeAddress), method, requestEntity, clazz);
+        CompletableFuture<RestResponse<T>> result = new CompletableFuture<>();
+        // 优先取成功的结果，两个请求都失败时取后返回的一个
+        primary.thenAccept(value -> {
+            if (!value.isServerFailure() || hedged.isDone()) {
+                result.complete(value);
+            }
+        });
+        hedged.thenAccept(value -> {
+            if (!value.isServerFailure() || primary.isDone()) {
+                if (result.complete(value) && !value.isServerFailure()) {
+                    hedgePolicy.onHedgeWin();
+                }
+            }
+        });
+        return result.join();
+    }
+
+    private static <T> RestResponse<T> await(CompletableFuture<RestResponse<T>> future, long timeoutMilli) {
+        try {
+            return future.get(timeoutMilli, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return future.join();
+        } catch (ExecutionException e) {
+            // never happen, the future is always completed normally
+            return future.join();
+        }
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * send the request without blocking the caller, the errors are classified the same as
+     * {@link #curlRemoteEndpoint(String, HttpMethod, HttpEntity, Class)}, the future never completes exceptionally.
+     * the request is sent by the event-loop client of the transport directly, the future is completed in the
+     * io threads, use the async methods of the future to do blocking works.
+     */
+    public <T> CompletableFuture<RestResponse<T>> curlRemoteEndpointAsync(String url, HttpMethod method,
+            HttpEntity<?> requestEntity, Class<T> clazz) {
+        CompletableFuture<RestResponse<T>> future = new CompletableFuture<>();
+        AddressBalancer.Call call = AddressBalancer.shared().begin(url);
+        try {
+            transport.getAsyncClient().execute(toAsyncRequest(url, method, requestEntity).build(),
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void completed(HttpResponse response) {
+                            future.complete(toRestResponse(response, clazz));
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            future.complete(RestResponse.withRestClientException(toRestClientException(e)));
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            future.complete(RestResponse.withRestClientException(
+                                    new RestClientException("request cancelled: " + url)));
+                        }
+                    });
+        } catch (RuntimeException | IOException e) {
+            future.complete(RestResponse.withRestClientException(toRestClientException(e)));
+        }
+        return future.whenComplete((restResponse, e) -> call.end(null != restResponse
+                && !restResponse.isServerFailure()));
+    }
+
+    private static RequestBuilder toAsyncRequest(String url, HttpMethod method, HttpEntity<?> requestEntity)
+            throws IOException {
+        RequestBuilder builder = RequestBuilder.create(method.name()).setUri(url).setConfig(ASYNC_REQUEST_CONFIG);
+        if (null == requestEntity) {
+            return builder;
+        }
+        HttpHeaders headers = requestEntity.getHeaders();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                builder.addHeader(entry.getKey(), value);
+            }
+        }
+        Object body = requestEntity.getBody();
+        if (null == body || (body instanceof String && ((String) body).isEmpty())) {
+            return builder;
+        }
+        byte[] content;
+        if (body instanceof byte[]) {
+            content = (byte[]) body;
+        } else if (body instanceof String) {
+            content = ((String) body).getBytes(StandardCharsets.UTF_8);
+        } else {
+            content = JsonCodec.encode(body).getBytes(StandardCharsets.UTF_8);
+        }
+        MediaType contentType = headers.getContentType();
+        builder.setEntity(new ByteArrayEntity(content, null == contentType ? ContentType.APPLICATION_JSON
+                : ContentType.parse(contentType.toString())));
+        return builder;
+    }
+
+    /**
+     * convert the response in the same way as the rest template: error status to response exception,
+     * body decoded by the shared json codec, only json media types are decoded into the model
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> RestResponse<T> toRestResponse(HttpResponse response, Class<T> clazz) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        String reasonPhrase = response.getStatusLine().getReasonPhrase();
+        HttpHeaders headers = new HttpHeaders();
+        for (Header header : response.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        byte[] content;
+        try {
+            content = null == response.getEntity() ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+        } catch (IOException e) {
+            return RestResponse.withRestClientException(toRestClientException(e));
+        }
+        if (statusCode >= 400) {
+            return RestResponse.withRestClientException(new RestClientResponseException(
+                    statusCode + " " + reasonPhrase, statusCode, reasonPhrase, headers, content,
+                    StandardCharsets.UTF_8));
+        }
+        T body = null;
+        if (content.length > 0 && Void.class != clazz) {
+            if (String.class == clazz) {
+                body = (T) new String(content, StandardCharsets.UTF_8);
+            } else {
+                MediaType contentType = headers.getContentType();
+                if (null == contentType || !(MediaType.APPLICATION_JSON.includes(contentType)
+                        || JSON_SUFFIX_TYPE.includes(contentType))) {
+                    return RestResponse.withRestClientException(new UnknownContentTypeException(clazz,
+                            null == contentType ? MediaType.APPLICATION_OCTET_STREAM : contentType, statusCode,
+                            reasonPhrase, headers, content));
+                }
+                try {
+                    body = JsonCodec.decode(content, clazz);
+                } catch (IOException e) {
+                    return RestResponse.withRestClientException(new RestClientException(
+                            "Error while extracting response for type [" + clazz.getName() + "]",
+                            new HttpMessageNotReadableException(e.getMessage(), e, null)));
+                }
+            }
+        }
+        return RestResponse.withNormalResponse(ResponseEntity.status(statusCode).headers(headers).body(body));
+    }
+
+    private static RestClientException toRestClientException(Throwable e) {
+        if (e instanceof RestClientException) {
+            return (RestClientException) e;
+        }
+        if (e instanceof IOException) {
+            return new ResourceAccessException(e.getMessage(), (IOException) e);
+        }
+        return new RestClientException(e.getMessage(), e);
+    }
+}
@@ -19,8 +19,10 @@ package cn.polarismesh.polaris.sync.common.rest;
 
 import org.apache.commons.lang.StringUtils;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.UnknownContentTypeException;
 
 public class RestResponse<T> {
 
@@ -51,6 +53,14 @@ public class RestResponse<T> {
             RestClientResponseException restClientResponseException = (RestClientResponseException) restClientException;
             return new RestResponse<T>(null, null,
                     restClientResponseException.getRawStatusCode(), restClientResponseException.getResponseBodyAsString());
+        } else if (restClientException instanceof UnknownContentTypeException) {
+            // 服务端有应答但不是 JSON（例如代理返回的错误页），换节点重试也没有意义，按文本错误处理
+            UnknownContentTypeException unknownContentTypeException = (UnknownContentTypeException) restClientException;
+            return new RestResponse<T>(null, null, unknownContentTypeException.getRawStatusCode(),
+                    unknownContentTypeException.getMessage());
+        } else if (restClientException.getCause() instanceof HttpMessageNotReadableException) {
+            // 报文解码失败，同样按文本错误处理
+            return new RestResponse<T>(null, null, 0, restClientException.getMessage());
         } else {
             return new RestResponse<T>(restClientException, null, 0, "");
         }
@@ -68,6 +78,13 @@ public class RestResponse<T> {
         return hasTextError() && (rawStatusCode == 404 || StringUtils.equalsIgnoreCase(statusText, "not found resource"));
     }
 
+    /**
+     * the server is unreachable or returns 5xx, the request may succeed on another address
+     */
+    public boolean isServerFailure() {
+        return hasServerError() || (hasTextError() && rawStatusCode >= 500);
+    }
+
     public boolean hasNormalResponse() {
         return null != responseEntity;
     }
@@ -17,10 +17,7 @@
 
 package cn.polarismesh.polaris.sync.common.rest;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
@@ -64,22 +61,18 @@ public class RestUtils {
     }
 
     public static String marshalJsonText(Object value) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setSerializationInclusion(Include.NON_EMPTY);
         try {
-            return objectMapper.writeValueAsString(value);
-        } catch (JsonProcessingException e) {
+            return JsonCodec.encode(value);
+        } catch (IOException e) {
             LOG.error("[Core] fail to serialize object {}", value, e);
         }
         return "";
     }
 
     public static <T> T unmarshalJsonText(String jsonText, Class<T> clazz) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         try {
-            return objectMapper.readValue(jsonText, clazz);
-        } catch (JsonProcessingException e) {
+            return JsonCodec.decode(jsonText, clazz);
+        } catch (IOException e) {
             LOG.error("[Core] fail to parse json {} to clazz {}", jsonText, clazz.getCanonicalName(), e);
         }
         return null;
@@ -25,6 +25,10 @@ public interface DefaultValues {
 
     long DEFAULT_PULL_INTERVAL_MS = 5 * 60 * 1000;
 
+    int DEFAULT_PULL_CONCURRENCY = 4;
+
+    long DEFAULT_FULL_SYNC_INTERVAL_MS = 30 * 60 * 1000;
+
     String DEFAULT_POLARIS_NAMESPACE = "default";
 
     String GROUP_NAME_DEFAULT = "default";
@@ -0,0 +1,116 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccessTokenCacheTest {
+
+    private static final String KEY = "127.0.0.1:8848|nacos|nacos";
+
+    private static final long TTL_MS = 1000;
+
+    private final AtomicLong now = new AtomicLong(1000000);
+
+    private final AccessTokenCache<String> cache = new AccessTokenCache<>(now::get);
+
+    private final AtomicInteger loadCount = new AtomicInteger(0);
+
+    @Test
+    public void cachedBeforeRefreshTime() {
+        Assert.assertEquals("token-1", get(loader()));
+        now.addAndGet(799);
+        Assert.assertEquals("token-1", get(loader()));
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void refreshAheadOfExpiry() {
+        Assert.assertEquals("token-1", get(loader()));
+        now.addAndGet(800);
+        Assert.assertEquals("token-2", get(loader()));
+        Assert.assertEquals("token-2", get(loader()));
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void failedRefreshKeepsValidToken() {
+        Assert.assertEquals("token-1", get(loader()));
+        now.addAndGet(800);
+        Assert.assertEquals("token-1", get(() -> null));
+    }
+
+    @Test
+    public void expiredTokenIsReloaded() {
+        Assert.assertEquals("token-1", get(loader()));
+        now.addAndGet(TTL_MS);
+        Assert.assertEquals("token-2", get(loader()));
+    }
+
+    @Test
+    public void failedLoginIsNotCached() {
+        Assert.assertNull(get(() -> null));
+        Assert.assertEquals("token-1", get(loader()));
+    }
+
+    @Test
+    public void invalidatedTokenIsReloaded() {
+        Assert.assertEquals("token-1", get(loader()));
+        cache.invalidate(KEY);
+        Assert.assertEquals("token-2", get(loader()));
+    }
+
+    @Test
+    public void concurrentLoginOnlyOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> blockingLoader = () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "token-" + loadCount.incrementAndGet();
+        };
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> get(blockingLoader));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> get(blockingLoader));
+        Thread.sleep(100);
+        release.countDown();
+        Assert.assertEquals("token-1", first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("token-1", second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    private String get(Supplier<String> loader) {
+        return cache.get(KEY, loader, value -> TTL_MS);
+    }
+
+    private Supplier<String> loader() {
+        return () -> "token-" + loadCount.incrementAndGet();
+    }
+}
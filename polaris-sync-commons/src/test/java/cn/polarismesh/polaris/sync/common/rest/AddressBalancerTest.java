@@ -0,0 +1,132 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddressBalancerTest {
+
+    private static final String ADDRESS_A = "10.0.0.1:8848";
+
+    private static final String ADDRESS_B = "10.0.0.2:8848";
+
+    private static final List<String> ADDRESSES = Arrays.asList(ADDRESS_A, ADDRESS_B);
+
+    private final AtomicLong now = new AtomicLong(1000000);
+
+    private final AddressBalancer balancer = new AddressBalancer(now::get);
+
+    @Test
+    public void ejectAfterConsecutiveFailures() {
+        fail(ADDRESS_A, 2);
+        Assert.assertFalse(isEjected(ADDRESS_A));
+        fail(ADDRESS_A, 1);
+        Assert.assertTrue(isEjected(ADDRESS_A));
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(ADDRESS_B, balancer.pick(ADDRESSES));
+        }
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        fail(ADDRESS_A, 2);
+        balancer.begin(ADDRESS_A).end(true);
+        fail(ADDRESS_A, 2);
+        Assert.assertFalse(isEjected(ADDRESS_A));
+    }
+
+    @Test
+    public void probeRecoversEjectedAddress() {
+        fail(ADDRESS_A, 3);
+        now.addAndGet(5000);
+        // 选择地址不占用探测名额
+        Assert.assertEquals(ADDRESS_A, balancer.pick(ADDRESSES));
+        Assert.assertEquals(ADDRESS_A, balancer.pick(ADDRESSES));
+        AddressBalancer.Call probe = balancer.begin(ADDRESS_A);
+        // 探测进行中，其他请求不再选择该地址
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(ADDRESS_B, balancer.pick(ADDRESSES));
+        }
+        probe.end(true);
+        Assert.assertFalse(isEjected(ADDRESS_A));
+    }
+
+    @Test
+    public void failedProbeDoublesEjection() {
+        fail(ADDRESS_A, 3);
+        now.addAndGet(5000);
+        balancer.begin(ADDRESS_A).end(false);
+        Assert.assertTrue(isEjected(ADDRESS_A));
+        now.addAndGet(5000);
+        Assert.assertEquals(ADDRESS_B, balancer.pick(ADDRESSES));
+        now.addAndGet(5000);
+        Assert.assertEquals(ADDRESS_A, balancer.pick(ADDRESSES));
+    }
+
+    @Test
+    public void staleProbeIsReleased() {
+        fail(ADDRESS_A, 3);
+        now.addAndGet(5000);
+        // 探测请求一直没有结束
+        balancer.begin(ADDRESS_A);
+        Assert.assertEquals(ADDRESS_B, balancer.pick(ADDRESSES));
+        now.addAndGet(30000);
+        Assert.assertEquals(ADDRESS_A, balancer.pick(ADDRESSES));
+    }
+
+    @Test
+    public void pickSoonestRecoveredWhenAllEjected() {
+        fail(ADDRESS_A, 3);
+        now.addAndGet(1000);
+        fail(ADDRESS_B, 3);
+        Assert.assertEquals(ADDRESS_A, balancer.pick(ADDRESSES));
+    }
+
+    @Test
+    public void pickSkipsExcludedAddresses() {
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(ADDRESS_B, balancer.pick(ADDRESSES, Collections.singleton(ADDRESS_A)));
+        }
+        // 全部地址都尝试过时忽略排除列表
+        Assert.assertTrue(ADDRESSES.contains(balancer.pick(ADDRESSES, new HashSet<>(ADDRESSES))));
+    }
+
+    @Test
+    public void statsSharedByHostAndPort() {
+        fail("http://" + ADDRESS_A + "/nacos/v1/ns/instance", 3);
+        Assert.assertTrue(isEjected(ADDRESS_A));
+        Assert.assertEquals(1, balancer.snapshot().size());
+    }
+
+    private void fail(String address, int times) {
+        for (int i = 0; i < times; i++) {
+            balancer.begin(address).end(false);
+        }
+    }
+
+    private boolean isEjected(String address) {
+        return balancer.snapshot().get(address).isEjected();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HedgePolicyTest {
+
+    @Test
+    public void budgetEarnedByRequests() {
+        HedgePolicy policy = new HedgePolicy(95, 10, 10);
+        Assert.assertTrue(policy.tryAcquire());
+        Assert.assertFalse(policy.tryAcquire());
+        // 每个请求积累 10% 的对冲预算
+        for (int i = 0; i < 15; i++) {
+            policy.record(5);
+        }
+        Assert.assertTrue(policy.tryAcquire());
+        Assert.assertFalse(policy.tryAcquire());
+        Assert.assertEquals(2, policy.getHedgedCount());
+    }
+
+    @Test
+    public void budgetIsCapped() {
+        HedgePolicy policy = new HedgePolicy(95, 10, 10);
+        for (int i = 0; i < 1000; i++) {
+            policy.record(5);
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(policy.tryAcquire());
+        }
+        Assert.assertFalse(policy.tryAcquire());
+    }
+
+    @Test
+    public void delayFollowsPercentile() {
+        HedgePolicy policy = new HedgePolicy(90, 10, 1);
+        for (int i = 1; i < 32; i++) {
+            policy.record(i);
+        }
+        // 样本不足时使用预热延迟
+        Assert.assertEquals(1000, policy.getDelayMilli());
+        policy.record(32);
+        Assert.assertEquals(29, policy.getDelayMilli());
+    }
+
+    @Test
+    public void delayNotBelowMinimum() {
+        HedgePolicy policy = new HedgePolicy(90, 10, 10);
+        for (int i = 0; i < 32; i++) {
+            policy.record(1);
+        }
+        Assert.assertEquals(10, policy.getDelayMilli());
+    }
+
+    @Test
+    public void fromOptions() {
+        Assert.assertNull(HedgePolicy.fromOptions(null));
+        Assert.assertNull(HedgePolicy.fromOptions(Collections.emptyMap()));
+        Assert.assertNull(HedgePolicy.fromOptions(
+                Collections.singletonMap(HedgePolicy.OPTION_HEDGE_PERCENTILE, "100")));
+        Map<String, String> options = new HashMap<>();
+        options.put(HedgePolicy.OPTION_HEDGE_PERCENTILE, "95");
+        options.put(HedgePolicy.OPTION_HEDGE_BUDGET_PERCENT, "0");
+        Assert.assertNull(HedgePolicy.fromOptions(options));
+        options.remove(HedgePolicy.OPTION_HEDGE_BUDGET_PERCENT);
+        Assert.assertNotNull(HedgePolicy.fromOptions(options));
+    }
+}
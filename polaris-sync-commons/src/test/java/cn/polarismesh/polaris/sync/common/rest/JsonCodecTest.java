@@ -0,0 +1,78 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.common.rest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+public class JsonCodecTest {
+
+    @Test
+    public void encodeSkipsEmptyFields() throws Exception {
+        Model model = new Model();
+        model.name = "svc";
+        model.tags = Collections.emptyList();
+        Assert.assertEquals("{\"name\":\"svc\"}", JsonCodec.encode(model));
+    }
+
+    @Test
+    public void decodeIgnoresUnknownFields() throws Exception {
+        Model model = JsonCodec.decode("{\"name\":\"svc\",\"tags\":[\"a\"],\"unknown\":1}", Model.class);
+        Assert.assertEquals("svc", model.name);
+        Assert.assertEquals(Collections.singletonList("a"), model.tags);
+    }
+
+    @Test
+    public void decodeFromStream() throws Exception {
+        byte[] content = "{\"name\":\"服务\"}".getBytes(StandardCharsets.UTF_8);
+        Model model = JsonCodec.decode(new ByteArrayInputStream(content), Model.class);
+        Assert.assertEquals("服务", model.name);
+    }
+
+    @Test
+    public void decodeFromBytes() throws Exception {
+        byte[] content = "{\"name\":\"服务\",\"tags\":[\"a\"]}".getBytes(StandardCharsets.UTF_8);
+        Model model = JsonCodec.decode(content, Model.class);
+        Assert.assertEquals("服务", model.name);
+        Assert.assertEquals(Collections.singletonList("a"), model.tags);
+    }
+
+    @Test
+    public void converterOnlyReadsJson() {
+        MappingJackson2HttpMessageConverter converter = JsonCodec.newMessageConverter();
+        Assert.assertTrue(converter.canRead(Model.class, MediaType.APPLICATION_JSON));
+        Assert.assertTrue(converter.canRead(Model.class, MediaType.parseMediaType("application/problem+json")));
+        // 代理返回的 html 错误页不能按模型解码
+        Assert.assertFalse(converter.canRead(Model.class, MediaType.TEXT_HTML));
+        Assert.assertFalse(converter.canRead(Model.class, MediaType.TEXT_PLAIN));
+    }
+
+    public static class Model {
+
+        public String name;
+
+        public List<String> tags;
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.BiConsumer;
 
+import cn.polarismesh.polaris.sync.common.rest.EndpointTokenCache;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
 import cn.polarismesh.polaris.sync.common.rest.RestResponse;
 import cn.polarismesh.polaris.sync.common.rest.RestUtils;
@@ -52,6 +53,10 @@ public class NacosRestUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(NacosRestUtils.class);
 
+    // 登录凭证按接入点和账号缓存，避免每次操作都重新登录
+    private static final EndpointTokenCache<AuthResponse> TOKEN_CACHE = new EndpointTokenCache<>(
+            AuthResponse::getTokenTtl);
+
     public static DiscoverResponse discoverAllNamespaces(AuthResponse authResponse,
             RestOperator restOperator, ResourceEndpoint endpoint, List<NacosNamespace> namespaces) {
         String namespacesUrl = toNamespacesUrl(endpoint.getServerAddresses());
@@ -67,6 +72,7 @@ public class NacosRestUtils {
             return ResponseUtils.toConnectException(null, DiscoverResponseType.NAMESPACES);
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(endpoint, restResponse);
             LOG.warn("[Nacos][Config] text error to get namespaces {}, method {}, code {}, reason {}",
                     namespacesUrl, method.name(), restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
@@ -76,7 +82,7 @@ public class NacosRestUtils {
         String jsonText = restResponse.getResponseEntity().getBody();
         NacosNamespaceResponse nacosNamespaceResponse = RestUtils
                 .unmarshalJsonText(jsonText, NacosNamespaceResponse.class);
-        if (null == nacosNamespaceResponse) {
+        if (null == nacosNamespaceResponse || null == nacosNamespaceResponse.getData()) {
             LOG.error("[Nacos][Config] invalid response to get namespaces {}, method {}, response {}",
                     namespacesUrl, method.name(), jsonText);
             return null;
@@ -102,6 +108,7 @@ public class NacosRestUtils {
             return;
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(endpoint, restResponse);
             LOG.warn("[Nacos][Config] text error to create namespaces {}, method {}, request {}, code {}, reason {}",
                     namespacesUrl, method.name(), requestText, restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
@@ -110,8 +117,35 @@ public class NacosRestUtils {
         LOG.info("[Nacos][Config] success to create namespaces {}, method {}, request {}", namespacesUrl, method, requestText);
     }
 
+    /**
+     * get the cached access token of the endpoint, login if the token is absent or about to expire
+     */
     public static DiscoverResponse auth(RestOperator restOperator,
             ResourceEndpoint endpoint, AuthResponse authResponse, Service service, DiscoverResponseType type) {
+        DiscoverResponse[] loginError = new DiscoverResponse[1];
+        AuthResponse token = TOKEN_CACHE.get(endpoint.getServerAddresses(), endpoint.getAuthorization().getUsername(),
+                endpoint.getAuthorization().getPassword(), () -> {
+            AuthResponse loginResponse = new AuthResponse();
+            loginError[0] = login(restOperator, endpoint, loginResponse, service, type);
+            return null == loginError[0] ? loginResponse : null;
+        });
+        if (null == token) {
+            // 并发登录时由其他线程执行的登录失败
+            return null != loginError[0] ? loginError[0] : ResponseUtils.toConnectException(service, type);
+        }
+        authResponse.setAccessToken(token.getAccessToken());
+        authResponse.setGlobalAdmin(token.isGlobalAdmin());
+        authResponse.setTokenTtl(token.getTokenTtl());
+        return null;
+    }
+
+    private static void invalidateTokenIfForbidden(ResourceEndpoint endpoint, RestResponse<?> restResponse) {
+        TOKEN_CACHE.invalidateIfForbidden(endpoint.getServerAddresses(), endpoint.getAuthorization().getUsername(),
+                endpoint.getAuthorization().getPassword(), restResponse);
+    }
+
+    private static DiscoverResponse login(RestOperator restOperator,
+            ResourceEndpoint endpoint, AuthResponse authResponse, Service service, DiscoverResponseType type) {
         String authUrl = toAuthUrl(endpoint.getServerAddresses());
         String authMessage = String.format(
                 "username=%s&password=%s", endpoint.getAuthorization().getUsername(), endpoint.getAuthorization().getPassword());
@@ -142,6 +176,7 @@ public class NacosRestUtils {
         }
         authResponse.setAccessToken(authResponseResp.getAccessToken());
         authResponse.setGlobalAdmin(authResponseResp.isGlobalAdmin());
+        authResponse.setTokenTtl(authResponseResp.getTokenTtl());
         return null;
     }
 
@@ -177,6 +212,7 @@ public class NacosRestUtils {
             return false;
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(endpoint, restResponse);
             LOG.warn("[Nacos][Config] text error to create namespaces {}, method {}, request {}, code {}, reason {}",
                     namespacesUrl, method.name(), requestText, restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
@@ -28,7 +28,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
@@ -56,7 +55,7 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 
 	protected T config;
 
-	protected final ScheduledExecutorService pullExecutor;
+	protected final PullScheduler pullScheduler;
 
 	protected final ScheduledExecutorService watchExecutor;
 
@@ -64,23 +63,24 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 
 	protected final ExecutorService reloadExecutor;
 
-	protected final Map<SyncTask.Match, Future<?>> watchTasks = new ConcurrentHashMap<>();
+	protected final Map<WatchKey, Future<?>> watchTasks = new ConcurrentHashMap<>();
 
-	protected final Map<String, ScheduledFuture<?>> pulledTasks = new HashMap<>();
+	protected final Map<String, PullScheduler.Lane> pulledTasks = new HashMap<>();
 
 	private List<T> tasks;
 
-	private List<ModelProto.Method> methods;
+	private volatile List<ModelProto.Method> methods;
 
 	private final Map<String, ResourceSet<C>> resources = new HashMap<>();
 
+	private final ResourceCenterRegistry<C> centerRegistry = new ResourceCenterRegistry<>();
+
 	protected final Map<ResourceType, Class<? extends ResourceCenter>> typeClassMap = new HashMap<>();
 
 	private final Object configLock = new Object();
 
 	public AbstractTaskEngine(String name) {
-		pullExecutor =
-				Executors.newScheduledThreadPool(1, new NamedThreadFactory(name + "-list-worker"));
+		pullScheduler = new PullScheduler(name, DefaultValues.DEFAULT_PULL_CONCURRENCY);
 		watchExecutor = Executors
 				.newScheduledThreadPool(1, new NamedThreadFactory(name + "-watch-worker"));
 		reloadExecutor = Executors.newFixedThreadPool(
@@ -95,7 +95,7 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 
 	public void destroy() {
 		watchExecutor.shutdown();
-		pullExecutor.shutdown();
+		pullScheduler.shutdown();
 	}
 
 	public List<T> getTasks() {
@@ -120,21 +120,6 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		return new int[] {watchTasks, pullTasks};
 	}
 
-	private int[] clearTasks(List<T> tasks, List<ModelProto.Method> methods) {
-		int watchTasks = 0;
-		int pullTasks = 0;
-		if (CollectionUtils.isEmpty(tasks)) {
-			LOG.info("[Core] task is empty, no task scheduled");
-			return new int[] {watchTasks, pullTasks};
-		}
-		for (T task : tasks) {
-			int[] counts = deleteTask(task, methods);
-			watchTasks += counts[0];
-			pullTasks += counts[1];
-		}
-		return new int[] {watchTasks, pullTasks};
-	}
-
 	protected int[] addTask(T task, List<ModelProto.Method> methods) {
 		int watchTasks = 0;
 		int pullTasks = 0;
@@ -152,17 +137,18 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 			if (ModelProto.Method.MethodType.pull.equals(method.getType())) {
 				long pullInterval = DurationUtils.parseDurationMillis(
 						method.getInterval(), DefaultValues.DEFAULT_PULL_INTERVAL_MS);
-				addPullTask(task, pullInterval);
+				long maxPullInterval = DurationUtils.parseDurationMillis(method.getMaxInterval(), pullInterval);
+				addPullTask(task, pullInterval, maxPullInterval);
 				pullTasks++;
 			} else if (ModelProto.Method.MethodType.watch.equals(method.getType())) {
-				addWatchTask(task);
+				addWatchTask(task, method);
 				watchTasks++;
 			}
 		}
 		return new int[]{watchTasks, pullTasks};
 	}
 
-	private void addPullTask(T task, long intervalMilli) {
+	private void addPullTask(T task, long intervalMilli, long maxIntervalMilli) {
 		ResourceSet<C> resourceSet = getOrCreateResourceSet(task);
 		if (Objects.isNull(resourceSet)) {
 			LOG.error("[Core] registry adding pull task {}, fail to init registry", task.getName());
@@ -170,43 +156,56 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		}
 		NamedResourceCenter<C> source = resourceSet.getSource();
 		NamedResourceCenter<C> dest = resourceSet.getDest();
-		Runnable pull = buildPullTask(source, dest, task.getMatchList());
-
-		if (resourceSet.getSource().getCenter().getType() == ResourceType.KUBERNETES
-				&& intervalMilli > DefaultValues.DEFAULT_INTERVAL_MS) {
-			// 目前kubernetes还没实现watch的模式，因此 pull 的时间要尽可能短
-			intervalMilli =  DefaultValues.DEFAULT_INTERVAL_MS;
+		Runnable pull = buildPullTask(source, dest, task);
+		PullScheduler.Lane lane;
+		if (maxIntervalMilli > intervalMilli && pull instanceof AdaptiveInterval.ChangeAwareTask) {
+			lane = pullScheduler.schedule(task.getName(), pull, new AdaptiveInterval(
+					(AdaptiveInterval.ChangeAwareTask) pull, intervalMilli, maxIntervalMilli));
+		}
+		else {
+			lane = pullScheduler.schedule(task.getName(), pull, intervalMilli);
 		}
-		ScheduledFuture<?> future = pullExecutor
-				.scheduleWithFixedDelay(pull, 0, intervalMilli, TimeUnit.MILLISECONDS);
-		pulledTasks.put(task.getName(), future);
+		pulledTasks.put(task.getName(), lane);
 		LOG.info("[Core] registry task {} has been scheduled pulled", task.getName());
 	}
 
-	protected abstract Runnable buildPullTask(NamedResourceCenter<C> source, NamedResourceCenter<C> dest, List<SyncTask.Match> matches);
+	protected abstract Runnable buildPullTask(NamedResourceCenter<C> source, NamedResourceCenter<C> dest, T task);
 
-	private void addWatchTask(T task) {
+	private void addWatchTask(T task, ModelProto.Method method) {
 		ResourceSet<C> resourceSet = getOrCreateResourceSet(task);
 		if (Objects.isNull(resourceSet)) {
 			LOG.error("[Core] registry adding watch task {}, fail to init registry", task.getName());
 			return;
 		}
-		NamedResourceCenter<C> source = resourceSet.getSource();
-		NamedResourceCenter<C> dest = resourceSet.getDest();
 		for (SyncTask.Match match : task.getMatchList()) {
-			if (ConfigUtils.isEmptyMatch(match)) {
-				continue;
-			}
-			Runnable watchTask = buildWatchTask(source, dest, match);
-			Future<?> submit = watchExecutor.schedule(watchTask, 1, TimeUnit.SECONDS);
-			watchTasks.put(match, submit);
-			LOG.info("[Core] service {} has been scheduled watched", match);
+			addWatchMatch(resourceSet, task, match, method);
 		}
 	}
 
-	protected abstract Runnable buildWatchTask(NamedResourceCenter<C> source, NamedResourceCenter<C> dest, SyncTask.Match match);
+	private void addWatchMatch(ResourceSet<C> resourceSet, T task, SyncTask.Match match, ModelProto.Method method) {
+		if (ConfigUtils.isEmptyMatch(match)) {
+			return;
+		}
+		WatchKey watchKey = new WatchKey(task.getName(), match);
+		Runnable watchTask = buildWatchTask(resourceSet.getSource(), resourceSet.getDest(), watchKey, method);
+		Future<?> submit = watchExecutor.schedule(watchTask, 1, TimeUnit.SECONDS);
+		watchTasks.put(watchKey, submit);
+		LOG.info("[Core] service {} has been scheduled watched", watchKey);
+	}
+
+	protected abstract Runnable buildWatchTask(NamedResourceCenter<C> source, NamedResourceCenter<C> dest,
+			WatchKey watchKey, ModelProto.Method method);
 
 	protected int[] deleteTask(T task, List<ModelProto.Method> methods) {
+		int[] counts = cancelTask(task, methods);
+		releaseResourceSet(resources.remove(task.getName()));
+		return counts;
+	}
+
+	/**
+	 * cancel the pull and watch tasks, but keep the resource set of the task
+	 */
+	private int[] cancelTask(T task, List<ModelProto.Method> methods) {
 		int watchTasks = 0;
 		int pullTasks = 0;
 		if (CollectionUtils.isEmpty(methods)) {
@@ -228,41 +227,48 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 				watchTasks++;
 			}
 		}
-		ResourceSet resourceSet = resources.remove(task.getName());
+		return new int[]{watchTasks, pullTasks};
+	}
+
+	private void releaseResourceSet(ResourceSet<C> resourceSet) {
 		if (Objects.nonNull(resourceSet)) {
-			resourceSet.destroy();
+			centerRegistry.release(resourceSet.getSourceKey());
+			centerRegistry.release(resourceSet.getDestKey());
 		}
-		return new int[]{watchTasks, pullTasks};
 	}
 
 	protected void deletePullTask(T task) {
-		ScheduledFuture<?> future = pulledTasks.remove(task.getName());
-		if (null != future) {
-			future.cancel(true);
+		PullScheduler.Lane lane = pulledTasks.remove(task.getName());
+		if (null != lane) {
+			lane.cancel();
 		}
 		LOG.info("[Core] task {} has been cancel pulled", task.getName());
 	}
 
 	private void deleteWatchTask(T task) {
-		ResourceEndpoint source = task.getSource();
-		NamedResourceCenter<C> center = getResource(task.getName()).getSource();
-		if (Objects.isNull(center)) {
-			for (SyncTask.Match match : task.getMatchList()) {
-				if (ConfigUtils.isEmptyMatch(match)) {
-					continue;
-				}
-				Runnable unwatchTask = buildUnWatchTask(center, match);
-				Future<?> future = watchTasks.remove(match);
-				if (null != future) {
-					future.cancel(true);
-				}
-				unwatchTask.run();
-				LOG.info("[Core] service {} has been cancel watched", match);
-			}
+		ResourceSet<C> resourceSet = resources.get(task.getName());
+		if (Objects.isNull(resourceSet)) {
+			return;
+		}
+		for (SyncTask.Match match : task.getMatchList()) {
+			deleteWatchMatch(resourceSet, task, match);
 		}
 	}
 
-	protected abstract Runnable buildUnWatchTask(NamedResourceCenter<C> center, SyncTask.Match match);
+	private void deleteWatchMatch(ResourceSet<C> resourceSet, T task, SyncTask.Match match) {
+		if (ConfigUtils.isEmptyMatch(match)) {
+			return;
+		}
+		WatchKey watchKey = new WatchKey(task.getName(), match);
+		Future<?> future = watchTasks.remove(watchKey);
+		if (null != future) {
+			future.cancel(true);
+		}
+		buildUnWatchTask(resourceSet.getSource(), watchKey).run();
+		LOG.info("[Core] service {} has been cancel watched", watchKey);
+	}
+
+	protected abstract Runnable buildUnWatchTask(NamedResourceCenter<C> center, WatchKey watchKey);
 
 	protected abstract void verifyTask(List<T> tasks , List<ModelProto.Method> methods);
 
@@ -270,6 +276,7 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		verifyTask(tasks, methods);
 
 		synchronized (configLock) {
+			resizePullScheduler(methods);
 			int watchTasksAdded = 0;
 			int pullTasksAdded = 0;
 			int watchTasksDeleted = 0;
@@ -289,19 +296,10 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 				return;
 			}
 
-			if (CommonUtils.methodsChanged(oldMethods, methods)) {
-				// method changed, clear the old tasks before adding new tasks
-				LOG.info("[Core] task sync methods changed");
-				int[] clearCounts = clearTasks(tasks, methods);
-				int[] addCounts = initTasks(tasks, methods);
-				watchTasksAdded += addCounts[0];
-				pullTasksAdded += addCounts[1];
-				watchTasksDeleted += clearCounts[0];
-				pullTasksDeleted += clearCounts[1];
-				LOG.info(
-						"[Core] tasks reloaded, watchTasksAdded {}, pullTasksAdded {}, watchTasksDeleted {}, pullTasksDeleted {}",
-						watchTasksAdded, pullTasksAdded, watchTasksDeleted, pullTasksDeleted);
-				return;
+			boolean pullChanged = CommonUtils.methodChanged(oldMethods, methods, ModelProto.Method.MethodType.pull);
+			boolean watchChanged = CommonUtils.methodChanged(oldMethods, methods, ModelProto.Method.MethodType.watch);
+			if (pullChanged || watchChanged) {
+				LOG.info("[Core] task sync methods changed, pull {}, watch {}", pullChanged, watchChanged);
 			}
 
 			Map<String, T> oldTasksMap = new HashMap<>();
@@ -326,23 +324,18 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 					int[] addCounts = addTask(entry.getValue(), methods);
 					watchTasksAdded += addCounts[0];
 					pullTasksAdded += addCounts[1];
+					continue;
 				}
-				else {
-					T oldTask = oldTasksMap.get(entry.getKey());
-					T newTask = entry.getValue();
-					if (oldTask.equals(newTask)) {
-						continue;
-					}
-					LOG.info("[Core] config task {} has been changed", entry.getKey());
-
-					int[] deleteCounts = deleteTask(oldTask, oldMethods);
-					watchTasksDeleted += deleteCounts[0];
-					pullTasksDeleted += deleteCounts[1];
-
-					int[] addCounts = addTask(newTask, this.methods);
-					watchTasksAdded += addCounts[0];
-					pullTasksAdded += addCounts[1];
+				T oldTask = oldTasksMap.get(entry.getKey());
+				T newTask = entry.getValue();
+				if (oldTask.equals(newTask) && !pullChanged && !watchChanged) {
+					continue;
 				}
+				int[] updateCounts = updateTask(oldTask, oldMethods, newTask, methods, pullChanged, watchChanged);
+				watchTasksAdded += updateCounts[0];
+				pullTasksAdded += updateCounts[1];
+				watchTasksDeleted += updateCounts[2];
+				pullTasksDeleted += updateCounts[3];
 			}
 			LOG.info(
 					"[Core] config tasks reloaded, watchTasksAdded {}, pullTasksAdded {}, watchTasksDeleted {}, pullTasksDeleted {}",
@@ -350,6 +343,104 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		}
 	}
 
+	/**
+	 * reschedule the changed parts of the task, the resource set is kept if the endpoints are not changed
+	 *
+	 * @return watchTasksAdded, pullTasksAdded, watchTasksDeleted, pullTasksDeleted
+	 */
+	private int[] updateTask(T oldTask, List<ModelProto.Method> oldMethods, T newTask, List<ModelProto.Method> methods,
+			boolean pullChanged, boolean watchChanged) {
+		LOG.info("[Core] config task {} has been changed", newTask.getName());
+		int[] counts = new int[4];
+		oldMethods = Objects.isNull(oldMethods) ? Collections.emptyList() : oldMethods;
+		methods = Objects.isNull(methods) ? Collections.emptyList() : methods;
+		ResourceSet<C> resourceSet = resources.get(newTask.getName());
+		if (oldTask.isEnable() != newTask.isEnable() || Objects.isNull(resourceSet)
+				|| !resourceSet.getSourceKey().equals(ResourceCenterRegistry.Key.ofSource(newTask.getSource()))
+				|| !resourceSet.getDestKey().equals(ResourceCenterRegistry.Key.ofDestination(
+						newTask.getSource(), newTask.getDestination()))
+				|| !Objects.equals(oldTask.getSource().getName(), newTask.getSource().getName())
+				|| !Objects.equals(oldTask.getDestination().getName(), newTask.getDestination().getName())) {
+			// 接入点发生变化，先创建新的资源再释放旧的，这样仍被其他任务共享的 ResourceCenter 不会被销毁重建
+			int[] deleteCounts = cancelTask(oldTask, oldMethods);
+			resources.remove(newTask.getName());
+			int[] addCounts = addTask(newTask, methods);
+			releaseResourceSet(resourceSet);
+			return new int[] {addCounts[0], addCounts[1], deleteCounts[0], deleteCounts[1]};
+		}
+		boolean matchChanged = !Objects.equals(oldTask.getMatchList(), newTask.getMatchList());
+		// 拉取任务持有 match 列表以及任务参数，任务内容或者拉取方式变化时只需要重新调度拉取任务
+		if (pullChanged || !oldTask.equals(newTask)) {
+			for (ModelProto.Method method : oldMethods) {
+				if (method.getEnable() && ModelProto.Method.MethodType.pull.equals(method.getType())) {
+					deletePullTask(oldTask);
+					counts[3]++;
+				}
+			}
+			for (ModelProto.Method method : methods) {
+				if (method.getEnable() && ModelProto.Method.MethodType.pull.equals(method.getType())) {
+					long pullInterval = DurationUtils.parseDurationMillis(
+							method.getInterval(), DefaultValues.DEFAULT_PULL_INTERVAL_MS);
+					long maxPullInterval = DurationUtils.parseDurationMillis(method.getMaxInterval(), pullInterval);
+					addPullTask(newTask, pullInterval, maxPullInterval);
+					counts[1]++;
+				}
+			}
+		}
+		if (watchChanged) {
+			for (ModelProto.Method method : oldMethods) {
+				if (method.getEnable() && ModelProto.Method.MethodType.watch.equals(method.getType())) {
+					deleteWatchTask(oldTask);
+					counts[2]++;
+				}
+			}
+			for (ModelProto.Method method : methods) {
+				if (method.getEnable() && ModelProto.Method.MethodType.watch.equals(method.getType())) {
+					addWatchTask(newTask, method);
+					counts[0]++;
+				}
+			}
+			return counts;
+		}
+		if (!matchChanged) {
+			return counts;
+		}
+		// 监听方式不变，只处理增加和删除的 match，没有变化的 match 继续保持监听
+		for (ModelProto.Method method : methods) {
+			if (!method.getEnable() || !ModelProto.Method.MethodType.watch.equals(method.getType())) {
+				continue;
+			}
+			for (SyncTask.Match match : oldTask.getMatchList()) {
+				if (!newTask.getMatchList().contains(match)) {
+					deleteWatchMatch(resourceSet, oldTask, match);
+					counts[2]++;
+				}
+			}
+			for (SyncTask.Match match : newTask.getMatchList()) {
+				if (!oldTask.getMatchList().contains(match)) {
+					addWatchMatch(resourceSet, newTask, match, method);
+					counts[0]++;
+				}
+			}
+		}
+		return counts;
+	}
+
+	private void resizePullScheduler(List<ModelProto.Method> methods) {
+		if (CollectionUtils.isEmpty(methods)) {
+			return;
+		}
+		for (ModelProto.Method method : methods) {
+			if (ModelProto.Method.MethodType.pull.equals(method.getType()) && method.getConcurrency() > 0) {
+				pullScheduler.resize(method.getConcurrency());
+			}
+		}
+	}
+
+	public PullScheduler.Stats getPullStats() {
+		return pullScheduler.stats();
+	}
+
 	public Executor executor() {
 		return reloadExecutor;
 	}
@@ -364,24 +455,43 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		}
 		ResourceEndpoint source = task.getSource();
 		ResourceEndpoint destination = task.getDestination();
-		C sourceCenter = createResource(source.getResourceType());
+		// 接入点相同的任务共享同一个 ResourceCenter
+		ResourceCenterRegistry.Key sourceKey = ResourceCenterRegistry.Key.ofSource(source);
+		C sourceCenter = centerRegistry.acquire(sourceKey,
+				() -> createResource(source.getResourceType(), buildInitRequest("", ResourceType.UNKNOWN, source)));
 		if (null == sourceCenter) {
 			return null;
 		}
-		C destinationCenter = createResource(destination.getResourceType());
+		ResourceCenterRegistry.Key destKey = ResourceCenterRegistry.Key.ofDestination(source, destination);
+		C destinationCenter = centerRegistry.acquire(destKey, () -> createResource(destination.getResourceType(),
+				buildInitRequest(source.getName(), source.getResourceType(), destination)));
 		if (null == destinationCenter) {
+			centerRegistry.release(sourceKey);
 			return null;
 		}
-		sourceCenter.init(buildInitRequest("", ResourceType.UNKNOWN, source));
-		destinationCenter.init(buildInitRequest(source.getName(), source.getResourceType(), destination));
 		resourceSet = new ResourceSet<>(new NamedResourceCenter<C>(
 				source.getName(), source.getProductName(), sourceCenter),
-				new NamedResourceCenter<C>(destination.getName(), destination.getProductName(), destinationCenter));
+				new NamedResourceCenter<C>(destination.getName(), destination.getProductName(), destinationCenter),
+				sourceKey, destKey);
 		resources.put(task.getName(), resourceSet);
 		return resourceSet;
 	}
 
-	private C createResource(ResourceType resourceType) {
+	/**
+	 * decorate the resource center before it is shared by the pull and watch tasks of the same task
+	 *
+	 * @param center initialized resource center
+	 * @return decorated resource center
+	 */
+	protected C decorate(C center) {
+		return center;
+	}
+
+	protected List<ModelProto.Method> getMethods() {
+		return methods;
+	}
+
+	private C createResource(ResourceType resourceType, InitRequest request) {
 		Class<? extends ResourceCenter> registryClazz = typeClassMap.get(resourceType);
 		C center;
 		try {
@@ -390,7 +500,8 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 			LOG.error("[Core] fail to create instance for class {}", registryClazz.getCanonicalName(), e);
 			return null;
 		}
-		return (C) center;
+		center.init(request);
+		return decorate(center);
 	}
 
 	public ResourceSet<C> getResource(String taskName) {
@@ -413,39 +524,50 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 		return null;
 	}
 
-	public static class Source {
+	/**
+	 * 监听任务的唯一标识，不同任务可能监听相同的 match，因此需要带上任务名称
+	 */
+	public static class WatchKey {
 
-		private final String sourceName;
+		private final String taskName;
 
 		private final SyncTask.Match match;
 
-		public Source(String sourceName, SyncTask.Match match) {
-			this.sourceName = sourceName;
+		public WatchKey(String taskName, SyncTask.Match match) {
+			this.taskName = taskName;
 			this.match = match;
 		}
 
+		public String getTaskName() {
+			return taskName;
+		}
+
+		public SyncTask.Match getMatch() {
+			return match;
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (this == o) {
 				return true;
 			}
-			if (!(o instanceof Source)) {
+			if (!(o instanceof WatchKey)) {
 				return false;
 			}
-			Source that = (Source) o;
-			return Objects.equals(sourceName, that.sourceName) &&
+			WatchKey that = (WatchKey) o;
+			return Objects.equals(taskName, that.taskName) &&
 					Objects.equals(match, that.match);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(sourceName, match);
+			return Objects.hash(taskName, match);
 		}
 
 		@Override
 		public String toString() {
-			return "ServiceWithSource{" +
-					"sourceName='" + sourceName + '\'' +
+			return "WatchKey{" +
+					"taskName='" + taskName + '\'' +
 					", match=" + match +
 					'}';
 		}
@@ -457,9 +579,16 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 
 		private final NamedResourceCenter<C> dest;
 
-		public ResourceSet(NamedResourceCenter<C> source, NamedResourceCenter<C> dest) {
+		private final ResourceCenterRegistry.Key sourceKey;
+
+		private final ResourceCenterRegistry.Key destKey;
+
+		public ResourceSet(NamedResourceCenter<C> source, NamedResourceCenter<C> dest,
+				ResourceCenterRegistry.Key sourceKey, ResourceCenterRegistry.Key destKey) {
 			this.source = source;
 			this.dest = dest;
+			this.sourceKey = sourceKey;
+			this.destKey = destKey;
 		}
 
 		public NamedResourceCenter<C> getSource() {
@@ -470,9 +599,12 @@ public abstract class AbstractTaskEngine<C extends ResourceCenter, T extends Syn
 			return dest;
 		}
 
-		public void destroy() {
-			source.getCenter().destroy();
-			dest.getCenter().destroy();
+		public ResourceCenterRegistry.Key getSourceKey() {
+			return sourceKey;
+		}
+
+		public ResourceCenterRegistry.Key getDestKey() {
+			return destKey;
 		}
 	}
 
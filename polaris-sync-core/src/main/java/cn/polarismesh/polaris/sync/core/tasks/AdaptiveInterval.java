@@ -0,0 +1,74 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自适应拉取间隔，源端数据没有变化时按指数退避直到最大间隔，一旦发现变化立即恢复到最小间隔，
+ * 并叠加随机抖动，避免多个任务的拉取时间点趋于一致。执行失败时无法判断源端是否变化，同样恢复到最小间隔。
+ *
+ * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
+ */
+public class AdaptiveInterval implements PullScheduler.IntervalPolicy {
+
+	private static final double JITTER_RATIO = 0.1;
+
+	private final ChangeAwareTask task;
+
+	private final long minIntervalMilli;
+
+	private final long maxIntervalMilli;
+
+	private long currentIntervalMilli;
+
+	public AdaptiveInterval(ChangeAwareTask task, long minIntervalMilli, long maxIntervalMilli) {
+		this.task = task;
+		this.minIntervalMilli = minIntervalMilli;
+		this.maxIntervalMilli = Math.max(minIntervalMilli, maxIntervalMilli);
+		this.currentIntervalMilli = minIntervalMilli;
+	}
+
+	@Override
+	public synchronized long nextInterval() {
+		if (task.isFailedInLastRun() || task.isChangedInLastRun()) {
+			currentIntervalMilli = minIntervalMilli;
+		}
+		else {
+			currentIntervalMilli = Math.min(currentIntervalMilli * 2, maxIntervalMilli);
+		}
+		long jitter = (long) (currentIntervalMilli * JITTER_RATIO);
+		if (jitter <= 0) {
+			return currentIntervalMilli;
+		}
+		return currentIntervalMilli + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+	}
+
+	/**
+	 * 能够感知上一次执行是否发现源端变化的任务
+	 */
+	public interface ChangeAwareTask {
+
+		boolean isChangedInLastRun();
+
+		/**
+		 * @return true if the source or destination failed in the last run, the change is unknown
+		 */
+		boolean isFailedInLastRun();
+	}
+}
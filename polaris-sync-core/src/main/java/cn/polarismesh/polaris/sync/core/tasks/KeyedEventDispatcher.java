@@ -0,0 +1,145 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 key 分发事件，同一个 key 的事件串行执行，不同 key 之间并行执行。
+ * 某个 key 正在执行时到达的新事件只保留最新的一个，旧的事件直接丢弃。
+ *
+ * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
+ */
+public class KeyedEventDispatcher {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KeyedEventDispatcher.class);
+
+	private final ScheduledExecutorService executor;
+
+	private final Map<Object, Slot> slots = new ConcurrentHashMap<>();
+
+	private final AtomicLong dispatchedCount = new AtomicLong(0);
+
+	private final AtomicLong coalescedCount = new AtomicLong(0);
+
+	public KeyedEventDispatcher(ScheduledExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * dispatch the latest event of the key, replace the pending one if exists
+	 *
+	 * @param key key to serialize the events
+	 * @param event event handler with the snapshot
+	 * @param debounceMilli delay before the event executed, events arrived in the window will be coalesced
+	 */
+	public void dispatch(Object key, Runnable event, long debounceMilli) {
+		dispatchedCount.incrementAndGet();
+		boolean[] start = new boolean[1];
+		slots.compute(key, (k, slot) -> {
+			if (null == slot) {
+				slot = new Slot();
+			}
+			if (null != slot.pending) {
+				coalescedCount.incrementAndGet();
+			}
+			slot.pending = event;
+			if (!slot.active) {
+				slot.active = true;
+				start[0] = true;
+			}
+			return slot;
+		});
+		if (start[0]) {
+			schedule(key, debounceMilli);
+		}
+	}
+
+	private void schedule(Object key, long debounceMilli) {
+		try {
+			if (debounceMilli > 0) {
+				executor.schedule(() -> drain(key, debounceMilli), debounceMilli, TimeUnit.MILLISECONDS);
+			}
+			else {
+				executor.execute(() -> drain(key, debounceMilli));
+			}
+		}
+		catch (RejectedExecutionException e) {
+			LOG.warn("[Core] event dispatcher has been shutdown, drop event of {}", key);
+			slots.remove(key);
+		}
+	}
+
+	private void drain(Object key, long debounceMilli) {
+		Runnable[] holder = new Runnable[1];
+		slots.computeIfPresent(key, (k, slot) -> {
+			holder[0] = slot.pending;
+			slot.pending = null;
+			return slot;
+		});
+		try {
+			if (null != holder[0]) {
+				holder[0].run();
+			}
+		}
+		catch (Throwable e) {
+			LOG.error("[Core] fail to handle event of {}", key, e);
+		}
+		finally {
+			boolean[] again = new boolean[1];
+			slots.computeIfPresent(key, (k, slot) -> {
+				if (null == slot.pending) {
+					return null;
+				}
+				again[0] = true;
+				return slot;
+			});
+			if (again[0]) {
+				// 执行期间有新的事件到达，继续处理最新的一个
+				schedule(key, debounceMilli);
+			}
+		}
+	}
+
+	public long getDispatchedCount() {
+		return dispatchedCount.get();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public int getPendingKeys() {
+		return slots.size();
+	}
+
+	private static class Slot {
+
+		Runnable pending;
+
+		boolean active;
+	}
+}
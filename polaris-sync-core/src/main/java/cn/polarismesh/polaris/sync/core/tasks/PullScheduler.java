@@ -0,0 +1,379 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 拉取任务调度器，每个任务对应一条 lane，lane 之间共享有界的 worker 线程池并行执行，
+ * 同一条 lane 只有在上一次执行结束后才会重新调度，因此同一个任务不会出现重叠执行。
+ *
+ * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
+ */
+public class PullScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PullScheduler.class);
+
+	private final ScheduledExecutorService timer;
+
+	private final ThreadPoolExecutor workers;
+
+	private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+	// 已取消但仍在执行的 lane，同名的新 lane 要等它执行结束后才启动
+	private final Map<String, Lane> cancelledLanes = new ConcurrentHashMap<>();
+
+	private final AtomicLong completedCount = new AtomicLong(0);
+
+	private final AtomicLong overrunCount = new AtomicLong(0);
+
+	private final QueueWaitWindow queueWait = new QueueWaitWindow();
+
+	public PullScheduler(String name, int concurrency) {
+		timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name + "-list-timer"));
+		workers = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), new NamedThreadFactory(name + "-list-worker"));
+	}
+
+	/**
+	 * schedule the task with fixed delay, the next round starts after the previous one finished
+	 *
+	 * @param name task name
+	 * @param task task to run
+	 * @param intervalMilli delay between two rounds
+	 * @return lane of the task
+	 */
+	public Lane schedule(String name, Runnable task, long intervalMilli) {
+		return schedule(name, task, () -> intervalMilli);
+	}
+
+	/**
+	 * schedule the task with the delay decided by the policy after each round
+	 *
+	 * @param name task name
+	 * @param task task to run
+	 * @param intervalPolicy policy to decide the delay between two rounds
+	 * @return lane of the task
+	 */
+	public Lane schedule(String name, Runnable task, IntervalPolicy intervalPolicy) {
+		Lane lane = new Lane(name, task, intervalPolicy);
+		Lane oldLane = lanes.put(name, lane);
+		if (null != oldLane) {
+			oldLane.cancel();
+		}
+		Lane runningLane = cancelledLanes.get(name);
+		if (null == runningLane) {
+			lane.next(0);
+		}
+		else {
+			// 同一个任务不能重叠执行，等上一次执行结束后再启动
+			runningLane.whenIdle(() -> lane.next(0));
+		}
+		return lane;
+	}
+
+	public void resize(int concurrency) {
+		if (concurrency <= 0 || concurrency == workers.getMaximumPoolSize()) {
+			return;
+		}
+		LOG.info("[Core] pull scheduler resize concurrency from {} to {}", workers.getMaximumPoolSize(), concurrency);
+		if (concurrency > workers.getMaximumPoolSize()) {
+			workers.setMaximumPoolSize(concurrency);
+			workers.setCorePoolSize(concurrency);
+		}
+		else {
+			workers.setCorePoolSize(concurrency);
+			workers.setMaximumPoolSize(concurrency);
+		}
+	}
+
+	public Stats stats() {
+		return new Stats(lanes.size(), workers.getMaximumPoolSize(), workers.getActiveCount(),
+				workers.getQueue().size(), completedCount.get(), overrunCount.get(),
+				queueWait.max(System.currentTimeMillis()));
+	}
+
+	public void shutdown() {
+		for (Lane lane : lanes.values()) {
+			lane.cancel();
+		}
+		timer.shutdown();
+		workers.shutdown();
+	}
+
+	public class Lane {
+
+		private final String name;
+
+		private final Runnable task;
+
+		private final IntervalPolicy intervalPolicy;
+
+		private volatile long intervalMilli;
+
+		private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+		private volatile ScheduledFuture<?> timerFuture;
+
+		private volatile Future<?> runFuture;
+
+		// 以下字段由 lane 自身的锁保护
+		private boolean running;
+
+		private Runnable afterRun;
+
+		private Lane(String name, Runnable task, IntervalPolicy intervalPolicy) {
+			this.name = name;
+			this.task = task;
+			this.intervalPolicy = intervalPolicy;
+			this.intervalMilli = intervalPolicy.nextInterval();
+		}
+
+		private void next(long delayMilli) {
+			if (cancelled.get()) {
+				return;
+			}
+			try {
+				timerFuture = timer.schedule(this::dispatch, delayMilli, TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e) {
+				LOG.warn("[Core] pull scheduler has been shutdown, task {} stop scheduling", name);
+			}
+		}
+
+		private void dispatch() {
+			if (cancelled.get()) {
+				return;
+			}
+			long dispatchTime = System.currentTimeMillis();
+			try {
+				runFuture = workers.submit(() -> runOnce(dispatchTime));
+			}
+			catch (RejectedExecutionException e) {
+				LOG.warn("[Core] pull scheduler has been shutdown, task {} stop scheduling", name);
+			}
+		}
+
+		private void runOnce(long dispatchTime) {
+			long startTime = System.currentTimeMillis();
+			long queueWaitMillis = startTime - dispatchTime;
+			queueWait.record(queueWaitMillis, startTime);
+			boolean run;
+			synchronized (this) {
+				run = !cancelled.get();
+				running = run;
+			}
+			try {
+				if (run) {
+					task.run();
+				}
+			}
+			catch (Throwable e) {
+				LOG.error("[Core] pull task {} encounter exception", name, e);
+			}
+			finally {
+				long cost = System.currentTimeMillis() - dispatchTime;
+				completedCount.incrementAndGet();
+				if (cost > intervalMilli) {
+					overrunCount.incrementAndGet();
+					LOG.warn("[Core] pull task {} cycle overrun, cost {}ms (queue wait {}ms), interval {}ms",
+							name, cost, queueWaitMillis, intervalMilli);
+				}
+				intervalMilli = intervalPolicy.nextInterval();
+				next(intervalMilli);
+				Runnable action;
+				synchronized (this) {
+					running = false;
+					action = afterRun;
+					afterRun = null;
+				}
+				cancelledLanes.remove(name, this);
+				if (null != action) {
+					action.run();
+				}
+			}
+		}
+
+		/**
+		 * run the action after the in-flight run finished, or run it now if the lane is idle
+		 */
+		private void whenIdle(Runnable action) {
+			synchronized (this) {
+				if (running) {
+					afterRun = action;
+					return;
+				}
+			}
+			action.run();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getIntervalMilli() {
+			return intervalMilli;
+		}
+
+		public void cancel() {
+			synchronized (this) {
+				cancelled.set(true);
+				if (running) {
+					cancelledLanes.put(name, this);
+				}
+			}
+			lanes.remove(name, this);
+			ScheduledFuture<?> timerFuture = this.timerFuture;
+			if (null != timerFuture) {
+				timerFuture.cancel(false);
+			}
+			Future<?> runFuture = this.runFuture;
+			if (null != runFuture) {
+				runFuture.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * 按固定窗口统计最大排队时间，读取不会重置统计，多个调用方看到的值一致
+	 */
+	private static class QueueWaitWindow {
+
+		private static final long WINDOW_MS = 60 * 1000;
+
+		private long windowStart;
+
+		private long currentMax;
+
+		private long previousMax;
+
+		synchronized void record(long queueWaitMillis, long now) {
+			roll(now);
+			currentMax = Math.max(currentMax, queueWaitMillis);
+		}
+
+		/**
+		 * @return max queue wait of the current and the previous window
+		 */
+		synchronized long max(long now) {
+			roll(now);
+			return Math.max(currentMax, previousMax);
+		}
+
+		private void roll(long now) {
+			if (now - windowStart < WINDOW_MS) {
+				return;
+			}
+			previousMax = now - windowStart < 2 * WINDOW_MS ? currentMax : 0;
+			currentMax = 0;
+			windowStart = now;
+		}
+	}
+
+	/**
+	 * 决定 lane 下一轮执行的间隔
+	 */
+	public interface IntervalPolicy {
+
+		long nextInterval();
+	}
+
+	public static class Stats {
+
+		private final int lanes;
+
+		private final int concurrency;
+
+		private final int activeCount;
+
+		private final int queueDepth;
+
+		private final long completedCount;
+
+		private final long overrunCount;
+
+		private final long maxQueueWaitMillis;
+
+		public Stats(int lanes, int concurrency, int activeCount, int queueDepth, long completedCount,
+				long overrunCount, long maxQueueWaitMillis) {
+			this.lanes = lanes;
+			this.concurrency = concurrency;
+			this.activeCount = activeCount;
+			this.queueDepth = queueDepth;
+			this.completedCount = completedCount;
+			this.overrunCount = overrunCount;
+			this.maxQueueWaitMillis = maxQueueWaitMillis;
+		}
+
+		public int getLanes() {
+			return lanes;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public int getActiveCount() {
+			return activeCount;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public long getCompletedCount() {
+			return completedCount;
+		}
+
+		public long getOverrunCount() {
+			return overrunCount;
+		}
+
+		public long getMaxQueueWaitMillis() {
+			return maxQueueWaitMillis;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats{" +
+					"lanes=" + lanes +
+					", concurrency=" + concurrency +
+					", activeCount=" + activeCount +
+					", queueDepth=" + queueDepth +
+					", completedCount=" + completedCount +
+					", overrunCount=" + overrunCount +
+					", maxQueueWaitMillis=" + maxQueueWaitMillis +
+					'}';
+		}
+	}
+}
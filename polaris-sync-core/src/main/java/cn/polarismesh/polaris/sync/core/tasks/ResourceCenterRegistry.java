@@ -0,0 +1,158 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import cn.polarismesh.polaris.sync.extension.ResourceCenter;
+import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按照接入点共享 ResourceCenter，接入点相同的任务使用同一个已连接的 ResourceCenter，
+ * 通过引用计数管理生命周期，最后一个使用者释放时才销毁。
+ *
+ * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
+ */
+public class ResourceCenterRegistry<C extends ResourceCenter> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResourceCenterRegistry.class);
+
+	private final Map<Key, Ref<C>> centers = new HashMap<>();
+
+	/**
+	 * acquire the center of the key, create it if not exists
+	 *
+	 * @param key endpoint key
+	 * @param creator create and init the center, return null if failed
+	 * @return shared center, null if creation failed
+	 */
+	public synchronized C acquire(Key key, Supplier<C> creator) {
+		Ref<C> ref = centers.get(key);
+		if (null == ref) {
+			C center = creator.get();
+			if (null == center) {
+				return null;
+			}
+			ref = new Ref<>(center);
+			centers.put(key, ref);
+			LOG.info("[Core] resource center {} created", key);
+		}
+		ref.count++;
+		return ref.center;
+	}
+
+	public synchronized void release(Key key) {
+		Ref<C> ref = centers.get(key);
+		if (null == ref) {
+			return;
+		}
+		ref.count--;
+		if (ref.count > 0) {
+			return;
+		}
+		centers.remove(key);
+		LOG.info("[Core] resource center {} released by all tasks, destroy it", key);
+		ref.center.destroy();
+	}
+
+	public synchronized int size() {
+		return centers.size();
+	}
+
+	private static class Ref<C> {
+
+		private final C center;
+
+		private int count;
+
+		Ref(C center) {
+			this.center = center;
+		}
+	}
+
+	/**
+	 * 接入点的唯一标识，目标端的行为依赖源端的名称（同步标签），因此目标端的 key 需要包含源端信息；
+	 * 插件会用接入点名称识别同步来源，名称不同的接入点不能共享
+	 */
+	public static class Key {
+
+		private final String sourceName;
+
+		private final ResourceType sourceType;
+
+		private final ResourceEndpoint endpoint;
+
+		private Key(String sourceName, ResourceType sourceType, ResourceEndpoint endpoint) {
+			this.sourceName = sourceName;
+			this.sourceType = sourceType;
+			this.endpoint = endpoint;
+		}
+
+		public static Key ofSource(ResourceEndpoint endpoint) {
+			return new Key("", ResourceType.UNKNOWN, endpoint);
+		}
+
+		public static Key ofDestination(ResourceEndpoint source, ResourceEndpoint endpoint) {
+			return new Key(source.getName(), source.getResourceType(), endpoint);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) o;
+			return Objects.equals(sourceName, that.sourceName) &&
+					sourceType == that.sourceType &&
+					Objects.equals(endpoint.getName(), that.endpoint.getName()) &&
+					endpoint.getResourceType() == that.endpoint.getResourceType() &&
+					Objects.equals(endpoint.getServerAddresses(), that.endpoint.getServerAddresses()) &&
+					Objects.equals(endpoint.getAuthorization(), that.endpoint.getAuthorization()) &&
+					Objects.equals(endpoint.getDatabase(), that.endpoint.getDatabase()) &&
+					Objects.equals(endpoint.getProductName(), that.endpoint.getProductName()) &&
+					Objects.equals(endpoint.getOptions(), that.endpoint.getOptions());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(sourceName, sourceType, endpoint.getName(), endpoint.getResourceType(),
+					endpoint.getServerAddresses(), endpoint.getAuthorization(), endpoint.getDatabase(),
+					endpoint.getProductName(), endpoint.getOptions());
+		}
+
+		@Override
+		public String toString() {
+			return "Key{" +
+					"sourceName='" + sourceName + '\'' +
+					", sourceType=" + sourceType +
+					", name='" + endpoint.getName() + '\'' +
+					", type=" + endpoint.getResourceType() +
+					", addresses=" + endpoint.getServerAddresses() +
+					'}';
+		}
+	}
+}
@@ -18,6 +18,7 @@
 package cn.polarismesh.polaris.sync.core.tasks;
 
 import java.util.List;
+import java.util.Objects;
 
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
 import cn.polarismesh.polaris.sync.model.pb.ModelProto;
@@ -68,5 +69,32 @@ public interface SyncTask {
 		public void setGroups(List<ModelProto.Group> groups) {
 			this.groups = groups;
 		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Match)) {
+				return false;
+			}
+			Match that = (Match) o;
+			return Objects.equals(namespace, that.namespace) &&
+					Objects.equals(name, that.name) &&
+					Objects.equals(groups, that.groups);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(namespace, name, groups);
+		}
+
+		@Override
+		public String toString() {
+			return "Match{" +
+					"namespace='" + namespace + '\'' +
+					", name='" + name + '\'' +
+					'}';
+		}
 	}
 }
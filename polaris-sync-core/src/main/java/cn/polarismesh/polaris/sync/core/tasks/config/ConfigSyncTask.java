@@ -74,6 +74,30 @@ public class ConfigSyncTask implements SyncTask {
 		return matches;
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ConfigSyncTask)) {
+			return false;
+		}
+		return pbTask.equals(((ConfigSyncTask) o).pbTask);
+	}
+
+	@Override
+	public int hashCode() {
+		return pbTask.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigSyncTask{" +
+				"name='" + pbTask.getName() + '\'' +
+				", enable=" + pbTask.getEnable() +
+				'}';
+	}
+
 	private static ResourceType find(ConfigProto.ConfigEndpoint.ConfigType t) {
 		if (ConfigProto.ConfigEndpoint.ConfigType.polaris.equals(t)) {
 			return ResourceType.POLARIS;
@@ -21,7 +21,6 @@ import java.util.List;
 
 import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
 import cn.polarismesh.polaris.sync.core.tasks.NamedResourceCenter;
-import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
 import cn.polarismesh.polaris.sync.core.utils.ConfigUtils;
 import cn.polarismesh.polaris.sync.extension.InitRequest;
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
@@ -47,32 +46,33 @@ public class ConfigTaskEngine extends AbstractTaskEngine<ConfigCenter, ConfigSyn
 	}
 
 	@Override
-	protected Runnable buildPullTask(NamedResourceCenter<ConfigCenter> source, NamedResourceCenter<ConfigCenter> dest, List<SyncTask.Match> matches) {
+	protected Runnable buildPullTask(NamedResourceCenter<ConfigCenter> source, NamedResourceCenter<ConfigCenter> dest, ConfigSyncTask task) {
 		PullTask pullTask = new PullTask(
 				new NamedConfigCenter(source.getName(), source.getProductName(), source.getCenter()),
 				new NamedConfigCenter(dest.getName(), dest.getProductName(), dest.getCenter()),
-				matches
+				task.getMatchList()
 		);
 		return pullTask;
 	}
 
 	@Override
-	protected Runnable buildWatchTask(NamedResourceCenter<ConfigCenter> source, NamedResourceCenter<ConfigCenter> dest, SyncTask.Match match) {
+	protected Runnable buildWatchTask(NamedResourceCenter<ConfigCenter> source, NamedResourceCenter<ConfigCenter> dest,
+			WatchKey watchKey, ModelProto.Method method) {
 		return new WatchTask(
 				watchTasks,
 				new NamedConfigCenter(source.getName(), source.getProductName(), source.getCenter()),
 				new NamedConfigCenter(dest.getName(), dest.getProductName(), dest.getCenter()),
-				match,
+				watchKey,
 				commonExecutor,
 				watchExecutor
 		);
 	}
 
 	@Override
-	protected Runnable buildUnWatchTask(NamedResourceCenter<ConfigCenter> center, SyncTask.Match match) {
+	protected Runnable buildUnWatchTask(NamedResourceCenter<ConfigCenter> center, WatchKey watchKey) {
 		return new UnwatchTask(
 				new NamedConfigCenter(center.getName(), center.getProductName(), center.getCenter()),
-				match
+				watchKey.getMatch()
 		);
 	}
 
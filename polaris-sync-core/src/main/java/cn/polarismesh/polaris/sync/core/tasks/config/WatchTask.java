@@ -26,6 +26,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
 import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
 import cn.polarismesh.polaris.sync.core.utils.TaskUtils;
 import cn.polarismesh.polaris.sync.extension.config.ConfigCenter;
@@ -55,23 +56,24 @@ public class WatchTask implements AbstractTask {
 
 	private final ScheduledExecutorService watchExecutor;
 
-	private final SyncTask.Match groupWithSource;
+	private final AbstractTaskEngine.WatchKey groupWithSource;
 
-	private final Map<SyncTask.Match, Future<?>> watchedGroups;
+	private final Map<AbstractTaskEngine.WatchKey, Future<?>> watchedGroups;
 
 	private final ResponseListener responseListener;
 
-	public WatchTask(Map<SyncTask.Match, Future<?>> watchedGroups, NamedConfigCenter source,
-			NamedConfigCenter destination, SyncTask.Match match, Executor executor,
+	public WatchTask(Map<AbstractTaskEngine.WatchKey, Future<?>> watchedGroups, NamedConfigCenter source,
+			NamedConfigCenter destination, AbstractTaskEngine.WatchKey watchKey, Executor executor,
 			ScheduledExecutorService watchExecutor) {
 		this.watchedGroups = watchedGroups;
+		SyncTask.Match match = watchKey.getMatch();
 		this.source = source;
 		this.destination = destination;
 		this.configGroup = ConfigGroup.builder().namespace(match.getNamespace()).name(match.getName()).build();
 		this.executor = executor;
 		this.watchExecutor = watchExecutor;
 		this.groups = TaskUtils.verifyGroups(match.getGroups());
-		this.groupWithSource = match;
+		this.groupWithSource = watchKey;
 		this.responseListener = new WatchTask.ResponseListener();
 	}
 
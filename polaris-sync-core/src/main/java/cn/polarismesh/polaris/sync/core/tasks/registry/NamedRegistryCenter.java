@@ -25,13 +25,14 @@ public class NamedRegistryCenter {
 
     private final String productName;
 
-    private final RegistryCenter registry;
+    private final RegistryCenterWrapper registry;
 
     public NamedRegistryCenter(String name, String productName,
             RegistryCenter registry) {
         this.name = name;
         this.productName = productName;
-        this.registry = new RegistryCenterWrapper(registry);
+        this.registry = registry instanceof RegistryCenterWrapper
+                ? (RegistryCenterWrapper) registry : new RegistryCenterWrapper(registry);
     }
 
     public String getProductName() {
@@ -42,7 +43,7 @@ public class NamedRegistryCenter {
         return name;
     }
 
-    public RegistryCenter getRegistry() {
+    public RegistryCenterWrapper getRegistry() {
         return registry;
     }
 }
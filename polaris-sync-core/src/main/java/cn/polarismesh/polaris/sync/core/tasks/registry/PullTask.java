@@ -19,14 +19,22 @@ package cn.polarismesh.polaris.sync.core.tasks.registry;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import cn.polarismesh.polaris.sync.core.tasks.AdaptiveInterval;
 import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
 import cn.polarismesh.polaris.sync.core.utils.ConfigUtils;
+import cn.polarismesh.polaris.sync.core.utils.GroupFilterIndex;
 import cn.polarismesh.polaris.sync.core.utils.TaskUtils;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
 import cn.polarismesh.polaris.sync.extension.utils.StatusCodes;
@@ -37,80 +45,185 @@ import com.tencent.polaris.client.pb.ServiceProto.Instance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PullTask implements AbstractTask {
+public class PullTask implements AbstractTask, AdaptiveInterval.ChangeAwareTask {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PullTask.class);
 
-	private final Map<Service, Collection<ModelProto.Group>> serviceToGroups = new HashMap<>();
+	private final Map<Service, GroupFilterIndex> serviceToGroups = new HashMap<>();
 
 	private final NamedRegistryCenter source;
 
 	private final NamedRegistryCenter destination;
 
-	public PullTask(NamedRegistryCenter source, NamedRegistryCenter destination, List<SyncTask.Match> matches) {
+	private final Executor executor;
+
+	private final int parallelism;
+
+	// 各服务上一次拉取到的实例指纹，用于判断源端是否发生变化
+	private final Map<Service, Long> sourceFingerprints = new ConcurrentHashMap<>();
+
+	private volatile boolean changedInLastRun = true;
+
+	private volatile boolean failedInLastRun;
+
+	public PullTask(NamedRegistryCenter source, NamedRegistryCenter destination, List<SyncTask.Match> matches,
+			Executor executor, int parallelism) {
 		this.source = source;
 		this.destination = destination;
+		this.executor = executor;
+		this.parallelism = null == executor ? 1 : Math.max(parallelism, 1);
 		for (SyncTask.Match match : matches) {
 			if (ConfigUtils.isEmptyMatch(match)) {
 				continue;
 			}
-			serviceToGroups.put(new Service(match.getNamespace(), match.getName()), TaskUtils.verifyGroups(match.getGroups()));
+			serviceToGroups.put(new Service(match.getNamespace(), match.getName()),
+					new GroupFilterIndex(TaskUtils.verifyGroups(match.getGroups())));
 		}
 	}
 
 	@Override
 	public void run() {
 		try {
+			long startTime = System.currentTimeMillis();
 			// check services, add or remove the services from destination
 			destination.getRegistry().updateServices(serviceToGroups.keySet());
 
-			// check groups
-			for (Map.Entry<Service, Collection<ModelProto.Group>> entry : serviceToGroups.entrySet()) {
-				destination.getRegistry().updateGroups(entry.getKey(), entry.getValue());
-			}
-
-			// check instances
-			for (Map.Entry<Service, Collection<ModelProto.Group>> entry : serviceToGroups.entrySet()) {
-				Service service = entry.getKey();
-				for (ModelProto.Group group : entry.getValue()) {
-					realRun(service, group);
+			// check groups and instances
+			CycleStat stat = new CycleStat();
+			AtomicBoolean changed = new AtomicBoolean(false);
+			List<Map.Entry<Service, GroupFilterIndex>> entries = new ArrayList<>(serviceToGroups.entrySet());
+			if (parallelism <= 1 || entries.size() <= 1) {
+				for (Map.Entry<Service, GroupFilterIndex> entry : entries) {
+					syncService(entry.getKey(), entry.getValue(), stat, changed);
 				}
 			}
+			else {
+				fanout(entries, stat, changed);
+			}
+			changedInLastRun = changed.get();
+			failedInLastRun = stat.failed;
+			LOG.info("[Core][Pull] task(source {}, destination {}) cycle finished, services {}, parallelism {}, cost {}ms, "
+							+ "slowest service {} cost {}ms", source.getName(), destination.getName(), entries.size(),
+					parallelism, System.currentTimeMillis() - startTime, stat.slowestService, stat.slowestCost);
 		}
 		catch (Throwable e) {
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
 			e.printStackTrace(pw);
 			LOG.error("[Core][Pull] task(source {}) encounter exception {}", source.getName(), sw);
+			failedInLastRun = true;
 		}
 	}
 
-	private void realRun(Service service, ModelProto.Group group) {
+	/**
+	 * 最多启动 parallelism 个 worker 从同一个游标中领取服务进行同步，整个周期的耗时取决于最慢的服务
+	 */
+	private void fanout(List<Map.Entry<Service, GroupFilterIndex>> entries, CycleStat stat, AtomicBoolean changed)
+			throws ExecutionException {
+		AtomicInteger cursor = new AtomicInteger(0);
+		AtomicBoolean stopped = new AtomicBoolean(false);
+		int workers = Math.min(parallelism, entries.size());
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+		for (int i = 0; i < workers; i++) {
+			futures[i] = CompletableFuture.runAsync(() -> {
+				int idx;
+				while (!stopped.get() && (idx = cursor.getAndIncrement()) < entries.size()) {
+					Map.Entry<Service, GroupFilterIndex> entry = entries.get(idx);
+					syncService(entry.getKey(), entry.getValue(), stat, changed);
+				}
+			}, executor);
+		}
 		try {
-			DiscoverResponse srcInstanceResponse = source.getRegistry().listInstances(service, group);
-			if (srcInstanceResponse.getCode().getValue() != StatusCodes.SUCCESS) {
-				LOG.warn("[Core][Pull] fail to list service in source {}, type {}, group {}, code is {}", source.getName(), source.getRegistry()
-						.getType(), group.getName(), srcInstanceResponse.getCode().getValue());
-				return;
-			}
-			List<Instance> instances = srcInstanceResponse.getInstancesList();
-			service = handle(source, destination, service);
-			Service finalService = service;
-			instances = instances.stream().map(instance -> {
-				return Instance.newBuilder(instance)
-						.setNamespace(StringValue.newBuilder().setValue(finalService.getNamespace()).build())
-						.setService(StringValue.newBuilder().setValue(finalService.getService()).build())
-						.build();
-			}).collect(Collectors.toList());
-			LOG.info("[Core][Pull] prepare to update from registry {}, type {}, service {}, group {}, instances {}", source.getName(), source.getRegistry()
-					.getType(), service, group.getName(), instances);
-			destination.getRegistry().updateInstances(service, group, instances);
-		} catch (Throwable ex) {
+			CompletableFuture.allOf(futures).get();
+		}
+		catch (InterruptedException e) {
+			// 任务被取消，剩余未领取的服务不再同步
+			stopped.set(true);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void syncService(Service service, GroupFilterIndex groups, CycleStat stat, AtomicBoolean changed) {
+		long startTime = System.currentTimeMillis();
+		try {
+			destination.getRegistry().updateGroups(service, groups.getGroups());
+			realRun(service, groups, stat, changed);
+		}
+		catch (Throwable ex) {
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
 			ex.printStackTrace(pw);
-			LOG.error("[Core][Pull] real run task(source {}) encounter exception {}", source.getName(), sw);
+			LOG.error("[Core][Pull] sync service {} (source {}) encounter exception {}", service, source.getName(), sw);
+			stat.failed = true;
+		}
+		finally {
+			stat.record(service, System.currentTimeMillis() - startTime);
+		}
+	}
+
+	private void realRun(Service service, GroupFilterIndex groups, CycleStat stat, AtomicBoolean changed) {
+		// 每个服务只拉取一次全量实例，再在本地按分组的 metadata 划分
+		DiscoverResponse srcInstanceResponse = source.getRegistry().listInstances(service, TaskUtils.ALL_INSTANCES_GROUP);
+		if (srcInstanceResponse.getCode().getValue() != StatusCodes.SUCCESS) {
+			LOG.warn("[Core][Pull] fail to list service in source {}, type {}, service {}, code is {}", source.getName(), source.getRegistry()
+					.getType(), service, srcInstanceResponse.getCode().getValue());
+			stat.failed = true;
+			return;
+		}
+		long fingerprint = TaskUtils.fingerprint(srcInstanceResponse.getInstancesList());
+		Long lastFingerprint = sourceFingerprints.put(service, fingerprint);
+		if (null == lastFingerprint || lastFingerprint != fingerprint) {
+			changed.set(true);
+		}
+		Service finalService = handle(source, destination, service);
+		Map<ModelProto.Group, List<Instance>> groupInstances = groups.partition(srcInstanceResponse.getInstancesList());
+		for (Map.Entry<ModelProto.Group, List<Instance>> entry : groupInstances.entrySet()) {
+			ModelProto.Group group = entry.getKey();
+			try {
+				List<Instance> instances = entry.getValue().stream().map(instance -> {
+					return Instance.newBuilder(instance)
+							.setNamespace(StringValue.newBuilder().setValue(finalService.getNamespace()).build())
+							.setService(StringValue.newBuilder().setValue(finalService.getService()).build())
+							.build();
+				}).collect(Collectors.toList());
+				LOG.info("[Core][Pull] prepare to update from registry {}, type {}, service {}, group {}, instances {}", source.getName(), source.getRegistry()
+						.getType(), finalService, group.getName(), instances);
+				if (!destination.getRegistry().updateInstances(finalService, group, instances)) {
+					stat.failed = true;
+				}
+			} catch (Throwable ex) {
+				StringWriter sw = new StringWriter();
+				PrintWriter pw = new PrintWriter(sw);
+				ex.printStackTrace(pw);
+				LOG.error("[Core][Pull] real run task(source {}) encounter exception {}", source.getName(), sw);
+				stat.failed = true;
+			}
 		}
 	}
 
+	@Override
+	public boolean isChangedInLastRun() {
+		return changedInLastRun;
+	}
+
+	@Override
+	public boolean isFailedInLastRun() {
+		return failedInLastRun;
+	}
+
+	private static class CycleStat {
+
+		private Service slowestService;
+
+		private long slowestCost = -1;
+
+		private volatile boolean failed;
+
+		synchronized void record(Service service, long cost) {
+			if (cost > slowestCost) {
+				slowestCost = cost;
+				slowestService = service;
+			}
+		}
+	}
 }
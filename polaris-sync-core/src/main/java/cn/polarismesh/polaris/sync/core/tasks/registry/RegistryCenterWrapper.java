@@ -18,23 +18,33 @@
 package cn.polarismesh.polaris.sync.core.tasks.registry;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
+import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
+import cn.polarismesh.polaris.sync.core.utils.TaskUtils;
 import cn.polarismesh.polaris.sync.extension.Health;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
 import cn.polarismesh.polaris.sync.extension.registry.ServiceGroup;
+import cn.polarismesh.polaris.sync.extension.registry.WatchEvent;
 import cn.polarismesh.polaris.sync.model.pb.ModelProto;
 import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
 import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RegistryCenterWrapper implements RegistryCenter {
 
+	private static final Logger LOG = LoggerFactory.getLogger(RegistryCenterWrapper.class);
+
 	private final RegistryCenter registryCenter;
 
 	private final ReentrantLock servicesLock = new ReentrantLock();
@@ -43,8 +53,33 @@ public class RegistryCenterWrapper implements RegistryCenter {
 
 	private final Map<ServiceGroup, ReentrantLock> serviceGroupLocks = new ConcurrentHashMap<>();
 
+	// 最近一次成功同步到目标端的实例指纹
+	private final Map<ServiceGroup, AppliedFingerprint> appliedFingerprints = new ConcurrentHashMap<>();
+
+	// 源端由接入点相同的任务共享，插件对同一个服务只保留一个监听器，这里按任务分发推送，最后一个任务取消时才取消插件的监听
+	private final Map<Service, Map<AbstractTaskEngine.WatchKey, ResponseListener>> watchers = new HashMap<>();
+
+	// 每次比较时读取，任务配置重载后无需重建 wrapper 即可生效
+	private final LongSupplier fullSyncIntervalMilli;
+
 	public RegistryCenterWrapper(RegistryCenter registryCenter) {
+		this(registryCenter, () -> DefaultValues.DEFAULT_FULL_SYNC_INTERVAL_MS);
+	}
+
+	public RegistryCenterWrapper(RegistryCenter registryCenter, LongSupplier fullSyncIntervalMilli) {
 		this.registryCenter = registryCenter;
+		this.fullSyncIntervalMilli = fullSyncIntervalMilli;
+	}
+
+	/**
+	 * get the plugin behind the wrapper as the given type, such as an optional capability of the plugin
+	 *
+	 * @return plugin of the type, null if the plugin does not implement it
+	 */
+	public static <T> T unwrap(RegistryCenter center, Class<T> type) {
+		RegistryCenter plugin = center instanceof RegistryCenterWrapper
+				? ((RegistryCenterWrapper) center).registryCenter : center;
+		return type.isInstance(plugin) ? type.cast(plugin) : null;
 	}
 
     @Override
@@ -92,6 +127,46 @@ public class RegistryCenterWrapper implements RegistryCenter {
 		registryCenter.unwatch(service);
 	}
 
+	/**
+	 * watch the service for the task, the plugin only watches once for all the tasks sharing this center
+	 */
+	public boolean watch(AbstractTaskEngine.WatchKey watcher, Service service, ResponseListener eventListener) {
+		synchronized (watchers) {
+			Map<AbstractTaskEngine.WatchKey, ResponseListener> listeners = watchers.get(service);
+			if (null != listeners) {
+				listeners.put(watcher, eventListener);
+				// 插件已经在监听，不会再推送当前实例，新加入的任务主动同步一次
+				eventListener.onEvent(new WatchEvent(null));
+				return true;
+			}
+			Map<AbstractTaskEngine.WatchKey, ResponseListener> newListeners = new ConcurrentHashMap<>();
+			newListeners.put(watcher, eventListener);
+			boolean success = registryCenter.watch(service, watchEvent -> {
+				for (ResponseListener listener : newListeners.values()) {
+					listener.onEvent(watchEvent);
+				}
+			});
+			if (success) {
+				watchers.put(service, newListeners);
+			}
+			return success;
+		}
+	}
+
+	/**
+	 * unwatch the service for the task, the plugin unwatches when the last task leaves
+	 */
+	public void unwatch(AbstractTaskEngine.WatchKey watcher, Service service) {
+		synchronized (watchers) {
+			Map<AbstractTaskEngine.WatchKey, ResponseListener> listeners = watchers.get(service);
+			if (null == listeners || null == listeners.remove(watcher) || !listeners.isEmpty()) {
+				return;
+			}
+			watchers.remove(service);
+			registryCenter.unwatch(service);
+		}
+	}
+
 	@Override
 	public void updateServices(Collection<Service> services) {
 		servicesLock.lock();
@@ -121,9 +196,10 @@ public class RegistryCenterWrapper implements RegistryCenter {
 	}
 
 	@Override
-	public void updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+	public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+		ServiceGroup serviceGroup = new ServiceGroup(service, group.getName());
 		ReentrantLock svcLock = serviceGroupLocks.computeIfAbsent(
-				new ServiceGroup(service, group.getName()), new Function<ServiceGroup, ReentrantLock>() {
+				serviceGroup, new Function<ServiceGroup, ReentrantLock>() {
 					@Override
 					public ReentrantLock apply(ServiceGroup serviceGroup) {
 						return new ReentrantLock();
@@ -131,7 +207,21 @@ public class RegistryCenterWrapper implements RegistryCenter {
 				});
 		svcLock.lock();
 		try {
-			registryCenter.updateInstances(service, group, instances);
+			long fingerprint = TaskUtils.fingerprint(instances);
+			long now = System.currentTimeMillis();
+			AppliedFingerprint applied = appliedFingerprints.get(serviceGroup);
+			if (null != applied && applied.fingerprint == fingerprint
+					&& now - applied.fullSyncTime < fullSyncIntervalMilli.getAsLong()) {
+				LOG.debug("[Core] instances of {} not changed since last sync, skip update", serviceGroup);
+				return true;
+			}
+			// 插件写失败时目标端状态未知，不记录指纹，下次同步重新比较
+			appliedFingerprints.remove(serviceGroup);
+			if (!registryCenter.updateInstances(service, group, instances)) {
+				return false;
+			}
+			appliedFingerprints.put(serviceGroup, new AppliedFingerprint(fingerprint, now));
+			return true;
 		}
 		finally {
 			svcLock.unlock();
@@ -142,4 +232,16 @@ public class RegistryCenterWrapper implements RegistryCenter {
 	public Health healthCheck() {
 		return registryCenter.healthCheck();
 	}
+
+	private static class AppliedFingerprint {
+
+		private final long fingerprint;
+
+		private final long fullSyncTime;
+
+		AppliedFingerprint(long fingerprint, long fullSyncTime) {
+			this.fingerprint = fingerprint;
+			this.fullSyncTime = fullSyncTime;
+		}
+	}
 }
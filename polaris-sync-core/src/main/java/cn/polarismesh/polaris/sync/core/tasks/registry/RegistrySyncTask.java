@@ -73,6 +73,34 @@ public class RegistrySyncTask implements SyncTask {
 		return matches;
 	}
 
+	public int getParallelism() {
+		return pbTask.getParallelism();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof RegistrySyncTask)) {
+			return false;
+		}
+		return pbTask.equals(((RegistrySyncTask) o).pbTask);
+	}
+
+	@Override
+	public int hashCode() {
+		return pbTask.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "RegistrySyncTask{" +
+				"name='" + pbTask.getName() + '\'' +
+				", enable=" + pbTask.getEnable() +
+				'}';
+	}
+
 	private static ResourceType find(RegistryProto.RegistryEndpoint.RegistryType t) {
 		if (RegistryProto.RegistryEndpoint.RegistryType.polaris.equals(t)) {
 			return ResourceType.POLARIS;
@@ -99,6 +127,7 @@ public class RegistrySyncTask implements SyncTask {
 				.name(endpoint.getName())
 				.productName(endpoint.getProductName())
 				.resourceType(find(endpoint.getType()))
+				.options(endpoint.getOptionsMap())
 				.authorization(Authorization.builder()
 						.username(endpoint.getUser())
 						.password(endpoint.getPassword())
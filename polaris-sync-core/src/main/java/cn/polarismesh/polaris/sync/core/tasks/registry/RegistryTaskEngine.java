@@ -20,12 +20,17 @@ package cn.polarismesh.polaris.sync.core.tasks.registry;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
+import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
+import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
 import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
+import cn.polarismesh.polaris.sync.core.tasks.KeyedEventDispatcher;
 import cn.polarismesh.polaris.sync.core.tasks.NamedResourceCenter;
-import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
 import cn.polarismesh.polaris.sync.core.utils.ConfigUtils;
+import cn.polarismesh.polaris.sync.core.utils.DurationUtils;
 import cn.polarismesh.polaris.sync.extension.InitRequest;
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
@@ -42,40 +47,78 @@ public class RegistryTaskEngine extends AbstractTaskEngine<RegistryCenter, Regis
 
 	protected final Map<RegistryProto.RegistryEndpoint.RegistryType, Class<? extends RegistryCenter>> registryTypeMap = new HashMap<>();
 
+	// 拉取任务内按服务并发同步所用的线程池，每个任务的并发度由任务自身的 parallelism 限制
+	private final ExecutorService pullFanoutExecutor;
+
+	// watch 推送按服务串行、跨服务并行地同步到目标注册中心，同一服务只保留最新的推送
+	private final KeyedEventDispatcher eventDispatcher;
+
 	public RegistryTaskEngine(List<RegistryCenter> registries) {
 		super("registry");
 		for (RegistryCenter registry : registries) {
             typeClassMap.put(registry.getType(), registry.getClass());
         }
+		pullFanoutExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("registry-pull-fanout"));
+		eventDispatcher = new KeyedEventDispatcher(commonExecutor);
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		pullFanoutExecutor.shutdown();
 	}
 
+	@Override
+	protected RegistryCenter decorate(RegistryCenter center) {
+		// 同一个任务的 pull 和 watch 共享同一个 wrapper，从而共享锁以及已同步的实例指纹
+		return new RegistryCenterWrapper(center, this::getFullSyncInterval);
+	}
+
+	private long getFullSyncInterval() {
+		long fullSyncInterval = DefaultValues.DEFAULT_FULL_SYNC_INTERVAL_MS;
+		List<ModelProto.Method> methods = getMethods();
+		if (null != methods) {
+			for (ModelProto.Method method : methods) {
+				if (ModelProto.Method.MethodType.pull.equals(method.getType())) {
+					fullSyncInterval = DurationUtils.parseDurationMillis(
+							method.getFullSyncInterval(), DefaultValues.DEFAULT_FULL_SYNC_INTERVAL_MS);
+				}
+			}
+		}
+		return fullSyncInterval;
+	}
 
 	@Override
-	protected Runnable buildPullTask(NamedResourceCenter<RegistryCenter> source, NamedResourceCenter<RegistryCenter> dest, List<SyncTask.Match> matches) {
+	protected Runnable buildPullTask(NamedResourceCenter<RegistryCenter> source, NamedResourceCenter<RegistryCenter> dest, RegistrySyncTask task) {
 		return new PullTask(
 				new NamedRegistryCenter(source.getName(), source.getProductName(), source.getCenter()),
 				new NamedRegistryCenter(dest.getName(), dest.getProductName(), dest.getCenter()),
-				matches
+				task.getMatchList(),
+				pullFanoutExecutor,
+				task.getParallelism()
 		);
 	}
 
 	@Override
-	protected Runnable buildWatchTask(NamedResourceCenter<RegistryCenter> source, NamedResourceCenter<RegistryCenter> dest, SyncTask.Match match) {
+	protected Runnable buildWatchTask(NamedResourceCenter<RegistryCenter> source, NamedResourceCenter<RegistryCenter> dest,
+			WatchKey watchKey, ModelProto.Method method) {
 		return new WatchTask(
 				watchTasks,
 				new NamedRegistryCenter(source.getName(), source.getProductName(), source.getCenter()),
 				new NamedRegistryCenter(dest.getName(), dest.getProductName(), dest.getCenter()),
-				match,
-				commonExecutor,
-				watchExecutor
+				watchKey,
+				eventDispatcher,
+				watchExecutor,
+				method.getUseEventSnapshot(),
+				DurationUtils.parseDurationMillis(method.getDebounce(), 0)
 		);
 	}
 
 	@Override
-	protected Runnable buildUnWatchTask(NamedResourceCenter<RegistryCenter> center, SyncTask.Match match) {
+	protected Runnable buildUnWatchTask(NamedResourceCenter<RegistryCenter> center, WatchKey watchKey) {
 		return new UnwatchTask(
-				center.getCenter(),
-				match
+				new NamedRegistryCenter(center.getName(), center.getProductName(), center.getCenter()),
+				watchKey
 		);
 	}
 
@@ -17,26 +17,28 @@
 
 package cn.polarismesh.polaris.sync.core.tasks.registry;
 
+import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
 import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
-import cn.polarismesh.polaris.sync.extension.ResourceCenter;
-import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
-import cn.polarismesh.polaris.sync.registry.pb.RegistryProto;
 
 public class UnwatchTask implements Runnable {
 
-    private final RegistryCenter source;
+    private final NamedRegistryCenter source;
+
+    private final AbstractTaskEngine.WatchKey watchKey;
 
     private final Service service;
 
-    public UnwatchTask(RegistryCenter source, SyncTask.Match match) {
+    public UnwatchTask(NamedRegistryCenter source, AbstractTaskEngine.WatchKey watchKey) {
         this.source = source;
+        this.watchKey = watchKey;
+        SyncTask.Match match = watchKey.getMatch();
         this.service = new Service(match.getNamespace(), match.getName());
     }
 
     @Override
     public void run() {
-        this.source.unwatch(service);
+        this.source.getRegistry().unwatch(watchKey, service);
     }
 
     public Service getService() {
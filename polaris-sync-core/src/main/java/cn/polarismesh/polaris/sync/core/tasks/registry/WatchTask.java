@@ -17,16 +17,17 @@
 
 package cn.polarismesh.polaris.sync.core.tasks.registry;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
+import cn.polarismesh.polaris.sync.core.tasks.KeyedEventDispatcher;
 import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
+import cn.polarismesh.polaris.sync.core.utils.GroupFilterIndex;
 import cn.polarismesh.polaris.sync.core.utils.TaskUtils;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
@@ -49,36 +50,43 @@ public class WatchTask implements AbstractTask {
 
 	private final Service service;
 
-	private final Collection<ModelProto.Group> groups;
+	private final GroupFilterIndex groups;
 
-	private final Executor registerExecutor;
+	private final KeyedEventDispatcher eventDispatcher;
 
 	private final ScheduledExecutorService watchExecutor;
 
-	private final SyncTask.Match serviceWithSource;
+	private final AbstractTaskEngine.WatchKey serviceWithSource;
 
-	private final Map<SyncTask.Match, Future<?>> watchedServices;
+	private final Map<AbstractTaskEngine.WatchKey, Future<?>> watchedServices;
 
 	private final ResponseListener responseListener;
 
-	public WatchTask(Map<SyncTask.Match, Future<?>> watchedServices, NamedRegistryCenter source,
-			NamedRegistryCenter destination, SyncTask.Match match, Executor registerExecutor,
-			ScheduledExecutorService watchExecutor) {
+	private final boolean useEventSnapshot;
+
+	private final long debounceMilli;
+
+	public WatchTask(Map<AbstractTaskEngine.WatchKey, Future<?>> watchedServices, NamedRegistryCenter source,
+			NamedRegistryCenter destination, AbstractTaskEngine.WatchKey watchKey, KeyedEventDispatcher eventDispatcher,
+			ScheduledExecutorService watchExecutor, boolean useEventSnapshot, long debounceMilli) {
 		this.watchedServices = watchedServices;
 		this.source = source;
 		this.destination = destination;
+		SyncTask.Match match = watchKey.getMatch();
 		this.service = new Service(match.getNamespace(), match.getName());
-		this.groups = TaskUtils.verifyGroups(match.getGroups());
-		this.registerExecutor = registerExecutor;
+		this.groups = new GroupFilterIndex(TaskUtils.verifyGroups(match.getGroups()));
+		this.eventDispatcher = eventDispatcher;
 		this.watchExecutor = watchExecutor;
-		this.serviceWithSource = match;
+		this.serviceWithSource = watchKey;
+		this.useEventSnapshot = useEventSnapshot;
+		this.debounceMilli = debounceMilli;
 		responseListener = new ResponseListener();
 	}
 
 
 	@Override
 	public void run() {
-		if (source.getRegistry().watch(service, responseListener)) {
+		if (source.getRegistry().watch(serviceWithSource, service, responseListener)) {
 			LOG.info("[LOG] success to watch for service {}", serviceWithSource);
 			return;
 		}
@@ -95,23 +103,39 @@ public class WatchTask implements AbstractTask {
 
 		@Override
 		public void onEvent(WatchEvent watchEvent) {
-			registerExecutor.execute(() -> {
-				// diff by groups
-				for (ModelProto.Group group : groups) {
-					onNotify(group);
-				}
-			});
+			if (useEventSnapshot && watchEvent.isSnapshot()) {
+				// 推送中已经携带全量实例，直接按分组划分后同步，无需再次拉取
+				eventDispatcher.dispatch(serviceWithSource,
+						() -> onSnapshot(watchEvent.getResponse().getInstancesList()), debounceMilli);
+				return;
+			}
+			eventDispatcher.dispatch(serviceWithSource, this::onNotify, debounceMilli);
+		}
+
+		private void onSnapshot(List<Instance> allInstances) {
+			Map<ModelProto.Group, List<Instance>> groupInstances = groups.partition(allInstances);
+			for (Map.Entry<ModelProto.Group, List<Instance>> entry : groupInstances.entrySet()) {
+				onNotify(entry.getKey(), entry.getValue());
+			}
 		}
 
-		private void onNotify(ModelProto.Group group) {
+		private void onNotify() {
 			try {
-				DiscoverResponse discoverResponse = source.getRegistry().listInstances(service, group);
+				// 只拉取一次全量实例，再在本地按分组划分
+				DiscoverResponse discoverResponse = source.getRegistry().listInstances(service, TaskUtils.ALL_INSTANCES_GROUP);
 				if (discoverResponse.getCode().getValue() != StatusCodes.SUCCESS) {
-					LOG.warn("[Core][Watch] fail to list service in source {}, group {}, code is {}",
-							source.getName(), group.getName(), discoverResponse.getCode().getValue());
+					LOG.warn("[Core][Watch] fail to list service in source {}, service {}, code is {}",
+							source.getName(), service, discoverResponse.getCode().getValue());
 					return;
 				}
-				List<Instance> instances = discoverResponse.getInstancesList();
+				onSnapshot(discoverResponse.getInstancesList());
+			} catch (Throwable ex) {
+				LOG.info("[Core][Watch] real notify fail", ex);
+			}
+		}
+
+		private void onNotify(ModelProto.Group group, List<Instance> instances) {
+			try {
 				Service service = handle(source, destination, WatchTask.this.service);
 				Service finalService = service;
 				instances = instances.stream().map(instance -> {
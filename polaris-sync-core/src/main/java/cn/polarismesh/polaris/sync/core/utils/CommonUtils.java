@@ -23,6 +23,7 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.zip.CRC32;
@@ -113,7 +114,30 @@ public class CommonUtils {
 		if (CollectionUtils.isEmpty(newMethods)) {
 			return !CollectionUtils.isEmpty(oldMethods);
 		}
-		return !(oldMethods.size() == newMethods.size());
+		return methodChanged(oldMethods, newMethods, ModelProto.Method.MethodType.pull) ||
+				methodChanged(oldMethods, newMethods, ModelProto.Method.MethodType.watch);
+	}
+
+	/**
+	 * compare the enabled method of the type, concurrency is excluded because it only resizes the shared scheduler
+	 *
+	 * @return true if the method of the type should be rescheduled
+	 */
+	public static boolean methodChanged(List<ModelProto.Method> oldMethods, List<ModelProto.Method> newMethods,
+			ModelProto.Method.MethodType type) {
+		return !Objects.equals(findMethod(oldMethods, type), findMethod(newMethods, type));
+	}
+
+	private static ModelProto.Method findMethod(List<ModelProto.Method> methods, ModelProto.Method.MethodType type) {
+		if (CollectionUtils.isEmpty(methods)) {
+			return null;
+		}
+		for (ModelProto.Method method : methods) {
+			if (method.getEnable() && type.equals(method.getType())) {
+				return method.toBuilder().clearConcurrency().build();
+			}
+		}
+		return null;
 	}
 
 	public static long calcCrc32(byte[] strBytes) {
@@ -0,0 +1,107 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
+import cn.polarismesh.polaris.sync.model.pb.ModelProto;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+
+/**
+ * 分组过滤索引，将同一个服务下各分组的 metadata 过滤条件预先编译，
+ * 一次性把服务的全量实例划分到各个分组中，避免为每个分组重复拉取实例。
+ *
+ * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
+ */
+public class GroupFilterIndex {
+
+	private final List<ModelProto.Group> groups;
+
+	// 无过滤条件的分组，匹配所有实例
+	private final List<Integer> matchAllGroups = new ArrayList<>();
+
+	// 以分组的第一个过滤条件作为索引键：key -> value -> 候选分组
+	private final Map<String, Map<String, List<Integer>>> pivotIndex = new HashMap<>();
+
+	public GroupFilterIndex(Collection<ModelProto.Group> groups) {
+		this.groups = new ArrayList<>(groups);
+		for (int i = 0; i < this.groups.size(); i++) {
+			Map<String, String> filters = this.groups.get(i).getMetadataMap();
+			if (filters.isEmpty()) {
+				matchAllGroups.add(i);
+				continue;
+			}
+			Map.Entry<String, String> pivot = filters.entrySet().iterator().next();
+			pivotIndex.computeIfAbsent(pivot.getKey(), k -> new HashMap<>())
+					.computeIfAbsent(pivot.getValue(), v -> new ArrayList<>()).add(i);
+		}
+	}
+
+	public List<ModelProto.Group> getGroups() {
+		return Collections.unmodifiableList(groups);
+	}
+
+	/**
+	 * partition instances into groups, every group is present in the result even if no instance matched
+	 *
+	 * @param instances all instances of the service
+	 * @return group to matched instances, in the order of groups
+	 */
+	public Map<ModelProto.Group, List<Instance>> partition(List<Instance> instances) {
+		List<List<Instance>> buckets = new ArrayList<>(groups.size());
+		for (int i = 0; i < groups.size(); i++) {
+			buckets.add(new ArrayList<>());
+		}
+		for (Instance instance : instances) {
+			for (Integer idx : matchAllGroups) {
+				buckets.get(idx).add(instance);
+			}
+			if (pivotIndex.isEmpty()) {
+				continue;
+			}
+			Map<String, String> metadata = instance.getMetadataMap();
+			for (Map.Entry<String, Map<String, List<Integer>>> entry : pivotIndex.entrySet()) {
+				String value = metadata.get(entry.getKey());
+				if (null == value) {
+					continue;
+				}
+				List<Integer> candidates = entry.getValue().get(value);
+				if (null == candidates) {
+					continue;
+				}
+				for (Integer idx : candidates) {
+					if (CommonUtils.matchMetadata(metadata, groups.get(idx).getMetadataMap())) {
+						buckets.get(idx).add(instance);
+					}
+				}
+			}
+		}
+		Map<ModelProto.Group, List<Instance>> result = new LinkedHashMap<>();
+		for (int i = 0; i < groups.size(); i++) {
+			result.put(groups.get(i), buckets.get(i));
+		}
+		return result;
+	}
+}
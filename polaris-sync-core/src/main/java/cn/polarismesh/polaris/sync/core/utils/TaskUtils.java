@@ -29,6 +29,9 @@ import com.tencent.polaris.client.pb.ServiceProto.Instance;
 
 public class TaskUtils {
 
+	// 拉取服务全量实例时使用的分组，不带任何 metadata 过滤条件
+	public static final ModelProto.Group ALL_INSTANCES_GROUP =
+			ModelProto.Group.newBuilder().setName(DefaultValues.GROUP_NAME_DEFAULT).build();
 
 	public static List<Instance> filterInstances(ModelProto.Group group, List<Instance> instances) {
 		Map<String, String> filters = group.getMetadataMap();
@@ -38,12 +41,34 @@ public class TaskUtils {
 			boolean matched = CommonUtils.matchMetadata(metadataMap, filters);
 			if (matched) {
 				outInstances.add(instance);
-				break;
 			}
 		}
 		return outInstances;
 	}
 
+	/**
+	 * 计算实例列表的指纹，与实例顺序无关
+	 *
+	 * @param instances instances
+	 * @return fingerprint
+	 */
+	public static long fingerprint(Collection<Instance> instances) {
+		long sum = 0;
+		long xor = 0;
+		for (Instance instance : instances) {
+			long hash = mix64(instance.hashCode());
+			sum += hash;
+			xor ^= hash;
+		}
+		return mix64(sum ^ Long.rotateLeft(xor, 32)) + instances.size();
+	}
+
+	private static long mix64(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+
 	public static Collection<ModelProto.Group> verifyGroups(Collection<ModelProto.Group> groups) {
 		boolean hasDefault = false;
 		for (ModelProto.Group group : groups) {
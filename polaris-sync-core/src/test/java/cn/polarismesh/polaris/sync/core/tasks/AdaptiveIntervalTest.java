@@ -0,0 +1,89 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveIntervalTest {
+
+	private final StubTask task = new StubTask();
+
+	@Test
+	public void backoffWhenUnchanged() {
+		AdaptiveInterval interval = new AdaptiveInterval(task, 1000, 8000);
+		assertAround(2000, interval.nextInterval());
+		assertAround(4000, interval.nextInterval());
+		assertAround(8000, interval.nextInterval());
+		assertAround(8000, interval.nextInterval());
+	}
+
+	@Test
+	public void resetOnChange() {
+		AdaptiveInterval interval = new AdaptiveInterval(task, 1000, 8000);
+		interval.nextInterval();
+		interval.nextInterval();
+		task.changed = true;
+		assertAround(1000, interval.nextInterval());
+		task.changed = false;
+		assertAround(2000, interval.nextInterval());
+	}
+
+	@Test
+	public void resetOnFailure() {
+		AdaptiveInterval interval = new AdaptiveInterval(task, 1000, 8000);
+		interval.nextInterval();
+		interval.nextInterval();
+		// 失败时无法判断源端是否变化，不能继续退避
+		task.failed = true;
+		assertAround(1000, interval.nextInterval());
+		assertAround(1000, interval.nextInterval());
+		task.failed = false;
+		assertAround(2000, interval.nextInterval());
+	}
+
+	@Test
+	public void maxNotBelowMin() {
+		AdaptiveInterval interval = new AdaptiveInterval(task, 1000, 500);
+		assertAround(1000, interval.nextInterval());
+		assertAround(1000, interval.nextInterval());
+	}
+
+	private static void assertAround(long expected, long actual) {
+		Assert.assertTrue("expected about " + expected + " but was " + actual,
+				Math.abs(actual - expected) <= expected / 10);
+	}
+
+	private static class StubTask implements AdaptiveInterval.ChangeAwareTask {
+
+		private boolean changed;
+
+		private boolean failed;
+
+		@Override
+		public boolean isChangedInLastRun() {
+			return changed;
+		}
+
+		@Override
+		public boolean isFailedInLastRun() {
+			return failed;
+		}
+	}
+}
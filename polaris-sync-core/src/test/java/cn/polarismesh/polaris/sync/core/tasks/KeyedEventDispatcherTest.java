@@ -0,0 +1,153 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyedEventDispatcherTest {
+
+	private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+
+	private final KeyedEventDispatcher dispatcher = new KeyedEventDispatcher(executor);
+
+	private final List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void keepLatestPendingEvent() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		dispatcher.dispatch("svc", () -> {
+			running.countDown();
+			await(release);
+			handled.add(1);
+		}, 0);
+		Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+		for (int i = 2; i <= 4; i++) {
+			int value = i;
+			dispatcher.dispatch("svc", () -> handled.add(value), 0);
+		}
+		release.countDown();
+		waitFor(() -> dispatcher.getPendingKeys() == 0);
+		// 执行期间到达的事件只保留最新的一个
+		Assert.assertEquals(Arrays.asList(1, 4), handled);
+		Assert.assertEquals(4, dispatcher.getDispatchedCount());
+		Assert.assertEquals(2, dispatcher.getCoalescedCount());
+	}
+
+	@Test
+	public void sameKeyRunsSerially() {
+		AtomicInteger running = new AtomicInteger(0);
+		AtomicInteger maxRunning = new AtomicInteger(0);
+		AtomicInteger runCount = new AtomicInteger(0);
+		for (int i = 0; i < 20; i++) {
+			dispatcher.dispatch("svc", () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(5);
+				running.decrementAndGet();
+				runCount.incrementAndGet();
+			}, 0);
+			sleep(2);
+		}
+		waitFor(() -> dispatcher.getPendingKeys() == 0);
+		Assert.assertEquals(1, maxRunning.get());
+		Assert.assertTrue(runCount.get() >= 2);
+	}
+
+	@Test
+	public void keysRunInParallel() {
+		CountDownLatch arrived = new CountDownLatch(2);
+		for (int i = 1; i <= 2; i++) {
+			int value = i;
+			dispatcher.dispatch("svc-" + i, () -> {
+				arrived.countDown();
+				if (await(arrived)) {
+					handled.add(value);
+				}
+			}, 0);
+		}
+		waitFor(() -> handled.size() == 2);
+	}
+
+	@Test
+	public void debounceCoalescesBurst() {
+		for (int i = 1; i <= 3; i++) {
+			int value = i;
+			dispatcher.dispatch("svc", () -> handled.add(value), 100);
+		}
+		waitFor(() -> dispatcher.getPendingKeys() == 0);
+		Assert.assertEquals(Collections.singletonList(3), handled);
+	}
+
+	@Test
+	public void failedEventNotBlockKey() {
+		dispatcher.dispatch("svc", () -> {
+			throw new IllegalStateException("test");
+		}, 0);
+		waitFor(() -> dispatcher.getPendingKeys() == 0);
+		dispatcher.dispatch("svc", () -> handled.add(1), 0);
+		waitFor(() -> handled.size() == 1);
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() >= deadline) {
+				Assert.fail("condition not met in 5000ms");
+			}
+			sleep(10);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
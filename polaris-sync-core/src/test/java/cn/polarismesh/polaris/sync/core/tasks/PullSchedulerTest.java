@@ -0,0 +1,232 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PullSchedulerTest {
+
+	private PullScheduler scheduler;
+
+	@After
+	public void tearDown() {
+		if (null != scheduler) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void laneNeverOverlaps() {
+		scheduler = new PullScheduler("test", 4);
+		AtomicInteger running = new AtomicInteger(0);
+		AtomicInteger maxRunning = new AtomicInteger(0);
+		AtomicInteger runCount = new AtomicInteger(0);
+		scheduler.schedule("lane", () -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(20);
+			running.decrementAndGet();
+			runCount.incrementAndGet();
+		}, 1);
+		waitFor(() -> runCount.get() >= 5);
+		Assert.assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void lanesRunInParallel() {
+		scheduler = new PullScheduler("test", 2);
+		CountDownLatch arrived = new CountDownLatch(2);
+		AtomicInteger metCount = new AtomicInteger(0);
+		Runnable task = () -> {
+			arrived.countDown();
+			try {
+				// 两条 lane 同时在执行时才能相遇
+				if (arrived.await(5, TimeUnit.SECONDS)) {
+					metCount.incrementAndGet();
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		scheduler.schedule("lane-1", task, 60 * 1000);
+		scheduler.schedule("lane-2", task, 60 * 1000);
+		waitFor(() -> metCount.get() == 2);
+	}
+
+	@Test
+	public void statsCountOverrun() {
+		scheduler = new PullScheduler("test", 1);
+		AtomicInteger runCount = new AtomicInteger(0);
+		scheduler.schedule("lane", () -> {
+			sleep(20);
+			runCount.incrementAndGet();
+		}, 5);
+		waitFor(() -> runCount.get() >= 2);
+		PullScheduler.Stats stats = scheduler.stats();
+		Assert.assertEquals(1, stats.getLanes());
+		Assert.assertEquals(1, stats.getConcurrency());
+		Assert.assertTrue(stats.getCompletedCount() >= 1);
+		Assert.assertTrue(stats.getOverrunCount() >= 1);
+	}
+
+	@Test
+	public void intervalPolicyDecidesNextDelay() {
+		scheduler = new PullScheduler("test", 1);
+		AtomicInteger policyCount = new AtomicInteger(0);
+		AtomicInteger runCount = new AtomicInteger(0);
+		PullScheduler.Lane lane = scheduler.schedule("lane", runCount::incrementAndGet,
+				() -> policyCount.incrementAndGet() < 3 ? 1 : 60 * 1000);
+		waitFor(() -> runCount.get() >= 2);
+		waitFor(() -> lane.getIntervalMilli() == 60 * 1000);
+		sleep(100);
+		// 间隔变长后不再执行
+		Assert.assertEquals(2, runCount.get());
+	}
+
+	@Test
+	public void rescheduleReplacesLane() {
+		scheduler = new PullScheduler("test", 2);
+		AtomicInteger oldCount = new AtomicInteger(0);
+		AtomicInteger newCount = new AtomicInteger(0);
+		scheduler.schedule("lane", oldCount::incrementAndGet, 1);
+		waitFor(() -> oldCount.get() >= 2);
+		scheduler.schedule("lane", newCount::incrementAndGet, 1);
+		waitFor(() -> newCount.get() >= 2);
+		assertStopped(oldCount);
+		Assert.assertEquals(1, scheduler.stats().getLanes());
+	}
+
+	@Test
+	public void rescheduleWaitsForRunningPull() {
+		scheduler = new PullScheduler("test", 4);
+		OverlapTracker tracker = new OverlapTracker();
+		scheduler.schedule("lane", tracker, 1);
+		waitFor(() -> tracker.running.get() == 1);
+		// 重新加载时上一次拉取仍在执行
+		scheduler.schedule("lane", tracker, 1);
+		waitFor(() -> tracker.runCount.get() >= 3);
+		Assert.assertEquals(1, tracker.maxRunning.get());
+	}
+
+	@Test
+	public void cancelThenScheduleWaitsForRunningPull() {
+		scheduler = new PullScheduler("test", 4);
+		OverlapTracker tracker = new OverlapTracker();
+		PullScheduler.Lane lane = scheduler.schedule("lane", tracker, 1);
+		waitFor(() -> tracker.running.get() == 1);
+		lane.cancel();
+		scheduler.schedule("lane", tracker, 1);
+		waitFor(() -> tracker.runCount.get() >= 3);
+		Assert.assertEquals(1, tracker.maxRunning.get());
+	}
+
+	@Test
+	public void statsNotResetByRead() {
+		scheduler = new PullScheduler("test", 1);
+		AtomicInteger runCount = new AtomicInteger(0);
+		Runnable task = () -> {
+			sleep(50);
+			runCount.incrementAndGet();
+		};
+		// 只有一个 worker，第二条 lane 需要排队
+		scheduler.schedule("lane-1", task, 60 * 1000);
+		scheduler.schedule("lane-2", task, 60 * 1000);
+		waitFor(() -> runCount.get() == 2);
+		long maxQueueWait = scheduler.stats().getMaxQueueWaitMillis();
+		Assert.assertTrue(maxQueueWait > 0);
+		Assert.assertEquals(maxQueueWait, scheduler.stats().getMaxQueueWaitMillis());
+	}
+
+	@Test
+	public void cancelStopsLane() {
+		scheduler = new PullScheduler("test", 2);
+		AtomicInteger runCount = new AtomicInteger(0);
+		PullScheduler.Lane lane = scheduler.schedule("lane", runCount::incrementAndGet, 1);
+		waitFor(() -> runCount.get() >= 2);
+		lane.cancel();
+		assertStopped(runCount);
+		Assert.assertEquals(0, scheduler.stats().getLanes());
+	}
+
+	@Test
+	public void resize() {
+		scheduler = new PullScheduler("test", 1);
+		scheduler.resize(4);
+		Assert.assertEquals(4, scheduler.stats().getConcurrency());
+		scheduler.resize(2);
+		Assert.assertEquals(2, scheduler.stats().getConcurrency());
+		scheduler.resize(0);
+		Assert.assertEquals(2, scheduler.stats().getConcurrency());
+	}
+
+	private static class OverlapTracker implements Runnable {
+
+		private final AtomicInteger running = new AtomicInteger(0);
+
+		private final AtomicInteger maxRunning = new AtomicInteger(0);
+
+		private final AtomicInteger runCount = new AtomicInteger(0);
+
+		@Override
+		public void run() {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			long deadline = System.currentTimeMillis() + 100;
+			// 取消时会中断执行线程，这里模拟不响应中断的拉取
+			while (System.currentTimeMillis() < deadline) {
+				Thread.yield();
+			}
+			running.decrementAndGet();
+			runCount.incrementAndGet();
+		}
+	}
+
+	private static void assertStopped(AtomicInteger runCount) {
+		// 等待已经开始的一轮执行结束
+		sleep(50);
+		int stoppedCount = runCount.get();
+		sleep(100);
+		Assert.assertEquals(stoppedCount, runCount.get());
+	}
+
+	private static void waitFor(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() >= deadline) {
+				Assert.fail("condition not met in 5000ms");
+			}
+			sleep(10);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.tasks;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.polarismesh.polaris.sync.extension.Authorization;
+import cn.polarismesh.polaris.sync.extension.Health;
+import cn.polarismesh.polaris.sync.extension.InitRequest;
+import cn.polarismesh.polaris.sync.extension.ResourceCenter;
+import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceCenterRegistryTest {
+
+	private final ResourceCenterRegistry<TestCenter> registry = new ResourceCenterRegistry<>();
+
+	private final AtomicInteger createCount = new AtomicInteger(0);
+
+	@Test
+	public void sharedByEqualEndpoints() {
+		TestCenter first = registry.acquire(ResourceCenterRegistry.Key.ofSource(endpoint("nacos")), this::create);
+		TestCenter second = registry.acquire(ResourceCenterRegistry.Key.ofSource(endpoint("nacos")), this::create);
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, createCount.get());
+		Assert.assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void notSharedAcrossEndpointNames() {
+		// 连接信息相同但接入点名称不同，插件按名称识别同步来源，不能共享
+		TestCenter first = registry.acquire(ResourceCenterRegistry.Key.ofSource(endpoint("nacos-1")), this::create);
+		TestCenter second = registry.acquire(ResourceCenterRegistry.Key.ofSource(endpoint("nacos-2")), this::create);
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(2, registry.size());
+	}
+
+	@Test
+	public void destroyedByLastRelease() {
+		ResourceCenterRegistry.Key key = ResourceCenterRegistry.Key.ofSource(endpoint("nacos"));
+		TestCenter center = registry.acquire(key, this::create);
+		registry.acquire(key, this::create);
+		registry.release(key);
+		Assert.assertEquals(0, center.destroyCount.get());
+		registry.release(key);
+		Assert.assertEquals(1, center.destroyCount.get());
+		Assert.assertEquals(0, registry.size());
+		// 重复释放直接忽略
+		registry.release(key);
+		Assert.assertEquals(1, center.destroyCount.get());
+	}
+
+	@Test
+	public void failedCreationNotRegistered() {
+		ResourceCenterRegistry.Key key = ResourceCenterRegistry.Key.ofSource(endpoint("nacos"));
+		Assert.assertNull(registry.acquire(key, () -> null));
+		Assert.assertEquals(0, registry.size());
+		Assert.assertNotNull(registry.acquire(key, this::create));
+		Assert.assertEquals(1, createCount.get());
+	}
+
+	@Test
+	public void destinationKeyIncludesSource() {
+		ResourceEndpoint destination = endpoint("polaris");
+		ResourceCenterRegistry.Key fromFirst = ResourceCenterRegistry.Key.ofDestination(endpoint("source-1"),
+				destination);
+		ResourceCenterRegistry.Key fromSecond = ResourceCenterRegistry.Key.ofDestination(endpoint("source-2"),
+				destination);
+		Assert.assertNotEquals(fromFirst, fromSecond);
+		Assert.assertNotEquals(ResourceCenterRegistry.Key.ofSource(destination), fromFirst);
+		Assert.assertEquals(fromFirst, ResourceCenterRegistry.Key.ofDestination(endpoint("source-1"), destination));
+	}
+
+	private TestCenter create() {
+		createCount.incrementAndGet();
+		return new TestCenter();
+	}
+
+	private static ResourceEndpoint endpoint(String name) {
+		return ResourceEndpoint.builder()
+				.name(name)
+				.resourceType(ResourceType.NACOS)
+				.addresses(Collections.singletonList("127.0.0.1:8848"))
+				.authorization(Authorization.builder().username("nacos").password("nacos").build())
+				.options(Collections.emptyMap())
+				.build();
+	}
+
+	private static class TestCenter implements ResourceCenter<InitRequest> {
+
+		private final AtomicInteger destroyCount = new AtomicInteger(0);
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public ResourceType getType() {
+			return ResourceType.NACOS;
+		}
+
+		@Override
+		public void init(InitRequest request) {
+
+		}
+
+		@Override
+		public void destroy() {
+			destroyCount.incrementAndGet();
+		}
+
+		@Override
+		public Health healthCheck() {
+			return new Health(0, 0);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.tasks.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.polarismesh.polaris.sync.core.tasks.AbstractTaskEngine;
+import cn.polarismesh.polaris.sync.core.tasks.SyncTask;
+import cn.polarismesh.polaris.sync.extension.Health;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
+import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
+import cn.polarismesh.polaris.sync.extension.registry.Service;
+import cn.polarismesh.polaris.sync.extension.registry.WatchEvent;
+import cn.polarismesh.polaris.sync.model.pb.ModelProto;
+import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegistryCenterWrapperTest {
+
+	private final Service service = new Service("default", "svc");
+
+	private final TestRegistryCenter plugin = new TestRegistryCenter();
+
+	private final RegistryCenterWrapper wrapper = new RegistryCenterWrapper(plugin);
+
+	@Test
+	public void sharedWatchFansOutToAllTasks() {
+		List<WatchEvent> first = new ArrayList<>();
+		List<WatchEvent> second = new ArrayList<>();
+		Assert.assertTrue(wrapper.watch(watchKey("task-1"), service, first::add));
+		Assert.assertTrue(wrapper.watch(watchKey("task-2"), service, second::add));
+		Assert.assertEquals(1, plugin.watchCount);
+		// 后加入的任务立即收到一次非快照事件，触发拉取当前实例
+		Assert.assertEquals(1, second.size());
+		Assert.assertFalse(second.get(0).isSnapshot());
+
+		WatchEvent event = new WatchEvent(DiscoverResponse.getDefaultInstance(), true);
+		plugin.listeners.get(service).onEvent(event);
+		Assert.assertSame(event, first.get(0));
+		Assert.assertSame(event, second.get(1));
+	}
+
+	@Test
+	public void unwatchedByLastTask() {
+		List<WatchEvent> first = new ArrayList<>();
+		List<WatchEvent> second = new ArrayList<>();
+		wrapper.watch(watchKey("task-1"), service, first::add);
+		wrapper.watch(watchKey("task-2"), service, second::add);
+
+		wrapper.unwatch(watchKey("task-1"), service);
+		Assert.assertEquals(0, plugin.unwatchCount);
+		WatchEvent event = new WatchEvent(DiscoverResponse.getDefaultInstance(), true);
+		plugin.listeners.get(service).onEvent(event);
+		Assert.assertTrue(first.isEmpty());
+		Assert.assertSame(event, second.get(second.size() - 1));
+
+		// 重复取消直接忽略
+		wrapper.unwatch(watchKey("task-1"), service);
+		Assert.assertEquals(0, plugin.unwatchCount);
+		wrapper.unwatch(watchKey("task-2"), service);
+		Assert.assertEquals(1, plugin.unwatchCount);
+
+		// 全部取消后重新监听，插件重新注册监听器
+		wrapper.watch(watchKey("task-1"), service, first::add);
+		Assert.assertEquals(2, plugin.watchCount);
+	}
+
+	@Test
+	public void failedWatchNotRecorded() {
+		plugin.watchResult = false;
+		Assert.assertFalse(wrapper.watch(watchKey("task-1"), service, event -> {
+		}));
+		plugin.watchResult = true;
+		Assert.assertTrue(wrapper.watch(watchKey("task-1"), service, event -> {
+		}));
+		Assert.assertEquals(2, plugin.watchCount);
+	}
+
+	private static AbstractTaskEngine.WatchKey watchKey(String taskName) {
+		SyncTask.Match match = new SyncTask.Match();
+		match.setNamespace("default");
+		match.setName("svc");
+		return new AbstractTaskEngine.WatchKey(taskName, match);
+	}
+
+	// 和插件一样，每个服务只保留一个监听器
+	private static class TestRegistryCenter implements RegistryCenter {
+
+		private final Map<Service, ResponseListener> listeners = new HashMap<>();
+
+		private boolean watchResult = true;
+
+		private int watchCount;
+
+		private int unwatchCount;
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public ResourceType getType() {
+			return ResourceType.NACOS;
+		}
+
+		@Override
+		public void init(RegistryInitRequest request) {
+
+		}
+
+		@Override
+		public void destroy() {
+
+		}
+
+		@Override
+		public Health healthCheck() {
+			return new Health(0, 0);
+		}
+
+		@Override
+		public DiscoverResponse listNamespaces() {
+			return DiscoverResponse.getDefaultInstance();
+		}
+
+		@Override
+		public DiscoverResponse listServices(String namespace) {
+			return DiscoverResponse.getDefaultInstance();
+		}
+
+		@Override
+		public DiscoverResponse listInstances(Service service, ModelProto.Group group) {
+			return DiscoverResponse.getDefaultInstance();
+		}
+
+		@Override
+		public boolean watch(Service service, ResponseListener eventListener) {
+			watchCount++;
+			if (watchResult) {
+				listeners.put(service, eventListener);
+			}
+			return watchResult;
+		}
+
+		@Override
+		public void unwatch(Service service) {
+			unwatchCount++;
+			listeners.remove(service);
+		}
+
+		@Override
+		public void updateServices(Collection<Service> services) {
+
+		}
+
+		@Override
+		public void updateGroups(Service service, Collection<ModelProto.Group> groups) {
+
+		}
+
+		@Override
+		public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+			return true;
+		}
+	}
+}
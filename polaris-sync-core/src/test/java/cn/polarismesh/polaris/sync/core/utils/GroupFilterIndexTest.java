@@ -0,0 +1,84 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import cn.polarismesh.polaris.sync.model.pb.ModelProto;
+import com.google.protobuf.StringValue;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupFilterIndexTest {
+
+	private static final ModelProto.Group ALL = group("all");
+
+	private static final ModelProto.Group PROD = group("prod", "env", "prod");
+
+	private static final ModelProto.Group PROD_ZONE_A = group("prod-a", "env", "prod", "zone", "a");
+
+	private static final ModelProto.Group V1 = group("v1", "version", "v1");
+
+	private static final ModelProto.Group GRAY = group("gray", "env", "gray");
+
+	@Test
+	public void partitionByMetadata() {
+		Instance prodA = instance("1", "env", "prod", "zone", "a");
+		Instance prodB = instance("2", "env", "prod", "zone", "b", "version", "v1");
+		Instance test = instance("3", "env", "test");
+		Instance plain = instance("4");
+		GroupFilterIndex index = new GroupFilterIndex(Arrays.asList(ALL, PROD, PROD_ZONE_A, V1, GRAY));
+		Map<ModelProto.Group, List<Instance>> result = index.partition(Arrays.asList(prodA, prodB, test, plain));
+
+		// 结果按分组的顺序排列，没有实例匹配的分组也会保留
+		Assert.assertEquals(Arrays.asList(ALL, PROD, PROD_ZONE_A, V1, GRAY), new ArrayList<>(result.keySet()));
+		Assert.assertEquals(Arrays.asList(prodA, prodB, test, plain), result.get(ALL));
+		Assert.assertEquals(Arrays.asList(prodA, prodB), result.get(PROD));
+		Assert.assertEquals(Collections.singletonList(prodA), result.get(PROD_ZONE_A));
+		Assert.assertEquals(Collections.singletonList(prodB), result.get(V1));
+		Assert.assertEquals(Collections.emptyList(), result.get(GRAY));
+	}
+
+	@Test
+	public void partitionWithoutGroups() {
+		GroupFilterIndex index = new GroupFilterIndex(Collections.emptyList());
+		Assert.assertTrue(index.partition(Collections.singletonList(instance("1"))).isEmpty());
+	}
+
+	private static ModelProto.Group group(String name, String... metadata) {
+		ModelProto.Group.Builder builder = ModelProto.Group.newBuilder().setName(name);
+		for (int i = 0; i < metadata.length; i += 2) {
+			builder.putMetadata(metadata[i], metadata[i + 1]);
+		}
+		return builder.build();
+	}
+
+	private static Instance instance(String id, String... metadata) {
+		Instance.Builder builder = Instance.newBuilder().setId(StringValue.newBuilder().setValue(id).build());
+		for (int i = 0; i < metadata.length; i += 2) {
+			builder.putMetadata(metadata[i], metadata[i + 1]);
+		}
+		return builder.build();
+	}
+}
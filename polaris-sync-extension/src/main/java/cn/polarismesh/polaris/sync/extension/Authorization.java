@@ -1,5 +1,7 @@
 package cn.polarismesh.polaris.sync.extension;
 
+import java.util.Objects;
+
 /**
  * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
  */
@@ -23,6 +25,25 @@ public class Authorization {
 		return token;
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Authorization)) {
+			return false;
+		}
+		Authorization that = (Authorization) o;
+		return Objects.equals(username, that.username) &&
+				Objects.equals(password, that.password) &&
+				Objects.equals(token, that.token);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(username, password, token);
+	}
+
 	@Override
 	public String toString() {
 		return "Authorization{" +
@@ -1,5 +1,7 @@
 package cn.polarismesh.polaris.sync.extension;
 
+import java.util.Objects;
+
 /**
  * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
  */
@@ -35,6 +37,24 @@ public class Database {
 		this.password = password;
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Database)) {
+			return false;
+		}
+		Database database = (Database) o;
+		return Objects.equals(jdbcUrl, database.jdbcUrl) &&
+				Objects.equals(username, database.username) &&
+				Objects.equals(password, database.password);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(jdbcUrl, username, password);
+	}
 
 	public static DatabaseBuilder builder() {
 		return new DatabaseBuilder();
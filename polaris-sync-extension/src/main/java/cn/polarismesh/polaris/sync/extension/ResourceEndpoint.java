@@ -1,6 +1,8 @@
 package cn.polarismesh.polaris.sync.extension;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:liaochuntao@live.com">liaochuntao</a>
@@ -19,6 +21,7 @@ public class ResourceEndpoint {
 
 	private Database database;
 
+	private Map<String, String> options;
 
 	public String getName() {
 		return name;
@@ -44,6 +47,22 @@ public class ResourceEndpoint {
 		return database;
 	}
 
+	public Map<String, String> getOptions() {
+		return null == options ? Collections.emptyMap() : options;
+	}
+
+	public long getLongOption(String key, long defaultValue) {
+		String value = getOptions().get(key);
+		if (null == value || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
 	public static ResourceEndpointBuilder builder() {
 		return new ResourceEndpointBuilder();
 	}
@@ -56,6 +75,7 @@ public class ResourceEndpoint {
 		private List<String> addresses;
 		private Authorization authorization;
 		private Database database;
+		private Map<String, String> options;
 
 		private ResourceEndpointBuilder() {
 		}
@@ -90,6 +110,11 @@ public class ResourceEndpoint {
 			return this;
 		}
 
+		public ResourceEndpointBuilder options(Map<String, String> options) {
+			this.options = options;
+			return this;
+		}
+
 		public ResourceEndpoint build() {
 			ResourceEndpoint resourceEndpoint = new ResourceEndpoint();
 			resourceEndpoint.addresses = this.addresses;
@@ -98,6 +123,7 @@ public class ResourceEndpoint {
 			resourceEndpoint.authorization = this.authorization;
 			resourceEndpoint.database = this.database;
 			resourceEndpoint.productName = this.productName;
+			resourceEndpoint.options = this.options;
 			return resourceEndpoint;
 		}
 	}
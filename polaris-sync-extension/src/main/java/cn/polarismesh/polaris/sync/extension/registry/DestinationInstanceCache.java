@@ -0,0 +1,124 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.extension.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 目标注册中心的实例缓存，写操作成功后直接更新缓存（write-through），写失败时失效，
+ * 超过对账周期后需要重新从目标注册中心读取。
+ *
+ * @param <K> cache key, such as service or service group
+ * @param <V> instance type of the destination registry
+ */
+public class DestinationInstanceCache<K, V> {
+
+    public static final String OPTION_RECONCILE_INTERVAL = "cache_reconcile_interval_ms";
+
+    public static final long DEFAULT_RECONCILE_INTERVAL_MS = 60 * 1000;
+
+    private final long reconcileIntervalMilli;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Map<K, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    public DestinationInstanceCache(long reconcileIntervalMilli) {
+        this.reconcileIntervalMilli = reconcileIntervalMilli;
+    }
+
+    /**
+     * get the lock to hold while reading the cache, diffing and writing the destination for the key.
+     * 同一服务的各分组共用一份目标实例缓存，比较和写入需要串行，避免互相覆盖。
+     */
+    public ReentrantLock getLock(K key) {
+        return locks.computeIfAbsent(key, k -> new ReentrantLock());
+    }
+
+    /**
+     * get the cached instances
+     *
+     * @param key cache key
+     * @return instances, null if not cached or need to reconcile with the destination
+     */
+    public List<V> get(K key) {
+        if (reconcileIntervalMilli <= 0) {
+            return null;
+        }
+        Entry<V> entry = entries.get(key);
+        if (null == entry || System.currentTimeMillis() - entry.loadTime >= reconcileIntervalMilli) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.instances;
+    }
+
+    /**
+     * put the instances read from the destination
+     */
+    public void load(K key, Collection<V> instances) {
+        entries.put(key, new Entry<>(instances, System.currentTimeMillis()));
+    }
+
+    /**
+     * update the instances after successful writes, keep the load time so the reconciliation still happens
+     */
+    public void writeThrough(K key, Collection<V> instances) {
+        entries.computeIfPresent(key, (k, entry) -> new Entry<>(instances, entry.loadTime));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static class Entry<V> {
+
+        private final List<V> instances;
+
+        private final long loadTime;
+
+        Entry(Collection<V> instances, long loadTime) {
+            this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+            this.loadTime = loadTime;
+        }
+    }
+}
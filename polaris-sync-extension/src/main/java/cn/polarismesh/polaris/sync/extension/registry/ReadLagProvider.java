@@ -0,0 +1,34 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.extension.registry;
+
+import java.util.Map;
+
+/**
+ * 注册中心的读请求可能由 follower 返回，能够统计读落后程度的插件实现该接口，供运维接口查询。
+ */
+public interface ReadLagProvider {
+
+    /**
+     * read lag behind the leader
+     *
+     * @return lag stats keyed by datacenter or server
+     */
+    Map<String, ?> getReadLag();
+}
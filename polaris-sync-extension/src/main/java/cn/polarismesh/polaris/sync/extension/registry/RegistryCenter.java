@@ -84,8 +84,9 @@ public interface RegistryCenter extends ResourceCenter<RegistryInitRequest> {
      * @param service service instances
      * @param group service group
      * @param instances service instances
+     * @return true if the instances are all applied to the destination
      */
-    void updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances);
+    boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances);
 
     /**
      * listener to watch the instance change events
@@ -23,11 +23,23 @@ public class WatchEvent {
 
     private final DiscoverResponse response;
 
+    // response 中是否携带了服务的全量实例快照
+    private final boolean snapshot;
+
     public WatchEvent(DiscoverResponse response) {
+        this(response, false);
+    }
+
+    public WatchEvent(DiscoverResponse response, boolean snapshot) {
         this.response = response;
+        this.snapshot = snapshot;
     }
 
     public DiscoverResponse getResponse() {
         return response;
     }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.extension.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DestinationInstanceCacheTest {
+
+    @Test
+    public void loadThenHit() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(60 * 1000);
+        Assert.assertNull(cache.get("svc"));
+        cache.load("svc", Arrays.asList("1.1.1.1:80", "1.1.1.2:80"));
+        Assert.assertEquals(Arrays.asList("1.1.1.1:80", "1.1.1.2:80"), cache.get("svc"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void writeThroughUpdatesLoadedEntry() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(60 * 1000);
+        cache.load("svc", Collections.singletonList("1.1.1.1:80"));
+        cache.writeThrough("svc", Collections.singletonList("1.1.1.2:80"));
+        Assert.assertEquals(Collections.singletonList("1.1.1.2:80"), cache.get("svc"));
+        // 没有从目标端读取过的 key 不缓存写入结果
+        cache.writeThrough("other", Collections.singletonList("1.1.1.3:80"));
+        Assert.assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void cachedInstancesAreImmutableCopy() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(60 * 1000);
+        List<String> instances = new ArrayList<>(Collections.singletonList("1.1.1.1:80"));
+        cache.load("svc", instances);
+        instances.add("1.1.1.2:80");
+        List<String> cached = cache.get("svc");
+        Assert.assertEquals(Collections.singletonList("1.1.1.1:80"), cached);
+        try {
+            cached.add("1.1.1.3:80");
+            Assert.fail("cached instances should be immutable");
+        } catch (UnsupportedOperationException ignore) {
+        }
+    }
+
+    @Test
+    public void invalidateForcesReload() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(60 * 1000);
+        cache.load("svc", Collections.singletonList("1.1.1.1:80"));
+        cache.invalidate("svc");
+        Assert.assertNull(cache.get("svc"));
+    }
+
+    @Test
+    public void reconcileAfterInterval() throws Exception {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(20);
+        cache.load("svc", Collections.singletonList("1.1.1.1:80"));
+        Thread.sleep(30);
+        // 超过对账周期，即使有写入也需要重新读取
+        cache.writeThrough("svc", Collections.singletonList("1.1.1.2:80"));
+        Assert.assertNull(cache.get("svc"));
+    }
+
+    @Test
+    public void disabledWithoutInterval() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(0);
+        cache.load("svc", Collections.singletonList("1.1.1.1:80"));
+        Assert.assertNull(cache.get("svc"));
+    }
+
+    @Test
+    public void lockPerKey() {
+        DestinationInstanceCache<String, String> cache = new DestinationInstanceCache<>(60 * 1000);
+        Assert.assertSame(cache.getLock("svc"), cache.getLock("svc"));
+        Assert.assertNotSame(cache.getLock("svc"), cache.getLock("other"));
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import cn.polarismesh.polaris.sync.common.rest.AddressBalancer;
+import cn.polarismesh.polaris.sync.common.rest.JsonCodec;
+import cn.polarismesh.polaris.sync.common.rest.RestOperator;
+import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
+import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
+import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
+import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.catalog.CatalogServiceRequest;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * 通过 Consul 的 /v1/txn 接口批量写入目录注册信息。
+ * 同步的实例全部注册在当前同步源对应的外部节点上，节点和实例都带有 __sync__ 标签，
+ * 单个事务的操作数受服务端限制（默认 64），超出时按限制拆分成多个事务依次提交。
+ */
+public class ConsulCatalogWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConsulCatalogWriter.class);
+
+    public static final String OPTION_TXN_MAX_OPS = "consul_txn_max_ops";
+
+    public static final int DEFAULT_TXN_MAX_OPS = 64;
+
+    private static final String TXN_ENDPOINT = "/v1/txn";
+
+    private static final String NODE_PREFIX = "polaris-sync-";
+
+    // 外部节点没有 agent，地址只作为占位
+    private static final String NODE_ADDRESS = "127.0.0.1";
+
+    // Consul 对服务元数据的限制
+    private static final Pattern META_KEY_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]+$");
+
+    private static final int MAX_META_PAIRS = 64;
+
+    private static final int MAX_META_KEY_LENGTH = 128;
+
+    private static final int MAX_META_VALUE_LENGTH = 512;
+
+    private final ConsulClientPool clientPool;
+
+    private final ResourceEndpoint endpoint;
+
+    private final String sourceName;
+
+    private final String datacenter;
+
+    private final String nodeName;
+
+    private final int maxOps;
+
+    private volatile boolean nodeRegistered;
+
+    public ConsulCatalogWriter(ConsulClientPool clientPool, ResourceEndpoint endpoint, String sourceName,
+            String datacenter) {
+        this.clientPool = clientPool;
+        this.endpoint = endpoint;
+        this.sourceName = sourceName;
+        this.datacenter = datacenter;
+        this.nodeName = NODE_PREFIX + sourceName;
+        // 每个事务至少要容纳节点注册和一个服务操作
+        this.maxOps = (int) Math.max(2, endpoint.getLongOption(OPTION_TXN_MAX_OPS, DEFAULT_TXN_MAX_OPS));
+    }
+
+    /**
+     * read the registrations of the service synced by the current source
+     */
+    public List<Registration> read(String service) throws ConsulException {
+        String address = RestOperator.pickAddress(endpoint.getServerAddresses());
+        CatalogServiceRequest.Builder builder = CatalogServiceRequest.newBuilder().setDatacenter(datacenter);
+        if (StringUtils.hasText(endpoint.getAuthorization().getToken())) {
+            builder.setToken(endpoint.getAuthorization().getToken());
+        }
+        Response<List<CatalogService>> response;
+        AddressBalancer.Call call = AddressBalancer.shared().begin(address);
+        try {
+            response = clientPool.getClient(address).getCatalogService(service, builder.build());
+            call.end(true);
+        } catch (ConsulException e) {
+            call.end(false);
+            throw e;
+        }
+        List<Registration> registrations = new ArrayList<>();
+        for (CatalogService catalogService : response.getValue()) {
+            if (!nodeName.equals(catalogService.getNode())) {
+                continue;
+            }
+            Map<String, String> meta = CommonUtils.defaultMap(catalogService.getServiceMeta());
+            if (!CommonUtils.isSyncedByCurrentSource(meta, sourceName)) {
+                continue;
+            }
+            registrations.add(new Registration(catalogService.getServiceId(), service,
+                    catalogService.getServiceAddress(), catalogService.getServicePort(), meta));
+        }
+        return registrations;
+    }
+
+    public Registration toRegistration(String service, Instance instance) {
+        String host = instance.getHost().getValue();
+        int port = instance.getPort().getValue();
+        Map<String, String> meta = new HashMap<>();
+        for (Map.Entry<String, String> entry : instance.getMetadataMap().entrySet()) {
+            if (meta.size() >= MAX_META_PAIRS - 1) {
+                break;
+            }
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (!StringUtils.hasText(value) || key.length() > MAX_META_KEY_LENGTH
+                    || value.length() > MAX_META_VALUE_LENGTH || !META_KEY_PATTERN.matcher(key).matches()) {
+                // Consul 不接受的元数据直接忽略
+                continue;
+            }
+            meta.put(key, value);
+        }
+        meta.put(DefaultValues.META_SYNC, sourceName);
+        return new Registration(service + "-" + host + "-" + port, service, host, port, meta);
+    }
+
+    /**
+     * commit the changed registrations of the service, the operations are split by the txn limit
+     *
+     * @return false if any of the transactions failed
+     */
+    public boolean write(String service, Collection<Registration> toSet, Collection<Registration> toDelete) {
+        boolean withNode = !nodeRegistered;
+        for (List<Map<String, Object>> txn : buildTxns(toSet, toDelete, withNode)) {
+            if (!commit(service, txn)) {
+                return false;
+            }
+            if (withNode) {
+                nodeRegistered = true;
+                withNode = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * build the txn operations, the node registration goes first, then split by the txn limit
+     */
+    List<List<Map<String, Object>>> buildTxns(Collection<Registration> toSet, Collection<Registration> toDelete,
+            boolean withNode) {
+        List<Map<String, Object>> ops = new ArrayList<>();
+        if (withNode) {
+            ops.add(buildNodeOp());
+        }
+        for (Registration registration : toSet) {
+            ops.add(buildServiceOp("set", registration));
+        }
+        for (Registration registration : toDelete) {
+            ops.add(buildServiceOp("delete", registration));
+        }
+        List<List<Map<String, Object>>> txns = new ArrayList<>();
+        for (int i = 0; i < ops.size(); i += maxOps) {
+            txns.add(ops.subList(i, Math.min(ops.size(), i + maxOps)));
+        }
+        return txns;
+    }
+
+    private boolean commit(String service, List<Map<String, Object>> ops) {
+        String registryName = endpoint.getName();
+        String content;
+        try {
+            content = JsonCodec.encode(ops);
+        } catch (IOException e) {
+            LOG.error("[Consul] fail to encode txn ops for service {}, registry {}", service, registryName, e);
+            return false;
+        }
+        String address = RestOperator.pickAddress(endpoint.getServerAddresses());
+        List<UrlParameters> parameters = new ArrayList<>();
+        parameters.add(new SingleUrlParameters("dc", datacenter));
+        if (StringUtils.hasText(endpoint.getAuthorization().getToken())) {
+            parameters.add(new SingleUrlParameters("token", endpoint.getAuthorization().getToken()));
+        }
+        HttpResponse response;
+        AddressBalancer.Call call = AddressBalancer.shared().begin(address);
+        try {
+            response = clientPool.getRawClient(address).makePutRequest(TXN_ENDPOINT, content,
+                    parameters.toArray(new UrlParameters[0]));
+        } catch (ConsulException e) {
+            call.end(false);
+            LOG.error("[Consul] server error to commit txn for service {}, registry {}, address {}",
+                    service, registryName, address, e);
+            return false;
+        }
+        call.end(response.getStatusCode() < 500);
+        if (response.getStatusCode() != 200) {
+            // 409 表示事务中有操作失败，整个事务已经回滚
+            LOG.error("[Consul] fail to commit txn for service {}, registry {}, address {}, code {}, response {}",
+                    service, registryName, address, response.getStatusCode(), response.getContent());
+            nodeRegistered = false;
+            return false;
+        }
+        return true;
+    }
+
+    private Map<String, Object> buildNodeOp() {
+        Map<String, String> nodeMeta = new HashMap<>();
+        nodeMeta.put("external-node", "true");
+        nodeMeta.put("external-probe", "false");
+        nodeMeta.put(DefaultValues.META_SYNC, sourceName);
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("Node", nodeName);
+        node.put("Address", NODE_ADDRESS);
+        node.put("Meta", nodeMeta);
+        Map<String, Object> op = new LinkedHashMap<>();
+        op.put("Verb", "set");
+        op.put("Node", node);
+        Map<String, Object> wrapper = new HashMap<>();
+        wrapper.put("Node", op);
+        return wrapper;
+    }
+
+    private Map<String, Object> buildServiceOp(String verb, Registration registration) {
+        Map<String, Object> service = new LinkedHashMap<>();
+        service.put("ID", registration.getId());
+        if ("set".equals(verb)) {
+            service.put("Service", registration.getName());
+            service.put("Address", registration.getAddress());
+            service.put("Port", registration.getPort());
+            service.put("Meta", registration.getMeta());
+        }
+        Map<String, Object> op = new LinkedHashMap<>();
+        op.put("Verb", verb);
+        op.put("Node", nodeName);
+        op.put("Service", service);
+        Map<String, Object> wrapper = new HashMap<>();
+        wrapper.put("Service", op);
+        return wrapper;
+    }
+
+    /**
+     * service registration on the synced node
+     */
+    public static class Registration {
+
+        private final String id;
+
+        private final String name;
+
+        private final String address;
+
+        private final int port;
+
+        private final Map<String, String> meta;
+
+        public Registration(String id, String name, String address, Integer port, Map<String, String> meta) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.port = null == port ? 0 : port;
+            this.meta = meta;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public Map<String, String> getMeta() {
+            return meta;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Registration)) {
+                return false;
+            }
+            Registration that = (Registration) o;
+            return port == that.port && Objects.equals(id, that.id) && Objects.equals(name, that.name)
+                    && Objects.equals(address, that.address) && Objects.equals(meta, that.meta);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name, address, port, meta);
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import cn.polarismesh.polaris.sync.common.rest.HostAndPort;
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个 Consul 地址对应一个长期存在的 ConsulClient，所有地址共享同一个连接池。
+ * 阻塞查询会长时间占用连接，连接数需要按照并发的阻塞查询数量配置。
+ */
+public class ConsulClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConsulClientPool.class);
+
+    public static final String OPTION_MAX_CONNECTIONS = "consul_max_connections";
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    private static final int CONNECT_TIMEOUT_MS = 10 * 1000;
+
+    // 读超时需要大于阻塞查询的最大等待时间（默认 5 分钟）
+    private static final int READ_TIMEOUT_MS = 10 * 60 * 1000;
+
+    private static final long IDLE_TIMEOUT_MS = 60 * 1000;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final boolean agentCache;
+
+    private final Map<String, ConsulRawClient> rawClients = new ConcurrentHashMap<>();
+
+    private final Map<String, ConsulClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConnections max connections shared by all addresses
+     * @param agentCache read the service list and the health instances from the agent cache
+     */
+    public ConsulClientPool(int maxConnections, boolean agentCache) {
+        this.agentCache = agentCache;
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                .setConnectionRequestTimeout(CONNECT_TIMEOUT_MS)
+                .setSocketTimeout(READ_TIMEOUT_MS)
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public ConsulClient getClient(String address) {
+        return clients.computeIfAbsent(address, addr -> new ConsulClient(getRawClient(addr)));
+    }
+
+    /**
+     * raw client for the endpoints not wrapped by ConsulClient, such as /v1/txn
+     */
+    public ConsulRawClient getRawClient(String address) {
+        return rawClients.computeIfAbsent(address, addr -> {
+            HostAndPort hostAndPort = HostAndPort.build(addr, ConsulRawClient.DEFAULT_PORT);
+            if (agentCache) {
+                return new AgentCachedRawClient(httpClient, hostAndPort.getHost(), hostAndPort.getPort());
+            }
+            return ConsulRawClient.Builder.builder()
+                    .setHost(hostAndPort.getHost())
+                    .setPort(hostAndPort.getPort())
+                    .setHttpClient(httpClient)
+                    .build();
+        });
+    }
+
+    public void close() {
+        clients.clear();
+        rawClients.clear();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LOG.error("[Consul] fail to close consul http client", e);
+        }
+    }
+
+    /**
+     * consul-api 不支持 agent 缓存参数，在服务列表和健康实例查询上追加 cached 参数，
+     * 由 agent 在后台维持阻塞查询并直接返回缓存结果，其他请求不受影响。
+     */
+    private static class AgentCachedRawClient extends ConsulRawClient {
+
+        private static final String[] CACHED_PATHS = {"/v1/catalog/services", "/v1/health/service/"};
+
+        AgentCachedRawClient(HttpClient httpClient, String host, int port) {
+            super(httpClient, host, port, ConsulRawClient.DEFAULT_PATH);
+        }
+
+        @Override
+        public HttpResponse makeGetRequest(String endpoint, List<UrlParameters> urlParams) {
+            for (String cachedPath : CACHED_PATHS) {
+                if (endpoint.startsWith(cachedPath)) {
+                    List<UrlParameters> values = new ArrayList<>(urlParams);
+                    values.add(new SingleUrlParameters("cached"));
+                    return super.makeGetRequest(endpoint, values);
+                }
+            }
+            return super.makeGetRequest(endpoint, urlParams);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按数据中心统计读请求落后于 leader 的程度，数据来自响应头 X-Consul-LastContact 和 X-Consul-KnownLeader。
+ */
+public class ConsulReadLag {
+
+    private static final double LAG_DECAY = 0.3;
+
+    private final Map<String, LagStat> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param lastContactMilli time since the server last contacted the leader, null if not returned
+     * @param knownLeader whether the server knows the leader, null if not returned
+     */
+    public void record(String datacenter, Long lastContactMilli, Boolean knownLeader) {
+        getStat(datacenter).onRead(null == lastContactMilli ? 0 : lastContactMilli, Boolean.FALSE.equals(knownLeader));
+    }
+
+    public void onStaleRetry(String datacenter) {
+        getStat(datacenter).onStaleRetry();
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LagStat> entry : stats.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return values;
+    }
+
+    private LagStat getStat(String datacenter) {
+        return stats.computeIfAbsent(datacenter, dc -> new LagStat());
+    }
+
+    private static class LagStat {
+
+        private long readCount;
+
+        private long staleRetryCount;
+
+        private long unknownLeaderCount;
+
+        private long lastContactMilli;
+
+        private long maxLastContactMilli;
+
+        private double lastContactEwma;
+
+        synchronized void onRead(long lastContact, boolean unknownLeader) {
+            readCount++;
+            if (unknownLeader) {
+                unknownLeaderCount++;
+            }
+            lastContactMilli = lastContact;
+            maxLastContactMilli = Math.max(maxLastContactMilli, lastContact);
+            lastContactEwma = readCount == 1 ? lastContact
+                    : lastContactEwma + LAG_DECAY * (lastContact - lastContactEwma);
+        }
+
+        synchronized void onStaleRetry() {
+            staleRetryCount++;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(readCount, staleRetryCount, unknownLeaderCount, lastContactMilli,
+                    maxLastContactMilli, (long) lastContactEwma);
+        }
+    }
+
+    public static class Snapshot {
+
+        private final long readCount;
+
+        private final long staleRetryCount;
+
+        private final long unknownLeaderCount;
+
+        private final long lastContactMilli;
+
+        private final long maxLastContactMilli;
+
+        private final long avgLastContactMilli;
+
+        Snapshot(long readCount, long staleRetryCount, long unknownLeaderCount, long lastContactMilli,
+                long maxLastContactMilli, long avgLastContactMilli) {
+            this.readCount = readCount;
+            this.staleRetryCount = staleRetryCount;
+            this.unknownLeaderCount = unknownLeaderCount;
+            this.lastContactMilli = lastContactMilli;
+            this.maxLastContactMilli = maxLastContactMilli;
+            this.avgLastContactMilli = avgLastContactMilli;
+        }
+
+        public long getReadCount() {
+            return readCount;
+        }
+
+        public long getStaleRetryCount() {
+            return staleRetryCount;
+        }
+
+        public long getUnknownLeaderCount() {
+            return unknownLeaderCount;
+        }
+
+        public long getLastContactMilli() {
+            return lastContactMilli;
+        }
+
+        public long getMaxLastContactMilli() {
+            return maxLastContactMilli;
+        }
+
+        public long getAvgLastContactMilli() {
+            return avgLastContactMilli;
+        }
+    }
+}
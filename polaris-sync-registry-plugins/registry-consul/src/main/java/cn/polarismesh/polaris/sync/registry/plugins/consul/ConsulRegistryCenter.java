@@ -18,11 +18,16 @@
 package cn.polarismesh.polaris.sync.registry.plugins.consul;
 
 import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
+import cn.polarismesh.polaris.sync.common.rest.AddressBalancer;
 import cn.polarismesh.polaris.sync.common.rest.HostAndPort;
+import cn.polarismesh.polaris.sync.common.rest.JsonCodec;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
+import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
 import cn.polarismesh.polaris.sync.extension.registry.AbstractRegistryCenter;
+import cn.polarismesh.polaris.sync.extension.registry.DestinationInstanceCache;
+import cn.polarismesh.polaris.sync.extension.registry.ReadLagProvider;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
 import cn.polarismesh.polaris.sync.extension.registry.WatchEvent;
@@ -30,9 +35,14 @@ import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
 import cn.polarismesh.polaris.sync.extension.utils.ResponseUtils;
 import cn.polarismesh.polaris.sync.extension.utils.StatusCodes;
 import cn.polarismesh.polaris.sync.model.pb.ModelProto;
+import cn.polarismesh.polaris.sync.registry.plugins.consul.ConsulCatalogWriter.Registration;
+import cn.polarismesh.polaris.sync.registry.plugins.consul.HealthStateDigest.CheckState;
 import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.v1.ConsistencyMode;
 import com.ecwid.consul.v1.ConsulClient;
-import com.ecwid.consul.v1.ConsulRawClient;
 import com.ecwid.consul.v1.OperationException;
 import com.ecwid.consul.v1.QueryParams;
 import com.ecwid.consul.v1.Response;
@@ -45,18 +55,28 @@ import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse.DiscoverResp
 import com.tencent.polaris.client.pb.ServiceProto;
 import com.tencent.polaris.client.pb.ServiceProto.Instance;
 import com.tencent.polaris.client.pb.ServiceProto.Namespace;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -64,19 +84,89 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 @Component
-public class ConsulRegistryCenter extends AbstractRegistryCenter {
+public class ConsulRegistryCenter extends AbstractRegistryCenter implements ReadLagProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConsulRegistryCenter.class);
 
-    private ResourceEndpoint registryEndpoint;
+    /**
+     * 监听模式下并发查询服务健康实例的线程数
+     */
+    public static final String OPTION_WATCH_PARALLELISM = "consul_watch_parallelism";
+
+    /**
+     * 全量核对全部监听服务的间隔。服务的增删和健康检查的变化通过阻塞查询及时发现，
+     * 全量核对只用于兜底没有健康检查的实例变化
+     */
+    public static final String OPTION_WATCH_RESYNC_INTERVAL = "consul_watch_resync_interval_ms";
+
+    /**
+     * 读请求的一致性模式：default、stale 或者 consistent
+     */
+    public static final String OPTION_CONSISTENCY = "consul_consistency";
+
+    /**
+     * stale 模式下允许落后 leader 的最长时间，超过时改为默认一致性重新读取，0 表示不限制
+     */
+    public static final String OPTION_MAX_STALE = "consul_max_stale_ms";
+
+    /**
+     * 服务列表和健康实例从 agent 缓存读取，需要配置的地址是 agent 而不是 server
+     */
+    public static final String OPTION_AGENT_CACHE = "consul_agent_cache";
+
+    /**
+     * 逗号分隔的数据中心列表，读取时并行查询并合并结果，写入第一个数据中心
+     */
+    public static final String OPTION_DATACENTERS = "consul_datacenters";
 
-    private final ExecutorService longPullExecutor =
-            Executors.newCachedThreadPool(new NamedThreadFactory("consul-pull-worker"));
+    private static final String DEFAULT_DATACENTER = "dc1";
 
-    private final Map<Service, LongPullContext> watchedServices = new HashMap<>();
+    private static final int DEFAULT_WATCH_PARALLELISM = 4;
+
+    private static final long DEFAULT_WATCH_RESYNC_INTERVAL_MS = 5 * 60 * 1000;
+
+    private static final long WATCH_WAIT_SECONDS = 30;
+
+    private static final String HEALTH_STATE_ENDPOINT = "/v1/health/state/any";
+
+    // 两次核对之间的最小间隔，目录频繁变化时避免持续查询
+    private static final long MIN_WATCH_SWEEP_INTERVAL_MS = 1000;
+
+    private ResourceEndpoint registryEndpoint;
+
+    private final Map<Service, WatchContext> watchedServices = new HashMap<>();
 
     private final Object lock = new Object();
 
+    private final AtomicBoolean destroyed = new AtomicBoolean(false);
+
+    private ConsulClientPool clientPool;
+
+    private ExecutorService catalogWatchExecutor;
+
+    private ExecutorService healthQueryExecutor;
+
+    private ExecutorService datacenterQueryExecutor;
+
+    private boolean catalogWatchStarted;
+
+    // 各数据中心最近一次目录查询得到的服务及其标签
+    private final Map<String, Map<String, List<String>>> catalogServices = new ConcurrentHashMap<>();
+
+    private long watchResyncIntervalMilli;
+
+    private List<String> datacenters;
+
+    private ConsistencyMode consistencyMode;
+
+    private long maxStaleMilli;
+
+    private final ConsulReadLag readLag = new ConsulReadLag();
+
+    private ConsulCatalogWriter catalogWriter;
+
+    private DestinationInstanceCache<Service, Registration> instanceCache;
+
     @Override
     public String getName() {
         return getType().name();
@@ -90,11 +180,85 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
     @Override
     public void init(RegistryInitRequest request) {
         registryEndpoint = request.getResourceEndpoint();
+        Map<String, String> options = registryEndpoint.getOptions();
+        datacenters = parseDatacenters(options.get(OPTION_DATACENTERS));
+        consistencyMode = parseConsistencyMode(options.get(OPTION_CONSISTENCY));
+        maxStaleMilli = registryEndpoint.getLongOption(OPTION_MAX_STALE, 0);
+        boolean agentCache = Boolean.parseBoolean(options.get(OPTION_AGENT_CACHE));
+        clientPool = new ConsulClientPool((int) registryEndpoint.getLongOption(
+                ConsulClientPool.OPTION_MAX_CONNECTIONS, ConsulClientPool.DEFAULT_MAX_CONNECTIONS), agentCache);
+        // 每个数据中心一个目录阻塞查询和一个健康检查阻塞查询
+        catalogWatchExecutor = Executors.newFixedThreadPool(datacenters.size() * 2,
+                new NamedThreadFactory("consul-catalog-watch"));
+        healthQueryExecutor = Executors.newFixedThreadPool((int) Math.max(1, registryEndpoint.getLongOption(
+                OPTION_WATCH_PARALLELISM, DEFAULT_WATCH_PARALLELISM)), new NamedThreadFactory("consul-health-worker"));
+        watchResyncIntervalMilli = Math.max(MIN_WATCH_SWEEP_INTERVAL_MS, registryEndpoint.getLongOption(
+                OPTION_WATCH_RESYNC_INTERVAL, DEFAULT_WATCH_RESYNC_INTERVAL_MS));
+        if (datacenters.size() > 1) {
+            datacenterQueryExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("consul-dc-query"));
+        }
+        catalogWriter = new ConsulCatalogWriter(clientPool, registryEndpoint, request.getSourceName(),
+                datacenters.get(0));
+        instanceCache = new DestinationInstanceCache<>(registryEndpoint.getLongOption(
+                DestinationInstanceCache.OPTION_RECONCILE_INTERVAL,
+                DestinationInstanceCache.DEFAULT_RECONCILE_INTERVAL_MS));
     }
 
     @Override
     public void destroy() {
+        destroyed.set(true);
+        synchronized (lock) {
+            watchedServices.clear();
+        }
+        if (null != catalogWatchExecutor) {
+            catalogWatchExecutor.shutdownNow();
+            healthQueryExecutor.shutdownNow();
+        }
+        if (null != datacenterQueryExecutor) {
+            datacenterQueryExecutor.shutdownNow();
+        }
+        catalogServices.clear();
+        if (null != instanceCache) {
+            instanceCache.clear();
+        }
+        if (null != clientPool) {
+            clientPool.close();
+        }
+    }
+
+    private static List<String> parseDatacenters(String value) {
+        List<String> values = new ArrayList<>();
+        if (StringUtils.hasText(value)) {
+            for (String datacenter : value.split(",")) {
+                if (StringUtils.hasText(datacenter) && !values.contains(datacenter.trim())) {
+                    values.add(datacenter.trim());
+                }
+            }
+        }
+        if (values.isEmpty()) {
+            values.add(DEFAULT_DATACENTER);
+        }
+        return values;
+    }
+
+    private static ConsistencyMode parseConsistencyMode(String value) {
+        if (!StringUtils.hasText(value)) {
+            return ConsistencyMode.DEFAULT;
+        }
+        try {
+            return ConsistencyMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("[Consul] unknown consistency mode {}, use default", value);
+            return ConsistencyMode.DEFAULT;
+        }
+    }
 
+    /**
+     * read lag of each datacenter behind the leader
+     */
+    @Override
+    public Map<String, ConsulReadLag.Snapshot> getReadLag() {
+        return readLag.snapshot();
     }
 
     @Override
@@ -108,13 +272,15 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
     @Override
     public DiscoverResponse listServices(String namespace) {
         String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
-        ConsulClient consulClient = getConsulClient(address);
-        Response<Map<String, List<String>>> catalogServices;
+        List<Response<Map<String, List<String>>>> catalogServices;
         Service service = new Service(namespace, "");
         String registryName = registryEndpoint.getName();
+        AddressBalancer.Call call = AddressBalancer.shared().begin(address);
         try {
-            catalogServices = consulClient.getCatalogServices(buildCatalogServicesRequest());
+            catalogServices = queryDatacenters(datacenter -> getCatalogServices(address, datacenter, 0, 0));
+            call.end(true);
         } catch (ConsulException e) {
+            call.end(isClientError(e));
             if (e instanceof OperationException) {
                 LOG.error("[Consul] text error to listInstances by registry {}, address {}",
                         registryName, address, e);
@@ -131,55 +297,141 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
         }
         DiscoverResponse.Builder builder = ResponseUtils
                 .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.SERVICES);
-        Map<String, List<String>> values = catalogServices.getValue();
-        for (Map.Entry<String, List<String>> value : values.entrySet()) {
-            for (String svcName : value.getValue()) {
-                ServiceProto.Service.Builder svcBuilder = ServiceProto.Service.newBuilder();
-                svcBuilder.setNamespace(ResponseUtils.toStringValue(namespace));
-                svcBuilder.setName(ResponseUtils.toStringValue(svcName));
-                builder.addServices(svcBuilder.build());
-            }
+        // 多个数据中心存在同名服务时合并为一个服务
+        Set<String> svcNames = new LinkedHashSet<>();
+        for (Response<Map<String, List<String>>> response : catalogServices) {
+            svcNames.addAll(response.getValue().keySet());
+        }
+        for (String svcName : svcNames) {
+            ServiceProto.Service.Builder svcBuilder = ServiceProto.Service.newBuilder();
+            svcBuilder.setNamespace(ResponseUtils.toStringValue(namespace));
+            svcBuilder.setName(ResponseUtils.toStringValue(svcName));
+            builder.addServices(svcBuilder.build());
         }
         return builder.build();
     }
 
-    private CatalogServicesRequest buildCatalogServicesRequest() {
+    /**
+     * query all the datacenters, in parallel if there are more than one
+     *
+     * @throws ConsulException if any of the datacenters failed, partial results are not returned
+     */
+    private <T> List<Response<T>> queryDatacenters(Function<String, Response<T>> query) {
+        if (datacenters.size() == 1) {
+            return Collections.singletonList(query.apply(datacenters.get(0)));
+        }
+        List<CompletableFuture<Response<T>>> futures = new ArrayList<>();
+        for (String datacenter : datacenters) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(datacenter), datacenterQueryExecutor));
+        }
+        List<Response<T>> responses = new ArrayList<>();
+        try {
+            for (CompletableFuture<Response<T>> future : futures) {
+                responses.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConsulException) {
+                throw (ConsulException) e.getCause();
+            }
+            throw e;
+        }
+        return responses;
+    }
+
+    private Response<Map<String, List<String>>> getCatalogServices(String address, String datacenter, long index,
+            long waitSeconds) {
+        ConsulClient consulClient = getConsulClient(address);
+        Response<Map<String, List<String>>> response = consulClient.getCatalogServices(
+                buildCatalogServicesRequest(datacenter, consistencyMode, index, waitSeconds));
+        if (isTooStale(datacenter, response)) {
+            response = consulClient.getCatalogServices(
+                    buildCatalogServicesRequest(datacenter, ConsistencyMode.DEFAULT, 0, 0));
+            recordLag(datacenter, response);
+        }
+        return response;
+    }
+
+    private Response<List<HealthService>> getHealthServices(String address, String datacenter, String service) {
+        ConsulClient consulClient = getConsulClient(address);
+        Response<List<HealthService>> response = consulClient.getHealthServices(
+                service, buildHealthServiceRequest(datacenter, consistencyMode));
+        if (isTooStale(datacenter, response)) {
+            response = consulClient.getHealthServices(
+                    service, buildHealthServiceRequest(datacenter, ConsistencyMode.DEFAULT));
+            recordLag(datacenter, response);
+        }
+        return response;
+    }
+
+    private void recordLag(String datacenter, Response<?> response) {
+        readLag.record(datacenter, response.getConsulLastContact(), response.isConsulKnownLeader());
+    }
+
+    /**
+     * record the read lag, and check whether the stale read exceeds the max stale bound
+     */
+    private boolean isTooStale(String datacenter, Response<?> response) {
+        recordLag(datacenter, response);
+        if (consistencyMode != ConsistencyMode.STALE || maxStaleMilli <= 0) {
+            return false;
+        }
+        Long lastContact = response.getConsulLastContact();
+        if (null == lastContact || lastContact <= maxStaleMilli) {
+            return false;
+        }
+        readLag.onStaleRetry(datacenter);
+        LOG.warn("[Consul] stale read lags {}ms behind the leader in datacenter {}, registry {}, retry on leader",
+                lastContact, datacenter, registryEndpoint.getName());
+        return true;
+    }
+
+    private CatalogServicesRequest buildCatalogServicesRequest(String datacenter, ConsistencyMode mode, long index,
+            long waitSeconds) {
         CatalogServicesRequest.Builder builder = CatalogServicesRequest.newBuilder();
-        builder.setDatacenter("dc1");
+        builder.setDatacenter(datacenter);
         if (StringUtils.hasText(registryEndpoint.getAuthorization().getToken())) {
             builder.setToken(registryEndpoint.getAuthorization().getToken());
         }
+        QueryParams.Builder paramBuilder = QueryParams.Builder.builder().setConsistencyMode(mode);
+        if (index > 0) {
+            paramBuilder.setIndex(index).setWaitTime(waitSeconds);
+        }
+        builder.setQueryParams(paramBuilder.build());
         return builder.build();
     }
 
+    private static boolean isClientError(ConsulException e) {
+        return e instanceof OperationException && ((OperationException) e).getStatusCode() < 500;
+    }
+
     private ConsulClient getConsulClient(String address) {
-        HostAndPort hostAndPort = HostAndPort.build(address, ConsulRawClient.DEFAULT_PORT);
-        return new ConsulClient(hostAndPort.getHost(), hostAndPort.getPort());
+        return clientPool.getClient(address);
     }
 
-    private HealthServicesRequest buildHealthServiceRequest(long index) {
+    private HealthServicesRequest buildHealthServiceRequest(String datacenter, ConsistencyMode mode) {
         Builder builder = HealthServicesRequest.newBuilder();
-        builder.setDatacenter("dc1").setPassing(true);
+        builder.setDatacenter(datacenter).setPassing(true);
         if (StringUtils.hasText(registryEndpoint.getAuthorization().getToken())) {
             builder.setToken(registryEndpoint.getAuthorization().getToken());
         }
-        QueryParams.Builder paramBuilder = QueryParams.Builder.builder();
-        paramBuilder.setIndex(index);
-        builder.setQueryParams(paramBuilder.build());
+        builder.setQueryParams(QueryParams.Builder.builder().setConsistencyMode(mode).build());
         return builder.build();
     }
 
     @Override
     public DiscoverResponse listInstances(Service service, ModelProto.Group group) {
         String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
-        ConsulClient consulClient = getConsulClient(address);
-        Response<List<HealthService>> healthServices;
+        List<HealthService> healthServices;
         String registryName = registryEndpoint.getName();
+        AddressBalancer.Call call = AddressBalancer.shared().begin(address);
         try {
-            healthServices = consulClient.getHealthServices(service.getService(), buildHealthServiceRequest(0));
+            healthServices = mergeHealthServices(queryDatacenters(
+                    datacenter -> getHealthServices(address, datacenter, service.getService())));
+            call.end(true);
             LOG.info("[Consul][List] health services got by registry {}, address {}, service {}, list {}",
                     registryName, address, service, healthServices);
         } catch (ConsulException e) {
+            call.end(isClientError(e));
             if (e instanceof OperationException) {
                 LOG.error("[Consul] text error to listInstances by registry {}, address {}", registryName, address, e);
                 return ResponseUtils.toDiscoverResponse(service, ResponseUtils.normalizeStatusCode(
@@ -193,16 +445,25 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
         } finally {
             totalCount.addAndGet(1);
         }
-        List<HealthService> healthInstances = healthServices.getValue();
         DiscoverResponse.Builder builder = ResponseUtils
                 .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE);
-        builder.addAllInstances(convertConsulInstance(service, healthInstances, group));
+        builder.addAllInstances(convertConsulInstance(service, healthServices, group));
         DiscoverResponse discoverResponse = builder.build();
         LOG.info("[Consul][Pull] instances response (registry {}, address {}, group {}) from is {}", registryName,
                 address, group, discoverResponse);
         return discoverResponse;
     }
 
+    private static List<HealthService> mergeHealthServices(List<Response<List<HealthService>>> responses) {
+        List<HealthService> healthServices = new ArrayList<>();
+        for (Response<List<HealthService>> response : responses) {
+            if (null != response.getValue()) {
+                healthServices.addAll(response.getValue());
+            }
+        }
+        return healthServices;
+    }
+
     private List<Instance> convertConsulInstance(Service service, List<HealthService> instances, ModelProto.Group group) {
         List<Instance> outInstances = new ArrayList<>();
         if (CollectionUtils.isEmpty(instances)) {
@@ -260,25 +521,31 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
 
     @Override
     public boolean watch(Service service, ResponseListener eventListener) {
+        WatchContext watchContext;
         synchronized (lock) {
             if (watchedServices.containsKey(service)) {
                 LOG.warn("[Consul] service {} already watched, registry {}", service, registryEndpoint.getName());
                 return true;
             }
-            long watchIndex = 0L;
-            Future<?> submit = longPullExecutor.submit(new LongPullRunnable(service, eventListener));
-            watchedServices.put(service, new LongPullContext(watchIndex, submit));
-            return true;
+            watchContext = new WatchContext(eventListener);
+            watchedServices.put(service, watchContext);
+            if (!catalogWatchStarted) {
+                catalogWatchStarted = true;
+                for (String datacenter : datacenters) {
+                    catalogWatchExecutor.execute(() -> runCatalogWatch(datacenter));
+                    catalogWatchExecutor.execute(() -> runHealthStateWatch(datacenter));
+                }
+            }
         }
+        // 立即查询一次，推送当前的实例
+        healthQueryExecutor.execute(() -> refreshService(service, watchContext));
+        return true;
     }
 
     @Override
     public void unwatch(Service service) {
         synchronized (lock) {
-            LongPullContext future = watchedServices.remove(service);
-            if (null != future) {
-                future.getFuture().cancel(true);
-            }
+            watchedServices.remove(service);
         }
     }
 
@@ -292,108 +559,344 @@ public class ConsulRegistryCenter extends AbstractRegistryCenter {
 
     }
 
+    /**
+     * Consul 的服务随实例注册隐式存在，只需要同步实例。
+     * 与缓存的当前源已同步的注册信息比较，只提交新增、变化和删除的实例。
+     */
     @Override
-    public void updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+    public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+        ReentrantLock lock = instanceCache.getLock(service);
+        lock.lock();
+        try {
+            return doUpdateInstances(service, instances);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean doUpdateInstances(Service service, Collection<Instance> instances) {
+        String registryName = registryEndpoint.getName();
+        List<Registration> registrations = instanceCache.get(service);
+        if (null == registrations) {
+            try {
+                registrations = catalogWriter.read(service.getService());
+            } catch (ConsulException e) {
+                serverErrorCount.addAndGet(1);
+                LOG.error("[Consul] fail to read catalog service {} by registry {}, cancel update instances",
+                        service, registryName, e);
+                return false;
+            } finally {
+                totalCount.addAndGet(1);
+            }
+            instanceCache.load(service, registrations);
+        }
+        Map<String, Registration> currentRegistrations = new HashMap<>();
+        for (Registration registration : registrations) {
+            currentRegistrations.put(registration.getId(), registration);
+        }
+        Map<String, Registration> latestRegistrations = new LinkedHashMap<>();
+        for (Instance instance : instances) {
+            if (instance.getMetadataMap().containsKey(DefaultValues.META_SYNC)) {
+                // 其他同步任务写入源端的实例，不再同步
+                continue;
+            }
+            if (!instance.getHealthy().getValue() || instance.getIsolate().getValue()) {
+                // 外部节点上的实例没有健康检查，只同步可用的实例
+                continue;
+            }
+            Registration registration = catalogWriter.toRegistration(service.getService(), instance);
+            latestRegistrations.put(registration.getId(), registration);
+        }
+        List<Registration> targetsToSet = new ArrayList<>();
+        for (Registration registration : latestRegistrations.values()) {
+            if (!registration.equals(currentRegistrations.get(registration.getId()))) {
+                targetsToSet.add(registration);
+            }
+        }
+        List<Registration> targetsToDelete = new ArrayList<>();
+        for (Registration registration : registrations) {
+            if (!latestRegistrations.containsKey(registration.getId())) {
+                targetsToDelete.add(registration);
+            }
+        }
+        if (targetsToSet.isEmpty() && targetsToDelete.isEmpty()) {
+            return true;
+        }
+        LOG.info("[Consul] targets pending to set are {}, pending to delete are {}, service {}, registry {}",
+                targetsToSet, targetsToDelete, service, registryName);
+        boolean success;
+        try {
+            success = catalogWriter.write(service.getService(), targetsToSet, targetsToDelete);
+        } finally {
+            totalCount.addAndGet(1);
+        }
+        if (!success) {
+            // 写失败时目标端的状态未知，下次同步重新读取
+            serverErrorCount.addAndGet(1);
+            instanceCache.invalidate(service);
+            return false;
+        }
+        instanceCache.writeThrough(service, latestRegistrations.values());
+        LOG.info("[Consul] success to update targets, set {}, delete {}, service {}, registry {}",
+                targetsToSet.size(), targetsToDelete.size(), service, registryName);
+        return true;
+    }
 
+    /**
+     * 所有监听的服务在每个数据中心共用一个目录阻塞查询和一个健康检查阻塞查询，线程数和对服务端的阻塞查询数不随监听的服务数增长。
+     * 目录查询发现服务的增删和标签变化，健康检查查询按服务汇总检查的 ModifyIndex 发现实例和健康状态的变化，
+     * 只有变化的服务才以有限的并发重新查询健康实例；没有健康检查的实例变化由定期的全量核对兜底。
+     */
+    private void runCatalogWatch(String datacenter) {
+        String registryName = registryEndpoint.getName();
+        String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
+        long catalogIndex = 0;
+        long lastSweepTime = System.currentTimeMillis();
+        while (!destroyed.get() && !Thread.currentThread().isInterrupted()) {
+            long startTime = System.currentTimeMillis();
+            Response<Map<String, List<String>>> response;
+            try {
+                response = getCatalogServices(address, datacenter, catalogIndex, WATCH_WAIT_SECONDS);
+            } catch (ConsulException e) {
+                if (!isClientError(e)) {
+                    serverErrorCount.addAndGet(1);
+                    AddressBalancer.shared().begin(address).end(false);
+                }
+                LOG.error("[Consul][Watch] fail to watch catalog services by registry {}, address {}, datacenter {}",
+                        registryName, address, datacenter, e);
+                if (!sleep(1000)) {
+                    return;
+                }
+                address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
+                catalogIndex = 0;
+                continue;
+            } finally {
+                totalCount.addAndGet(1);
+            }
+            Long consulIndex = response.getConsulIndex();
+            // 索引回退说明服务端状态重建，需要从头开始查询
+            catalogIndex = (null == consulIndex || consulIndex < catalogIndex) ? 0 : consulIndex;
+            Map<String, List<String>> lastServices = catalogServices.put(datacenter, response.getValue());
+            if (startTime - lastSweepTime >= watchResyncIntervalMilli) {
+                lastSweepTime = startTime;
+                refreshWatchedServices(null);
+            } else if (null != lastServices) {
+                refreshWatchedServices(diffCatalogServices(lastServices, response.getValue()));
+            }
+            long costTime = System.currentTimeMillis() - startTime;
+            if (costTime < MIN_WATCH_SWEEP_INTERVAL_MS && !sleep(MIN_WATCH_SWEEP_INTERVAL_MS - costTime)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 每个数据中心的健康检查阻塞查询，两次查询之间检查签名变化的服务才重新查询
+     */
+    private void runHealthStateWatch(String datacenter) {
+        String registryName = registryEndpoint.getName();
+        String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
+        long healthIndex = 0;
+        HealthStateDigest lastDigest = null;
+        while (!destroyed.get() && !Thread.currentThread().isInterrupted()) {
+            long startTime = System.currentTimeMillis();
+            HttpResponse response;
+            HealthStateDigest digest;
+            try {
+                response = getHealthStates(address, datacenter, healthIndex);
+                digest = HealthStateDigest.of(Arrays.asList(JsonCodec.decode(response.getContent(),
+                        CheckState[].class)));
+            } catch (ConsulException | IOException e) {
+                if (e instanceof ConsulException && !isClientError((ConsulException) e)) {
+                    serverErrorCount.addAndGet(1);
+                    AddressBalancer.shared().begin(address).end(false);
+                }
+                LOG.error("[Consul][Watch] fail to watch health states by registry {}, address {}, datacenter {}",
+                        registryName, address, datacenter, e);
+                if (!sleep(1000)) {
+                    return;
+                }
+                address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
+                healthIndex = 0;
+                continue;
+            } finally {
+                totalCount.addAndGet(1);
+            }
+            Long consulIndex = response.getConsulIndex();
+            healthIndex = (null == consulIndex || consulIndex < healthIndex) ? 0 : consulIndex;
+            if (null != lastDigest) {
+                refreshWatchedServices(digest.changedServices(lastDigest));
+            }
+            lastDigest = digest;
+            long costTime = System.currentTimeMillis() - startTime;
+            if (costTime < MIN_WATCH_SWEEP_INTERVAL_MS && !sleep(MIN_WATCH_SWEEP_INTERVAL_MS - costTime)) {
+                return;
+            }
+        }
     }
 
-    private class LongPullRunnable implements Runnable {
+    private HttpResponse getHealthStates(String address, String datacenter, long index) {
+        List<UrlParameters> parameters = new ArrayList<>();
+        QueryParams.Builder paramBuilder = QueryParams.Builder.builder()
+                .setDatacenter(datacenter).setConsistencyMode(consistencyMode);
+        if (index > 0) {
+            paramBuilder.setIndex(index).setWaitTime(WATCH_WAIT_SECONDS);
+        }
+        parameters.add(paramBuilder.build());
+        if (StringUtils.hasText(registryEndpoint.getAuthorization().getToken())) {
+            parameters.add(new SingleUrlParameters("token", registryEndpoint.getAuthorization().getToken()));
+        }
+        HttpResponse response = clientPool.getRawClient(address).makeGetRequest(HEALTH_STATE_ENDPOINT, parameters);
+        readLag.record(datacenter, response.getConsulLastContact(), response.isConsulKnownLeader());
+        if (response.getStatusCode() != 200) {
+            throw new OperationException(response);
+        }
+        return response;
+    }
 
-        private final Service service;
-        private final ResponseListener eventListener;
+    /**
+     * @return names of the services added, removed or with tags changed
+     */
+    private static Set<String> diffCatalogServices(Map<String, List<String>> previous,
+            Map<String, List<String>> current) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : current.entrySet()) {
+            if (!Objects.equals(entry.getValue(), previous.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String svcName : previous.keySet()) {
+            if (!current.containsKey(svcName)) {
+                changed.add(svcName);
+            }
+        }
+        return changed;
+    }
 
-        public LongPullRunnable(Service service,
-                ResponseListener eventListener) {
-            this.service = service;
-            this.eventListener = eventListener;
+    /**
+     * @param changedServices names of the services to refresh, null to refresh all the watched services
+     */
+    private void refreshWatchedServices(Set<String> changedServices) {
+        if (null != changedServices && changedServices.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Service, WatchContext>> entries;
+        synchronized (lock) {
+            entries = new ArrayList<>(watchedServices.entrySet());
+        }
+        Set<String> svcNames = new HashSet<>();
+        catalogServices.values().forEach(services -> svcNames.addAll(services.keySet()));
+        // 所有数据中心都返回目录后，才能判断服务已经不存在
+        boolean complete = catalogServices.size() == datacenters.size();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            for (Map.Entry<Service, WatchContext> entry : entries) {
+                Service service = entry.getKey();
+                WatchContext watchContext = entry.getValue();
+                if (null != changedServices && !changedServices.contains(service.getService())) {
+                    continue;
+                }
+                if (complete && !svcNames.contains(service.getService())) {
+                    // 服务已经不在目录中，不需要查询
+                    watchContext.onRemoved(service);
+                    continue;
+                }
+                futures.add(CompletableFuture.runAsync(() -> refreshService(service, watchContext),
+                        healthQueryExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            return;
         }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
 
-        public boolean processWatch(String address, LongPullContext longPullContext) {
-            String registryName = registryEndpoint.getName();
-            ConsulClient consulClient = getConsulClient(address);
-            Response<List<HealthService>> healthServices;
+    private void refreshService(Service service, WatchContext watchContext) {
+        String registryName = registryEndpoint.getName();
+        String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
+        synchronized (watchContext) {
+            List<Response<List<HealthService>>> healthServices;
+            AddressBalancer.Call call = AddressBalancer.shared().begin(address);
             try {
-                long index = longPullContext.getIndex();
-                healthServices = consulClient.getHealthServices(
-                        service.getService(), buildHealthServiceRequest(index));
-                LOG.info("[Consul][Watch] health services got by registry {}, address {}, service {}, list {}",
-                        registryName, address, service, healthServices);
+                healthServices = queryDatacenters(
+                        datacenter -> getHealthServices(address, datacenter, service.getService()));
+                call.end(true);
             } catch (ConsulException e) {
+                call.end(isClientError(e));
                 if (e instanceof OperationException) {
-                    LOG.error("[Consul] text error to listInstances by registry {}, address {}",
-                            registryName, address, e);
+                    LOG.error("[Consul] text error to watch instances by registry {}, address {}, service {}",
+                            registryName, address, service, e);
                 } else {
                     serverErrorCount.addAndGet(1);
-                    LOG.error("[Consul] server error to listInstances by registry {}, address {}",
-                            registryName, address, e);
+                    LOG.error("[Consul] server error to watch instances by registry {}, address {}, service {}",
+                            registryName, address, service, e);
                 }
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException interruptedException) {
-                    LOG.error("[Consul] sleep interrupted", interruptedException);
-                }
-                return false;
+                return;
             } finally {
                 totalCount.addAndGet(1);
             }
-            Long consulIndex = healthServices.getConsulIndex();
-            longPullContext.setIndex(consulIndex);
-            List<HealthService> healthInstances = healthServices.getValue();
+            // 各数据中心的索引单调递增，任意一个变化时总和都会变化
+            long consulIndex = 0;
+            for (Response<List<HealthService>> response : healthServices) {
+                consulIndex += null == response.getConsulIndex() ? 0 : response.getConsulIndex();
+            }
+            if (!watchContext.updateIndex(consulIndex)) {
+                return;
+            }
+            List<HealthService> instances = mergeHealthServices(healthServices);
+            LOG.info("[Consul][Watch] health services got by registry {}, address {}, service {}, list {}",
+                    registryName, address, service, instances);
             DiscoverResponse.Builder builder = ResponseUtils
                     .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE);
-            builder.addAllInstances(convertConsulInstance(service, healthInstances, null));
-            eventListener.onEvent(new WatchEvent(builder.build()));
-            return true;
+            builder.addAllInstances(convertConsulInstance(service, instances, null));
+            watchContext.getListener().onEvent(new WatchEvent(builder.build(), true));
         }
+    }
 
-        @Override
-        public void run() {
-            LongPullContext longPullContext;
-            boolean watched;
-            synchronized (lock) {
-                watched = watchedServices.containsKey(service);
-                longPullContext = watchedServices.get(service);
-            }
-            String address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
-            while (watched) {
-                try {
-                    boolean result = processWatch(address, longPullContext);
-                    if (!result) {
-                        address = RestOperator.pickAddress(registryEndpoint.getServerAddresses());
-                        longPullContext.setIndex(0L);
-                    }
-                } catch (Throwable e) {
-                    LOG.error("[Consul][Watch] fail to process watch task (registry {})", registryEndpoint.getName(),
-                            e);
-                }
-                synchronized (lock) {
-                    watched = watchedServices.containsKey(service);
-                }
-            }
+    private static boolean sleep(long milli) {
+        try {
+            Thread.sleep(milli);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
-    private static class LongPullContext {
+    private static class WatchContext {
 
-        private final AtomicLong index = new AtomicLong(0L);
+        // 服务不存在时使用的索引
+        private static final long REMOVED_INDEX = 0;
 
-        private final Future<?> future;
+        private final ResponseListener listener;
 
-        public LongPullContext(long index, Future<?> future) {
-            this.index.set(index);
-            this.future = future;
+        // 最近一次推送时服务的索引，-1 表示还没有推送过
+        private long index = -1;
+
+        WatchContext(ResponseListener listener) {
+            this.listener = listener;
         }
 
-        public long getIndex() {
-            return index.get();
+        ResponseListener getListener() {
+            return listener;
         }
 
-        public void setIndex(long idx) {
-            index.set(idx);
+        /**
+         * @return true if the index is changed and the event should be pushed
+         */
+        synchronized boolean updateIndex(long newIndex) {
+            if (newIndex == index) {
+                return false;
+            }
+            index = newIndex;
+            return true;
         }
 
-        public Future<?> getFuture() {
-            return future;
+        synchronized void onRemoved(Service service) {
+            if (!updateIndex(REMOVED_INDEX)) {
+                return;
+            }
+            listener.onEvent(new WatchEvent(ResponseUtils
+                    .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE).build(), true));
         }
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.util.StringUtils;
+
+/**
+ * 将 /v1/health/state/any 返回的全部检查按服务汇总成签名，两次查询之间签名变化的服务才需要重新查询健康实例。
+ * 节点级别的检查（例如 serfHealth）变化时，该节点上带有检查的服务都视为变化。
+ */
+public class HealthStateDigest {
+
+    private final Map<String, Long> serviceSignatures = new HashMap<>();
+
+    private final Map<String, Long> nodeSignatures = new HashMap<>();
+
+    private final Map<String, Set<String>> nodeServices = new HashMap<>();
+
+    public static HealthStateDigest of(Collection<CheckState> checks) {
+        HealthStateDigest digest = new HealthStateDigest();
+        for (CheckState check : checks) {
+            // 与顺序无关的签名，检查的状态变化、新增和删除都会改变签名
+            long signature = mix(Objects.hash(check.getNode(), check.getCheckId(), check.getModifyIndex()));
+            if (StringUtils.hasText(check.getServiceName())) {
+                digest.serviceSignatures.merge(check.getServiceName(), signature, Long::sum);
+                digest.nodeServices.computeIfAbsent(check.getNode(), k -> new HashSet<>())
+                        .add(check.getServiceName());
+            } else {
+                digest.nodeSignatures.merge(check.getNode(), signature, Long::sum);
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * @return names of the services whose checks changed since the previous digest
+     */
+    public Set<String> changedServices(HealthStateDigest previous) {
+        Set<String> changed = new HashSet<>();
+        collectChanged(previous.serviceSignatures, serviceSignatures, changed);
+        Set<String> changedNodes = new HashSet<>();
+        collectChanged(previous.nodeSignatures, nodeSignatures, changedNodes);
+        for (String node : changedNodes) {
+            changed.addAll(nodeServices.getOrDefault(node, Collections.emptySet()));
+            changed.addAll(previous.nodeServices.getOrDefault(node, Collections.emptySet()));
+        }
+        return changed;
+    }
+
+    private static void collectChanged(Map<String, Long> previous, Map<String, Long> current, Set<String> changed) {
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * the fields of /v1/health/state used for the digest
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class CheckState {
+
+        @JsonProperty("Node")
+        private String node;
+
+        @JsonProperty("CheckID")
+        private String checkId;
+
+        @JsonProperty("ServiceName")
+        private String serviceName;
+
+        @JsonProperty("ModifyIndex")
+        private long modifyIndex;
+
+        public CheckState() {
+        }
+
+        public CheckState(String node, String checkId, String serviceName, long modifyIndex) {
+            this.node = node;
+            this.checkId = checkId;
+            this.serviceName = serviceName;
+            this.modifyIndex = modifyIndex;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public String getCheckId() {
+            return checkId;
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public long getModifyIndex() {
+            return modifyIndex;
+        }
+    }
+}
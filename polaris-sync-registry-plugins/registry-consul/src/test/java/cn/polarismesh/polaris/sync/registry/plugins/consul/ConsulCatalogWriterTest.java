@@ -0,0 +1,132 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
+import cn.polarismesh.polaris.sync.extension.Authorization;
+import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import cn.polarismesh.polaris.sync.registry.plugins.consul.ConsulCatalogWriter.Registration;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.UInt32Value;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsulCatalogWriterTest {
+
+    private static final String SOURCE_NAME = "nacos-source";
+
+    @Test
+    public void splitByTxnLimit() {
+        ConsulCatalogWriter writer = newWriter("3");
+        List<List<Map<String, Object>>> txns = writer.buildTxns(registrations(5), registrations(2), true);
+        Assert.assertEquals(3, txns.size());
+        Assert.assertEquals(3, txns.get(0).size());
+        Assert.assertEquals(3, txns.get(1).size());
+        Assert.assertEquals(2, txns.get(2).size());
+        // 节点注册必须在第一个事务的最前面
+        Assert.assertTrue(txns.get(0).get(0).containsKey("Node"));
+        for (int i = 1; i < 3; i++) {
+            Assert.assertTrue(txns.get(0).get(i).containsKey("Service"));
+        }
+    }
+
+    @Test
+    public void splitWithoutNode() {
+        ConsulCatalogWriter writer = newWriter("2");
+        List<List<Map<String, Object>>> txns = writer.buildTxns(registrations(4), Collections.emptyList(), false);
+        Assert.assertEquals(2, txns.size());
+        for (List<Map<String, Object>> txn : txns) {
+            Assert.assertEquals(2, txn.size());
+            for (Map<String, Object> op : txn) {
+                Assert.assertTrue(op.containsKey("Service"));
+            }
+        }
+    }
+
+    @Test
+    public void txnLimitDefaultAndMinimum() {
+        List<List<Map<String, Object>>> txns = newWriter(null).buildTxns(registrations(100),
+                Collections.emptyList(), true);
+        Assert.assertEquals(2, txns.size());
+        Assert.assertEquals(ConsulCatalogWriter.DEFAULT_TXN_MAX_OPS, txns.get(0).size());
+        Assert.assertEquals(101 - ConsulCatalogWriter.DEFAULT_TXN_MAX_OPS, txns.get(1).size());
+        // 每个事务至少容纳节点注册和一个服务操作
+        txns = newWriter("1").buildTxns(registrations(1), Collections.emptyList(), true);
+        Assert.assertEquals(1, txns.size());
+        Assert.assertEquals(2, txns.get(0).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deleteOpOnlyCarriesId() {
+        List<List<Map<String, Object>>> txns = newWriter(null).buildTxns(Collections.emptyList(),
+                registrations(1), false);
+        Map<String, Object> op = (Map<String, Object>) txns.get(0).get(0).get("Service");
+        Assert.assertEquals("delete", op.get("Verb"));
+        Assert.assertEquals("polaris-sync-" + SOURCE_NAME, op.get("Node"));
+        Map<String, Object> service = (Map<String, Object>) op.get("Service");
+        Assert.assertEquals(Collections.singletonMap("ID", "svc-0"), service);
+    }
+
+    @Test
+    public void registrationDropsInvalidMeta() {
+        Instance instance = Instance.newBuilder()
+                .setHost(StringValue.newBuilder().setValue("10.0.0.1").build())
+                .setPort(UInt32Value.newBuilder().setValue(8080).build())
+                .putMetadata("version", "v1")
+                .putMetadata("invalid key", "v1")
+                .putMetadata("empty", "")
+                .build();
+        Registration registration = newWriter(null).toRegistration("svc", instance);
+        Assert.assertEquals("svc-10.0.0.1-8080", registration.getId());
+        Map<String, String> expect = new HashMap<>();
+        expect.put("version", "v1");
+        expect.put(DefaultValues.META_SYNC, SOURCE_NAME);
+        Assert.assertEquals(expect, registration.getMeta());
+    }
+
+    private static ConsulCatalogWriter newWriter(String maxOps) {
+        Map<String, String> options = null == maxOps ? Collections.emptyMap()
+                : Collections.singletonMap(ConsulCatalogWriter.OPTION_TXN_MAX_OPS, maxOps);
+        ResourceEndpoint endpoint = ResourceEndpoint.builder()
+                .name("consul")
+                .resourceType(ResourceType.CONSUL)
+                .addresses(Collections.singletonList("127.0.0.1:8500"))
+                .authorization(Authorization.builder().build())
+                .options(options)
+                .build();
+        return new ConsulCatalogWriter(null, endpoint, SOURCE_NAME, "dc1");
+    }
+
+    private static List<Registration> registrations(int count) {
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            registrations.add(new Registration("svc-" + i, "svc", "10.0.0." + i, 8080,
+                    Collections.singletonMap(DefaultValues.META_SYNC, SOURCE_NAME)));
+        }
+        return registrations;
+    }
+}
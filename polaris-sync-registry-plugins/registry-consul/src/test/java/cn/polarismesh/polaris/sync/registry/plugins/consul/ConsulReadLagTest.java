@@ -0,0 +1,68 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsulReadLagTest {
+
+    @Test
+    public void recordLastContact() {
+        ConsulReadLag readLag = new ConsulReadLag();
+        readLag.record("dc1", 100L, true);
+        ConsulReadLag.Snapshot snapshot = readLag.snapshot().get("dc1");
+        Assert.assertEquals(1, snapshot.getReadCount());
+        Assert.assertEquals(100, snapshot.getLastContactMilli());
+        Assert.assertEquals(100, snapshot.getAvgLastContactMilli());
+
+        readLag.record("dc1", 0L, true);
+        snapshot = readLag.snapshot().get("dc1");
+        Assert.assertEquals(2, snapshot.getReadCount());
+        Assert.assertEquals(0, snapshot.getLastContactMilli());
+        Assert.assertEquals(100, snapshot.getMaxLastContactMilli());
+        // 指数加权平均：100 + 0.3 * (0 - 100)
+        Assert.assertEquals(70, snapshot.getAvgLastContactMilli());
+    }
+
+    @Test
+    public void recordUnknownLeader() {
+        ConsulReadLag readLag = new ConsulReadLag();
+        readLag.record("dc1", null, null);
+        readLag.record("dc1", null, false);
+        ConsulReadLag.Snapshot snapshot = readLag.snapshot().get("dc1");
+        Assert.assertEquals(2, snapshot.getReadCount());
+        Assert.assertEquals(1, snapshot.getUnknownLeaderCount());
+        Assert.assertEquals(0, snapshot.getLastContactMilli());
+    }
+
+    @Test
+    public void statsPerDatacenter() {
+        ConsulReadLag readLag = new ConsulReadLag();
+        readLag.record("dc1", 10L, true);
+        readLag.onStaleRetry("dc2");
+        readLag.onStaleRetry("dc2");
+        Map<String, ConsulReadLag.Snapshot> snapshots = readLag.snapshot();
+        Assert.assertEquals(2, snapshots.size());
+        Assert.assertEquals(0, snapshots.get("dc1").getStaleRetryCount());
+        Assert.assertEquals(2, snapshots.get("dc2").getStaleRetryCount());
+        Assert.assertEquals(0, snapshots.get("dc2").getReadCount());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.registry.plugins.consul;
+
+import cn.polarismesh.polaris.sync.registry.plugins.consul.HealthStateDigest.CheckState;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HealthStateDigestTest {
+
+    private static final List<CheckState> BASE = Arrays.asList(
+            new CheckState("node-1", "serfHealth", "", 10),
+            new CheckState("node-1", "service:order-1", "order", 11),
+            new CheckState("node-1", "service:user-1", "user", 12),
+            new CheckState("node-2", "serfHealth", "", 20),
+            new CheckState("node-2", "service:pay-1", "pay", 21));
+
+    @Test
+    public void unchangedChecks() {
+        HealthStateDigest previous = HealthStateDigest.of(BASE);
+        Assert.assertTrue(HealthStateDigest.of(BASE).changedServices(previous).isEmpty());
+    }
+
+    @Test
+    public void serviceCheckChanged() {
+        HealthStateDigest previous = HealthStateDigest.of(BASE);
+        HealthStateDigest current = HealthStateDigest.of(Arrays.asList(
+                BASE.get(0), new CheckState("node-1", "service:order-1", "order", 30),
+                BASE.get(2), BASE.get(3), BASE.get(4)));
+        Assert.assertEquals(Collections.singleton("order"), current.changedServices(previous));
+    }
+
+    @Test
+    public void serviceAddedAndRemoved() {
+        HealthStateDigest previous = HealthStateDigest.of(BASE);
+        HealthStateDigest current = HealthStateDigest.of(Arrays.asList(
+                BASE.get(0), BASE.get(1), BASE.get(3),
+                new CheckState("node-2", "service:stock-1", "stock", 31)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("user", "pay", "stock")), current.changedServices(previous));
+    }
+
+    @Test
+    public void nodeCheckChangesServicesOnNode() {
+        HealthStateDigest previous = HealthStateDigest.of(BASE);
+        HealthStateDigest current = HealthStateDigest.of(Arrays.asList(
+                new CheckState("node-1", "serfHealth", "", 40),
+                BASE.get(1), BASE.get(2), BASE.get(3), BASE.get(4)));
+        // 节点检查变化影响该节点上的全部服务，其他节点不受影响
+        Assert.assertEquals(new HashSet<>(Arrays.asList("order", "user")), current.changedServices(previous));
+    }
+}
@@ -29,7 +29,10 @@ public class KongEndpointUtils {
     }
 
     public static String toUpstreamUrl(List<String> addresses, String upstreamName) {
-        String address = pickAddress(addresses);
+        return toUpstreamUrl(pickAddress(addresses), upstreamName);
+    }
+
+    public static String toUpstreamUrl(String address, String upstreamName) {
         return String.format("http://%s/upstreams/%s", address, upstreamName);
     }
 
@@ -39,7 +42,10 @@ public class KongEndpointUtils {
     }
 
     public static String toTargetsReadUrl(List<String> addresses, String upstreamName) {
-        String address = pickAddress(addresses);
+        return toTargetsReadUrl(pickAddress(addresses), upstreamName);
+    }
+
+    public static String toTargetsReadUrl(String address, String upstreamName) {
         return String.format("http://%s/upstreams/%s/targets/all", address, upstreamName);
     }
 
@@ -19,6 +19,7 @@ package cn.polarismesh.polaris.sync.registry.plugins.kong;
 
 import static cn.polarismesh.polaris.sync.common.rest.RestOperator.pickAddress;
 
+import cn.polarismesh.polaris.sync.common.rest.HedgePolicy;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
 import cn.polarismesh.polaris.sync.common.rest.RestResponse;
 import cn.polarismesh.polaris.sync.common.rest.RestUtils;
@@ -43,10 +44,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -56,6 +59,9 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
 
     private static final Logger LOG = LoggerFactory.getLogger(KongRegistryCenter.class);
 
+    // 单次更新同时发出的 target 请求数上限，避免大批量变更占满连接池或者压垮 Kong
+    private static final int MAX_TARGET_REQUESTS_IN_FLIGHT = 16;
+
     private RegistryInitRequest registryInitRequest;
 
     private String token;
@@ -77,7 +83,8 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         Assert.hasText(registryInitRequest.getSourceName(), "source registry for kong is empty");
         this.registryInitRequest = registryInitRequest;
         this.token = registryInitRequest.getResourceEndpoint().getAuthorization().getToken();
-        restOperator = new RestOperator();
+        restOperator = new RestOperator(
+                HedgePolicy.fromOptions(registryInitRequest.getResourceEndpoint().getOptions()));
     }
 
     @Override
@@ -114,8 +121,9 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         } else {
             servicesUrl = KongEndpointUtils.toServicesUrl(address);
         }
-        RestResponse<String> restResponse = restOperator.curlRemoteEndpoint(
-                servicesUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), String.class);
+        // 分页结果直接从响应流解码
+        RestResponse<ServiceObjectList> restResponse = restOperator.curlRemoteEndpoint(
+                servicesUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), ServiceObjectList.class);
         processHealthCheck(restResponse);
         if (restResponse.hasServerError()) {
             LOG.error("[Kong] server error to query services {}, reason {}", servicesUrl, restResponse.getException().getMessage());
@@ -126,11 +134,10 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
                     servicesUrl, restResponse.getRawStatusCode(), restResponse.getStatusText());
             return false;
         }
-        ResponseEntity<String> queryEntity = restResponse.getResponseEntity();
-        ServiceObjectList serviceObjectList = RestUtils.unmarshalJsonText(queryEntity.getBody(), ServiceObjectList.class);
-        if (null == serviceObjectList) {
+        ServiceObjectList serviceObjectList = restResponse.getResponseEntity().getBody();
+        if (null == serviceObjectList || null == serviceObjectList.getData()) {
             LOG.error("[Kong] invalid response to query services from {}, reason {}", servicesUrl,
-                    queryEntity.getBody());
+                    serviceObjectList);
             return false;
         }
         services.addAll(serviceObjectList.getData());
@@ -217,8 +224,8 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         } else {
             upstreamsUrl = KongEndpointUtils.toUpstreamsUrl(address);
         }
-        RestResponse<String> restResponse = restOperator.curlRemoteEndpoint(
-                upstreamsUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), String.class);
+        RestResponse<UpstreamObjectList> restResponse = restOperator.curlRemoteEndpoint(
+                upstreamsUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), UpstreamObjectList.class);
         processHealthCheck(restResponse);
         if (restResponse.hasServerError()) {
             LOG.error("[Kong] server error to query upstreams {}, reason {}",
@@ -231,11 +238,10 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
             return false;
         }
 
-        ResponseEntity<String> queryEntity = restResponse.getResponseEntity();
-        UpstreamObjectList upstreamObjectList = RestUtils.unmarshalJsonText(queryEntity.getBody(), UpstreamObjectList.class);
-        if (null == upstreamObjectList) {
+        UpstreamObjectList upstreamObjectList = restResponse.getResponseEntity().getBody();
+        if (null == upstreamObjectList || null == upstreamObjectList.getData()) {
             LOG.error("[Kong] invalid response to query upstreams from {}, reason {}", upstreamsUrl,
-                    queryEntity.getBody());
+                    upstreamObjectList);
             return false;
         }
         upstreams.addAll(upstreamObjectList.getData());
@@ -306,7 +312,7 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
     }
 
     @Override
-    public void updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+    public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
         String sourceName = registryInitRequest.getSourceName();
         String sourceType =  registryInitRequest.getSourceType().toString();
 
@@ -322,27 +328,27 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         List<String> addressesList = registryInitRequest.getResourceEndpoint().getServerAddresses();
 
         // 检查一下upstream，不存在，我们就不更新
-        String upstreamReadUrl = KongEndpointUtils.toUpstreamUrl(addressesList, upstreamName);
-        RestResponse<String> restResponse = restOperator.curlRemoteEndpoint(
-                upstreamReadUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), String.class);
+        String upstreamReadUrl = KongEndpointUtils.toUpstreamUrl(String.join(",", addressesList), upstreamName);
+        String readUpstreamName = upstreamName;
+        RestResponse<UpstreamObject> restResponse = restOperator.readRemoteEndpoint(addressesList,
+                address -> KongEndpointUtils.toUpstreamUrl(address, readUpstreamName), HttpMethod.GET,
+                RestUtils.getRequestEntity(token, null), UpstreamObject.class);
 
         if (restResponse.hasServerError()) {
             LOG.error("[Kong] server error to query upstream {}, reason {}",
                     upstreamReadUrl, restResponse.getException().getMessage());
-            return;
+            return false;
         }
         if (restResponse.hasTextError()) {
             LOG.warn("[Kong] text error to query targets {}, code {}, reason {}",
                     upstreamReadUrl, restResponse.getRawStatusCode(), restResponse.getStatusText());
-            return;
+            return false;
         }
         if (restResponse.hasNormalResponse()) {
-            ResponseEntity<String> strEntity = restResponse.getResponseEntity();
-            UpstreamObject upstream = RestUtils.unmarshalJsonText(strEntity.getBody(), UpstreamObject.class);
+            UpstreamObject upstream = restResponse.getResponseEntity().getBody();
             if (null == upstream) {
-                LOG.error("[Kong] invalid response to query upstream {}, text {}",
-                        upstreamReadUrl, strEntity.getBody());
-                return;
+                LOG.error("[Kong] invalid response to query upstream {}, empty body", upstreamReadUrl);
+                return false;
             }
 
             // upstream配置的服务来源类型，是否与upstream一致，如果不一致，不需要执行下面的同步流程
@@ -358,37 +364,37 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
 
             if (!matchType) {
                 LOG.warn("[Kong] {} sourceType:{} is not the same as tag", upstreamName, sourceType);
-                return;
+                return true;
             }
 
         } else {
             LOG.error("[Kong] invalid response to query upstream {}, has abnormal response", upstreamReadUrl);
-            return;
+            return false;
         }
 
 
-        String targetReadUrl = KongEndpointUtils.toTargetsReadUrl(addressesList, upstreamName);
+        String targetReadUrl = KongEndpointUtils.toTargetsReadUrl(String.join(",", addressesList), upstreamName);
 
-        restResponse = restOperator.curlRemoteEndpoint(
-                targetReadUrl, HttpMethod.GET, RestUtils.getRequestEntity(token, null), String.class);
-        processHealthCheck(restResponse);
-        if (restResponse.hasServerError()) {
+        RestResponse<TargetObjectList> targetsResponse = restOperator.readRemoteEndpoint(addressesList,
+                address -> KongEndpointUtils.toTargetsReadUrl(address, readUpstreamName), HttpMethod.GET,
+                RestUtils.getRequestEntity(token, null), TargetObjectList.class);
+        processHealthCheck(targetsResponse);
+        if (targetsResponse.hasServerError()) {
             LOG.error("[Kong] server error to query targets {}, reason {}",
-                    targetReadUrl, restResponse.getException().getMessage());
-            return;
+                    targetReadUrl, targetsResponse.getException().getMessage());
+            return false;
         }
-        if (restResponse.hasTextError() && restResponse.getRawStatusCode() != 404) {
+        if (targetsResponse.hasTextError() && targetsResponse.getRawStatusCode() != 404) {
             LOG.warn("[Kong] text error to query targets {}, code {}, reason {}",
-                    targetReadUrl, restResponse.getRawStatusCode(), restResponse.getStatusText());
-            return;
+                    targetReadUrl, targetsResponse.getRawStatusCode(), targetsResponse.getStatusText());
+            return false;
         }
         TargetObjectList targetObjectList;
-        if (restResponse.hasNormalResponse()) {
-            ResponseEntity<String> strEntity = restResponse.getResponseEntity();
-            targetObjectList = RestUtils.unmarshalJsonText(strEntity.getBody(), TargetObjectList.class);
+        if (targetsResponse.hasNormalResponse()) {
+            targetObjectList = targetsResponse.getResponseEntity().getBody();
             if (null == targetObjectList) {
-                LOG.error("[Kong] invalid response to query targets {}, text {}", targetReadUrl, strEntity.getBody());
-                return;
+                LOG.error("[Kong] invalid response to query targets {}, empty body", targetReadUrl);
+                return false;
             }
         } else {
             targetObjectList = new TargetObjectList();
@@ -420,7 +426,10 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
                 targetsToDelete.add(targetObject);
             }
         }
-        // process operation
+        // process operation, target requests are independent, send them without waiting for each other,
+        // the number of requests in flight is bounded
+        Semaphore permits = new Semaphore(MAX_TARGET_REQUESTS_IN_FLIGHT);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
         int targetAddCount = 0;
         int targetPatchCount = 0;
         int targetDeleteCount = 0;
@@ -428,7 +437,8 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
             LOG.info("[Kong] targets(source {}) pending to create are {}, upstream {}", sourceName, targetsToCreate, upstreamName);
             String targetWriteUrl = KongEndpointUtils.toTargetsWriteUrl(addressesList, upstreamName);
             for (TargetObject targetObject : targetsToCreate) {
-                processTargetRequest(targetWriteUrl, HttpMethod.POST, targetObject, "create");
+                futures.add(sendLimited(permits,
+                        () -> processTargetRequest(targetWriteUrl, HttpMethod.POST, targetObject, "create")));
                 targetAddCount++;
             }
         }
@@ -436,7 +446,8 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
             LOG.info("[Kong] targets(source {}) pending to update are {}, upstream {}", sourceName, targetsToUpdate, upstreamName);
             for (TargetObject targetObject : targetsToUpdate) {
                 String targetUrl = KongEndpointUtils.toTargetUrl(addressesList, upstreamName, targetObject.getTarget());
-                processTargetRequest(targetUrl, HttpMethod.PUT, targetObject, "update");
+                futures.add(sendLimited(permits,
+                        () -> processTargetRequest(targetUrl, HttpMethod.PUT, targetObject, "update")));
                 targetPatchCount++;
             }
         }
@@ -444,12 +455,22 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
             LOG.info("[Kong] targets(source {}) pending to delete are {}, upstream {}", sourceName, targetsToDelete, upstreamName);
             for (TargetObject targetObject : targetsToDelete) {
                 String targetUrl = KongEndpointUtils.toTargetUrl(addressesList, upstreamName, targetObject.getTarget());
-                processTargetRequest(targetUrl, HttpMethod.DELETE, null, "delete");
+                futures.add(sendLimited(permits,
+                        () -> processTargetRequest(targetUrl, HttpMethod.DELETE, null, "delete")));
                 targetDeleteCount++;
             }
         }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        boolean success = true;
+        for (CompletableFuture<Boolean> future : futures) {
+            success &= future.join();
+        }
+        if (!success) {
+            return false;
+        }
         LOG.info("[Kong] success to update targets(source {}), add {}, patch {}, delete {}", sourceName,
                 targetAddCount, targetPatchCount, targetDeleteCount);
+        return true;
     }
 
     private <T> void commonCreateOrUpdateRequest(
@@ -460,20 +481,26 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         }
         RestResponse<String> restResponse = restOperator.curlRemoteEndpoint(
                 serviceUrl, method, RestUtils.getRequestEntity(token, jsonText), String.class);
+        processResponse(name, serviceUrl, method, jsonText, operation, restResponse);
+    }
+
+    private boolean processResponse(String name, String serviceUrl, HttpMethod method, String jsonText,
+            String operation, RestResponse<String> restResponse) {
         processHealthCheck(restResponse);
         if (restResponse.hasServerError()) {
             LOG.error("[Kong] server error to {} {} to {}, method {}, request {}, reason {}",
                     operation, name, serviceUrl, method.name(), jsonText, restResponse.getException().getMessage());
-            return;
+            return false;
         }
         if (restResponse.hasTextError()) {
             LOG.warn("[Kong] text error to {} {} to {}, method {}, request {}, code {}, reason {}",
                     operation, name, serviceUrl, method.name(), jsonText, restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
-            return;
+            return false;
         }
         LOG.info("[Kong] success to {} {} to {}, method {}, request {}", operation, name, serviceUrl, method.name(),
                 jsonText);
+        return true;
     }
 
     private void processServiceRequest(
@@ -486,9 +513,33 @@ public class KongRegistryCenter extends AbstractRegistryCenter {
         commonCreateOrUpdateRequest("upstream", upstreamUrl, method, upstreamObject, operation);
     }
 
-    private void processTargetRequest(String targetUrl, HttpMethod method, TargetObject targetObject,
-            String operation) {
-        commonCreateOrUpdateRequest("target", targetUrl, method, targetObject, operation);
+    /**
+     * wait for a permit before sending the request, the permit is released when the request completes
+     */
+    private static CompletableFuture<Boolean> sendLimited(Semaphore permits,
+            Supplier<CompletableFuture<Boolean>> request) {
+        permits.acquireUninterruptibly();
+        CompletableFuture<Boolean> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return future.whenComplete((success, e) -> permits.release());
+    }
+
+    private CompletableFuture<Boolean> processTargetRequest(String targetUrl, HttpMethod method,
+            TargetObject targetObject, String operation) {
+        String jsonText = "";
+        if (null != targetObject) {
+            jsonText = RestUtils.marshalJsonText(targetObject);
+        }
+        String requestText = jsonText;
+        return restOperator.curlRemoteEndpointAsync(
+                targetUrl, method, RestUtils.getRequestEntity(token, jsonText), String.class)
+                .thenApply(restResponse -> processResponse("target", targetUrl, method, requestText, operation,
+                        restResponse));
     }
 
 }
@@ -0,0 +1,543 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package cn.polarismesh.polaris.sync.registry.plugins.k8s;
+
+import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
+import cn.polarismesh.polaris.sync.common.rest.AddressBalancer;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.informer.cache.Lister;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1EndpointAddress;
+import io.kubernetes.client.openapi.models.V1EndpointSubset;
+import io.kubernetes.client.openapi.models.V1Endpoints;
+import io.kubernetes.client.openapi.models.V1EndpointsList;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1ObjectReference;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Config;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.Call;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个 API Server 共享一份 Endpoints 和 Pod 的 informer 缓存（list + watch），所有任务的查询都直接读取内存，
+ * Endpoints 或者 Pod 标签变化时回调监听对应服务的任务。Pod 只保留元数据，避免缓存整个集群的 Pod 规格。
+ * <p>
+ * informer 按命名空间在首次访问时创建，只需要在同步的命名空间内授予 endpoints 和 pods 的 list、watch 权限
+ * （Role + RoleBinding 即可，不需要 ClusterRole），命名空间未同步完成时查询退化为直接调用 API（需要 get 权限）。
+ * 每次 list、watch 和直接查询都重新选择 API Server 地址，失败时切换到其他地址。
+ */
+public class KubernetesInformerCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesInformerCache.class);
+
+    private static final Map<String, KubernetesInformerCache> CACHES = new HashMap<>();
+
+    private static final long SYNC_CHECK_INTERVAL_MS = 100;
+
+    // 超过该时间仍未同步完成时，先让监听者通过直接查询获取实例
+    private static final long SYNC_TIMEOUT_MS = 10 * 1000;
+
+    private static final Type ENDPOINTS_WATCH_TYPE = new TypeToken<Watch.Response<V1Endpoints>>() {
+    }.getType();
+
+    private static final Type POD_WATCH_TYPE = new TypeToken<Watch.Response<V1Pod>>() {
+    }.getType();
+
+    private final String key;
+
+    private final List<String> addresses;
+
+    private final String token;
+
+    private final ExecutorService informerExecutor;
+
+    // address -> 对应的 API 客户端
+    private final Map<String, CoreV1Api> apis = new ConcurrentHashMap<>();
+
+    private final Map<String, NamespaceInformers> namespaces = new ConcurrentHashMap<>();
+
+    // namespace/name -> 监听该服务的回调
+    private final Map<String, Set<Runnable>> listeners = new HashMap<>();
+
+    private volatile boolean stopped;
+
+    private int refCount;
+
+    private KubernetesInformerCache(String key, List<String> addresses, String token) {
+        this.key = key;
+        this.addresses = addresses;
+        this.token = token;
+        informerExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("k8s-informer"));
+    }
+
+    /**
+     * get the shared cache of the api server, the cache must be released when no longer used
+     */
+    public static synchronized KubernetesInformerCache acquire(List<String> addresses, String token) {
+        String key = String.join(",", addresses) + "|" + token;
+        KubernetesInformerCache cache = CACHES.computeIfAbsent(key,
+                k -> new KubernetesInformerCache(k, addresses, token));
+        cache.refCount++;
+        return cache;
+    }
+
+    public void release() {
+        synchronized (KubernetesInformerCache.class) {
+            if (--refCount > 0) {
+                return;
+            }
+            CACHES.remove(key);
+        }
+        synchronized (namespaces) {
+            stopped = true;
+            for (NamespaceInformers informers : namespaces.values()) {
+                informers.informerFactory.stopAllRegisteredInformers(false);
+            }
+            namespaces.clear();
+        }
+        informerExecutor.shutdownNow();
+        LOG.info("[Kubernetes] informer cache stopped for {}", addresses);
+    }
+
+    /**
+     * whether the informers of the namespace are synced, the informers are started on the first call
+     */
+    public boolean hasSynced(String namespace) {
+        NamespaceInformers informers = getInformers(namespace);
+        return null != informers && informers.hasSynced();
+    }
+
+    /**
+     * read endpoints from the cache, only valid if the namespace is synced
+     */
+    public V1Endpoints getEndpoints(String namespace, String name) {
+        NamespaceInformers informers = namespaces.get(namespace);
+        return null == informers ? null : informers.endpointsLister.get(name);
+    }
+
+    /**
+     * read pod labels from the cache, only valid if the namespace is synced
+     *
+     * @return labels of the pod, empty if the pod is not found
+     */
+    public Map<String, String> getPodLabels(String namespace, String name) {
+        NamespaceInformers informers = namespaces.get(namespace);
+        V1Pod pod = null == informers ? null : informers.podLister.get(name);
+        Map<String, String> labels = null == pod ? null : getLabels(pod);
+        return null == labels ? Collections.emptyMap() : labels;
+    }
+
+    /**
+     * read endpoints from the api server directly, used before the namespace is synced
+     *
+     * @return null if the endpoints not found
+     */
+    public V1Endpoints readEndpoints(String namespace, String name) throws ApiException {
+        try {
+            return execute(api -> api.readNamespacedEndpoints(name, namespace, null));
+        } catch (ApiException e) {
+            if (e.getCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * read pod labels from the api server directly, used before the namespace is synced
+     *
+     * @return labels of the pod, empty if the pod is not found
+     */
+    public Map<String, String> readPodLabels(String namespace, String name) throws ApiException {
+        V1Pod pod;
+        try {
+            pod = execute(api -> api.readNamespacedPod(name, namespace, null));
+        } catch (ApiException e) {
+            if (e.getCode() == 404) {
+                return Collections.emptyMap();
+            }
+            throw e;
+        }
+        Map<String, String> labels = getLabels(pod);
+        return null == labels ? Collections.emptyMap() : labels;
+    }
+
+    /**
+     * add the listener of the service endpoints, the listener is called once the namespace is synced,
+     * or timed out to sync
+     */
+    public void addListener(String namespace, String name, Runnable listener) {
+        NamespaceInformers informers = getInformers(namespace);
+        boolean notifyNow;
+        synchronized (listeners) {
+            listeners.computeIfAbsent(toKey(namespace, name), k -> new HashSet<>()).add(listener);
+            notifyNow = null != informers && informers.notified;
+        }
+        if (notifyNow) {
+            listener.run();
+        }
+    }
+
+    public void removeListener(String namespace, String name, Runnable listener) {
+        synchronized (listeners) {
+            Set<Runnable> values = listeners.get(toKey(namespace, name));
+            if (null == values) {
+                return;
+            }
+            values.remove(listener);
+            if (values.isEmpty()) {
+                listeners.remove(toKey(namespace, name));
+            }
+        }
+    }
+
+    private NamespaceInformers getInformers(String namespace) {
+        NamespaceInformers informers = namespaces.get(namespace);
+        if (null != informers) {
+            return informers;
+        }
+        synchronized (namespaces) {
+            if (stopped) {
+                return null;
+            }
+            return namespaces.computeIfAbsent(namespace, this::startInformers);
+        }
+    }
+
+    private NamespaceInformers startInformers(String namespace) {
+        NamespaceInformers informers = new NamespaceInformers(namespace);
+        informers.informerFactory.startAllRegisteredInformers();
+        informerExecutor.execute(() -> awaitSynced(informers));
+        LOG.info("[Kubernetes] informer cache started for namespace {}, addresses {}", namespace, addresses);
+        return informers;
+    }
+
+    private void awaitSynced(NamespaceInformers informers) {
+        long deadline = System.currentTimeMillis() + SYNC_TIMEOUT_MS;
+        boolean timeoutLogged = false;
+        while (!informers.hasSynced()) {
+            if (stopped) {
+                return;
+            }
+            if (!timeoutLogged && System.currentTimeMillis() >= deadline) {
+                timeoutLogged = true;
+                LOG.warn("[Kubernetes] informer cache not synced in {}ms for namespace {}, addresses {}, "
+                                + "please check the list/watch permission of endpoints and pods in the namespace",
+                        SYNC_TIMEOUT_MS, informers.namespace, addresses);
+                // 监听者先通过直接查询获取实例
+                notifyNamespace(informers);
+            }
+            try {
+                Thread.sleep(SYNC_CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOG.info("[Kubernetes] informer cache synced for namespace {}, addresses {}", informers.namespace, addresses);
+        notifyNamespace(informers);
+    }
+
+    private void notifyNamespace(NamespaceInformers informers) {
+        List<Runnable> values = new ArrayList<>();
+        String prefix = informers.namespace + "/";
+        synchronized (listeners) {
+            informers.notified = true;
+            for (Map.Entry<String, Set<Runnable>> entry : listeners.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    values.addAll(entry.getValue());
+                }
+            }
+        }
+        values.forEach(this::runListener);
+    }
+
+    private void notifyListeners(NamespaceInformers informers, V1ObjectMeta metadata) {
+        if (null == metadata) {
+            return;
+        }
+        List<Runnable> values;
+        synchronized (listeners) {
+            if (!informers.notified) {
+                // 同步完成时统一通知
+                return;
+            }
+            Set<Runnable> current = listeners.get(toKey(metadata.getNamespace(), metadata.getName()));
+            if (null == current) {
+                return;
+            }
+            values = new ArrayList<>(current);
+        }
+        values.forEach(this::runListener);
+    }
+
+    private void notifyPodListeners(NamespaceInformers informers, V1ObjectMeta podMetadata) {
+        if (null == podMetadata) {
+            return;
+        }
+        List<String> serviceNames = new ArrayList<>();
+        synchronized (listeners) {
+            String prefix = podMetadata.getNamespace() + "/";
+            for (String listenerKey : listeners.keySet()) {
+                if (listenerKey.startsWith(prefix)) {
+                    serviceNames.add(listenerKey.substring(prefix.length()));
+                }
+            }
+        }
+        for (String serviceName : serviceNames) {
+            V1Endpoints endpoints = informers.endpointsLister.get(serviceName);
+            if (null != endpoints && referencesPod(endpoints, podMetadata.getName())) {
+                notifyListeners(informers, endpoints.getMetadata());
+            }
+        }
+    }
+
+    private void runListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable e) {
+            LOG.error("[Kubernetes] fail to notify endpoints change from {}", addresses, e);
+        }
+    }
+
+    /**
+     * execute the api call on the picked address, switch to the other addresses if unreachable or server error
+     */
+    private <T> T execute(ApiCall<T> apiCall) throws ApiException {
+        Set<String> tried = new HashSet<>();
+        ApiException lastException = null;
+        for (int i = 0; i < addresses.size(); i++) {
+            String address = AddressBalancer.shared().pick(addresses, tried);
+            tried.add(address);
+            AddressBalancer.Call call = AddressBalancer.shared().begin(address);
+            try {
+                T result = apiCall.call(getApi(address));
+                call.end(true);
+                return result;
+            } catch (ApiException e) {
+                // code 为 0 表示网络异常
+                boolean serverError = e.getCode() == 0 || e.getCode() >= 500;
+                call.end(!serverError);
+                if (!serverError) {
+                    throw e;
+                }
+                LOG.warn("[Kubernetes] fail to request api server {}, code {}", address, e.getCode(), e);
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    private CoreV1Api getApi(String address) {
+        return apis.computeIfAbsent(address, k -> {
+            ApiClient apiClient = Config.fromToken(toUrl(k), token, false);
+            // watch 请求会长时间挂起，不能使用默认的读超时
+            apiClient.setReadTimeout(0);
+            return new CoreV1Api(apiClient);
+        });
+    }
+
+    private interface ApiCall<T> {
+
+        T call(CoreV1Api api) throws ApiException;
+    }
+
+    private interface CallFactory {
+
+        Call create(CoreV1Api api, CallGeneratorParams params) throws ApiException;
+    }
+
+    /**
+     * list and watch on the picked address of each call, so the informer resumes on the other addresses
+     */
+    private class FailoverListerWatcher<T extends KubernetesObject, L extends KubernetesListObject>
+            implements ListerWatcher<T, L> {
+
+        private final CallFactory callFactory;
+
+        private final Class<L> listType;
+
+        private final Type watchType;
+
+        FailoverListerWatcher(CallFactory callFactory, Class<L> listType, Type watchType) {
+            this.callFactory = callFactory;
+            this.listType = listType;
+            this.watchType = watchType;
+        }
+
+        @Override
+        public L list(CallGeneratorParams params) throws ApiException {
+            return execute(api -> api.getApiClient().<L>execute(callFactory.create(api, params), listType).getData());
+        }
+
+        @Override
+        public Watchable<T> watch(CallGeneratorParams params) throws ApiException {
+            return execute(api -> Watch.createWatch(api.getApiClient(), callFactory.create(api, params), watchType));
+        }
+    }
+
+    private class NamespaceInformers {
+
+        private final String namespace;
+
+        private final SharedInformerFactory informerFactory;
+
+        private final SharedIndexInformer<V1Endpoints> endpointsInformer;
+
+        private final SharedIndexInformer<V1Pod> podInformer;
+
+        private final Lister<V1Endpoints> endpointsLister;
+
+        private final Lister<V1Pod> podLister;
+
+        // 监听者已经收到过首次通知，由 listeners 的锁保护
+        private boolean notified;
+
+        NamespaceInformers(String namespace) {
+            this.namespace = namespace;
+            informerFactory = new SharedInformerFactory(informerExecutor);
+            endpointsInformer = informerFactory.sharedIndexInformerFor(new FailoverListerWatcher<>(
+                    (api, params) -> api.listNamespacedEndpointsCall(namespace, null, null, null, null, null, null,
+                            params.resourceVersion, null, params.timeoutSeconds, params.watch, null),
+                    V1EndpointsList.class, ENDPOINTS_WATCH_TYPE), V1Endpoints.class, 0);
+            podInformer = informerFactory.sharedIndexInformerFor(new FailoverListerWatcher<>(
+                    (api, params) -> api.listNamespacedPodCall(namespace, null, null, null, null, null, null,
+                            params.resourceVersion, null, params.timeoutSeconds, params.watch, null),
+                    V1PodList.class, POD_WATCH_TYPE), V1Pod.class, 0);
+            podInformer.setTransform(obj -> stripPod((V1Pod) obj));
+            endpointsLister = new Lister<>(endpointsInformer.getIndexer(), namespace);
+            podLister = new Lister<>(podInformer.getIndexer(), namespace);
+            endpointsInformer.addEventHandler(new ResourceEventHandler<V1Endpoints>() {
+                @Override
+                public void onAdd(V1Endpoints obj) {
+                    notifyListeners(NamespaceInformers.this, obj.getMetadata());
+                }
+
+                @Override
+                public void onUpdate(V1Endpoints oldObj, V1Endpoints newObj) {
+                    if (!Objects.equals(oldObj.getSubsets(), newObj.getSubsets())) {
+                        notifyListeners(NamespaceInformers.this, newObj.getMetadata());
+                    }
+                }
+
+                @Override
+                public void onDelete(V1Endpoints obj, boolean deletedFinalStateUnknown) {
+                    notifyListeners(NamespaceInformers.this, obj.getMetadata());
+                }
+            });
+            podInformer.addEventHandler(new ResourceEventHandler<V1Pod>() {
+                @Override
+                public void onAdd(V1Pod obj) {
+                    // Endpoints 可能先于 Pod 到达，Pod 到达时需要补充标签
+                    notifyPodListeners(NamespaceInformers.this, obj.getMetadata());
+                }
+
+                @Override
+                public void onUpdate(V1Pod oldObj, V1Pod newObj) {
+                    if (!Objects.equals(getLabels(oldObj), getLabels(newObj))) {
+                        notifyPodListeners(NamespaceInformers.this, newObj.getMetadata());
+                    }
+                }
+
+                @Override
+                public void onDelete(V1Pod obj, boolean deletedFinalStateUnknown) {
+                    // 实例的删除由 Endpoints 的变化体现
+                }
+            });
+        }
+
+        boolean hasSynced() {
+            return endpointsInformer.hasSynced() && podInformer.hasSynced();
+        }
+    }
+
+    private static boolean referencesPod(V1Endpoints endpoints, String podName) {
+        if (null == endpoints.getSubsets()) {
+            return false;
+        }
+        for (V1EndpointSubset subset : endpoints.getSubsets()) {
+            List<V1EndpointAddress> addresses = new ArrayList<>();
+            if (null != subset.getAddresses()) {
+                addresses.addAll(subset.getAddresses());
+            }
+            if (null != subset.getNotReadyAddresses()) {
+                addresses.addAll(subset.getNotReadyAddresses());
+            }
+            for (V1EndpointAddress endpointAddress : addresses) {
+                V1ObjectReference targetRef = endpointAddress.getTargetRef();
+                if (null != targetRef && podName.equals(targetRef.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> getLabels(V1Pod pod) {
+        return null == pod.getMetadata() ? null : pod.getMetadata().getLabels();
+    }
+
+    private static V1Pod stripPod(V1Pod pod) {
+        V1ObjectMeta metadata = pod.getMetadata();
+        if (null == metadata) {
+            return pod;
+        }
+        return new V1Pod().apiVersion(pod.getApiVersion()).kind(pod.getKind()).metadata(new V1ObjectMeta()
+                .namespace(metadata.getNamespace())
+                .name(metadata.getName())
+                .uid(metadata.getUid())
+                .resourceVersion(metadata.getResourceVersion())
+                .labels(metadata.getLabels()));
+    }
+
+    private static String toUrl(String address) {
+        if (address.startsWith("http://") || address.startsWith("https://")) {
+            return address;
+        }
+        return String.format("https://%s", address);
+    }
+
+    private static String toKey(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+}
@@ -17,13 +17,12 @@
 
 package cn.polarismesh.polaris.sync.registry.plugins.k8s;
 
-import static cn.polarismesh.polaris.sync.common.rest.RestOperator.pickAddress;
-
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
 import cn.polarismesh.polaris.sync.extension.registry.AbstractRegistryCenter;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
+import cn.polarismesh.polaris.sync.extension.registry.WatchEvent;
 import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
 import cn.polarismesh.polaris.sync.extension.utils.ResponseUtils;
 import cn.polarismesh.polaris.sync.extension.utils.StatusCodes;
@@ -32,23 +31,18 @@ import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
 import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse.DiscoverResponseType;
 import com.tencent.polaris.client.pb.ServiceProto;
 import com.tencent.polaris.client.pb.ServiceProto.Instance;
-import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
-import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.models.CoreV1EndpointPort;
 import io.kubernetes.client.openapi.models.V1EndpointAddress;
 import io.kubernetes.client.openapi.models.V1EndpointSubset;
 import io.kubernetes.client.openapi.models.V1Endpoints;
-import io.kubernetes.client.openapi.models.V1EndpointsList;
-import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import io.kubernetes.client.openapi.models.V1ObjectReference;
-import io.kubernetes.client.openapi.models.V1Pod;
-import io.kubernetes.client.util.Config;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -62,6 +56,10 @@ public class KubernetesRegistryCenter extends AbstractRegistryCenter {
 
     private ResourceEndpoint registryEndpoint;
 
+    private KubernetesInformerCache informerCache;
+
+    private final Map<Service, Runnable> watchedServices = new ConcurrentHashMap<>();
+
     @Override
     public String getName() {
         return getType().name();
@@ -75,53 +73,39 @@ public class KubernetesRegistryCenter extends AbstractRegistryCenter {
     @Override
     public void init(RegistryInitRequest request) {
         registryEndpoint = request.getResourceEndpoint();
-    }
-
-    private ApiClient createApiClient(String address) {
-        return Config.fromToken(getAddress(address), registryEndpoint.getAuthorization().getToken(), false);
-    }
-
-    private static String getAddress(String address) {
-        if (address.startsWith("http://") || address.startsWith("https://")) {
-            return address;
-        }
-        return String.format("https://%s", address);
+        informerCache = KubernetesInformerCache.acquire(registryEndpoint.getServerAddresses(),
+                registryEndpoint.getAuthorization().getToken());
     }
 
     @Override
     public void destroy() {
-
+        if (null == informerCache) {
+            return;
+        }
+        for (Map.Entry<Service, Runnable> entry : watchedServices.entrySet()) {
+            informerCache.removeListener(entry.getKey().getNamespace(), entry.getKey().getService(), entry.getValue());
+        }
+        watchedServices.clear();
+        informerCache.release();
+        informerCache = null;
     }
 
     @Override
     public DiscoverResponse listInstances(Service service, ModelProto.Group group) {
-        String apiServerAddress = pickAddress(registryEndpoint.getServerAddresses());
-        LOG.info("[Kubernetes] start to list endpoints for service {} from k8s {}", service, apiServerAddress);
-        ApiClient apiClient = createApiClient(apiServerAddress);
-        CoreV1Api coreV1Api = new CoreV1Api(apiClient);
-        V1EndpointsList v1EndpointsList;
+        // 命名空间的 informer 同步完成后直接读取缓存，否则直接查询 API Server，不等待同步
+        boolean cached = informerCache.hasSynced(service.getNamespace());
+        V1Endpoints svcEndpoints;
         try {
-            v1EndpointsList = coreV1Api.listNamespacedEndpoints(service.getNamespace(),
-                    null, null, null, null, null, null,
-                    null, null, null, null);
+            svcEndpoints = cached ? informerCache.getEndpoints(service.getNamespace(), service.getService())
+                    : informerCache.readEndpoints(service.getNamespace(), service.getService());
         } catch (ApiException e) {
             serverErrorCount.addAndGet(1);
-            LOG.error("[Kubernetes] fail to getAllInstances for service {}, address {}, registry {}",
-                    service, apiServerAddress, registryEndpoint.getName(), e);
+            LOG.error("[Kubernetes] fail to read endpoints for service {}, code {}, registry {}",
+                    service, e.getCode(), registryEndpoint.getName(), e);
             return ResponseUtils.toConnectException(service);
         } finally {
             totalCount.addAndGet(1);
         }
-        LOG.info("[Kubernetes] endpoints for service {} from k8s is {}", service, v1EndpointsList);
-        List<V1Endpoints> endpointsList = v1EndpointsList.getItems();
-        V1Endpoints svcEndpoints = null;
-        for (V1Endpoints v1Endpoints : endpointsList) {
-            //通过name来匹配
-            if (null != v1Endpoints.getMetadata() && service.getService().equals(v1Endpoints.getMetadata().getName())) {
-                svcEndpoints = v1Endpoints;
-                break;
-            }
-        }
         DiscoverResponse.Builder builder = ResponseUtils
                 .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE);
         if (null == svcEndpoints) {
@@ -148,8 +132,11 @@ public class KubernetesRegistryCenter extends AbstractRegistryCenter {
                 V1ObjectReference targetRef = address.getTargetRef();
                 Map<String, String> metadataMap;
                 try {
-                    metadataMap = queryMetadata(targetRef, coreV1Api);
+                    metadataMap = queryMetadata(targetRef, service.getNamespace(), cached);
                 } catch (ApiException e) {
+                    serverErrorCount.addAndGet(1);
+                    LOG.error("[Kubernetes] fail to read pod for service {}, code {}, registry {}",
+                            service, e.getCode(), registryEndpoint.getName(), e);
                     return ResponseUtils.toConnectException(service);
                 }
                 boolean matched = CommonUtils.matchMetadata(metadataMap, filters);
@@ -180,50 +167,40 @@ public class KubernetesRegistryCenter extends AbstractRegistryCenter {
         return builder.build();
     }
 
-    private Map<String, String> queryMetadata(V1ObjectReference targetRef, CoreV1Api coreV1Api) throws ApiException {
-        Map<String, String> metadata = new HashMap<>();
+    private Map<String, String> queryMetadata(V1ObjectReference targetRef, String namespace, boolean cached)
+            throws ApiException {
         if (null == targetRef) {
-            return metadata;
+            return Collections.emptyMap();
         }
-        LOG.info("[Kubernetes] query metadata for targetRef name {}, kind {}, namespace {}",
-                targetRef.getName(), targetRef.getKind(), targetRef.getNamespace());
         if (!StringUtils.hasText(targetRef.getKind()) ||
                 !"pod".equals(targetRef.getKind().toLowerCase())) {
-            return metadata;
+            return Collections.emptyMap();
         }
-        String podName = targetRef.getName();
-        String podNamespace = targetRef.getNamespace();
-        V1Pod v1Pod;
-        try {
-            v1Pod = coreV1Api.readNamespacedPod(podName, podNamespace, null);
-        } catch (ApiException e) {
-            serverErrorCount.addAndGet(1);
-            LOG.error("[Kubernetes] fail to query pod {}, namespace {}",
-                    podName, podNamespace, e);
-            throw e;
-        } finally {
-            totalCount.addAndGet(1);
-        }
-        V1ObjectMeta podMetadata = v1Pod.getMetadata();
-        LOG.info("[Kubernetes] pod metadata for name {} and namespace {} is {}", podName, podNamespace, podMetadata);
-        if (null == podMetadata) {
-            return metadata;
+        String podNamespace = StringUtils.hasText(targetRef.getNamespace()) ? targetRef.getNamespace() : namespace;
+        if (cached && namespace.equals(podNamespace)) {
+            return informerCache.getPodLabels(podNamespace, targetRef.getName());
         }
-        Map<String, String> labels = podMetadata.getLabels();
-        if (null != labels) {
-            metadata.putAll(labels);
-        }
-        return metadata;
+        return informerCache.readPodLabels(podNamespace, targetRef.getName());
     }
 
     @Override
     public boolean watch(Service service, ResponseListener eventListener) {
+        Runnable listener = () -> eventListener.onEvent(new WatchEvent(listInstances(service, null), true));
+        if (null != watchedServices.putIfAbsent(service, listener)) {
+            LOG.warn("[Kubernetes] service {} already watched, registry {}", service, registryEndpoint.getName());
+            return true;
+        }
+        // informer 同步完成（或者同步超时）后以及 Endpoints、Pod 标签变化时推送全量实例
+        informerCache.addListener(service.getNamespace(), service.getService(), listener);
         return true;
     }
 
     @Override
     public void unwatch(Service service) {
-
+        Runnable listener = watchedServices.remove(service);
+        if (null != listener) {
+            informerCache.removeListener(service.getNamespace(), service.getService(), listener);
+        }
     }
 
     @Override
@@ -237,8 +214,8 @@ public class KubernetesRegistryCenter extends AbstractRegistryCenter {
     }
 
     @Override
-    public void updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
-
+    public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+        return true;
     }
 }
 
@@ -24,12 +24,18 @@ import java.util.List;
 public class NacosEndpointUtils {
 
     public static String toNamespacesUrl(List<String> addresses) {
-        String address = pickAddress(addresses);
+        return toNamespacesUrl(pickAddress(addresses));
+    }
+
+    public static String toNamespacesUrl(String address) {
         return String.format("http://%s/nacos/v1/console/namespaces", address);
     }
 
     public static String toServicesUrl(List<String> addresses) {
-        String address = pickAddress(addresses);
+        return toServicesUrl(pickAddress(addresses));
+    }
+
+    public static String toServicesUrl(String address) {
         return String.format("http://%s/nacos/v1/ns/catalog/services", address);
     }
 
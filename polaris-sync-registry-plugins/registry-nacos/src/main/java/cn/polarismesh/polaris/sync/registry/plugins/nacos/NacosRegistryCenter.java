@@ -17,13 +17,16 @@
 
 package cn.polarismesh.polaris.sync.registry.plugins.nacos;
 
+import cn.polarismesh.polaris.sync.common.pool.NamedThreadFactory;
 import cn.polarismesh.polaris.sync.common.rest.HostAndPort;
+import cn.polarismesh.polaris.sync.common.rest.HedgePolicy;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
 import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
 import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
 import cn.polarismesh.polaris.sync.extension.Health;
 import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
+import cn.polarismesh.polaris.sync.extension.registry.DestinationInstanceCache;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
@@ -61,8 +64,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -74,19 +85,63 @@ public class NacosRegistryCenter implements RegistryCenter {
 
     private static final Logger LOG = LoggerFactory.getLogger(NacosRegistryCenter.class);
 
+    /**
+     * 目标端选项：以持久化实例注册，实例不需要同步进程发送心跳，源端删除时显式注销。
+     * 持久化实例的健康状态由 Nacos 服务端探测，同一个服务不能同时存在临时实例和持久化实例。
+     */
+    public static final String OPTION_PERSISTENT_INSTANCE = "persistent_instance";
+
+    /**
+     * 服务列表的缓存时间，短时间内重复查询同一个命名空间时直接使用缓存，0 表示不缓存
+     */
+    public static final String OPTION_CATALOG_CACHE_TTL = "catalog_cache_ttl_ms";
+
+    private static final long DEFAULT_CATALOG_CACHE_TTL_MS = 5 * 1000;
+
+    // 并发拉取服务列表分页的最大并发数
+    private static final int CATALOG_FETCH_PARALLELISM = 4;
+
     private static final String GROUP_SEP = "__";
 
+    // 等待 NamingService 连接到服务端的最长时间，超时后仍然使用，由客户端自行重连
+    private static final long NAMING_READY_TIMEOUT_MS = 10 * 1000;
+
+    private static final long NAMING_READY_CHECK_INTERVAL_MS = 50;
+
+    // 调用方等待所在命名空间初始化的最长时间，超时则本次操作失败，下个周期重试
+    private static final long NAMING_WAIT_TIMEOUT_MS = 3 * 1000;
+
     private final Map<String, NamingService> ns2NamingService = new ConcurrentHashMap<>();
 
     private final Map<Service, EventListener> eventListeners = new ConcurrentHashMap<>();
 
-    private final Object lock = new Object();
+    // 服务端不支持 gRPC 的命名空间，实例通过 HTTP 逐个写入
+    private final Set<String> httpNamespaces = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, CompletableFuture<NamingService>> pendingNamingServices = new ConcurrentHashMap<>();
+
+    private final ExecutorService namingInitExecutor =
+            Executors.newCachedThreadPool(new NamedThreadFactory("nacos-naming-init"));
+
+    private final ScheduledExecutorService namingReadyTimer =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("nacos-naming-ready"));
+
+    private final ExecutorService catalogExecutor = Executors.newFixedThreadPool(
+            CATALOG_FETCH_PARALLELISM, new NamedThreadFactory("nacos-catalog-worker"));
+
+    private final Map<String, CatalogEntry> catalogCache = new ConcurrentHashMap<>();
 
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
 
     private RegistryInitRequest registryInitRequest;
 
-    private final RestOperator restOperator = new RestOperator();
+    private RestOperator restOperator;
+
+    private DestinationInstanceCache<Service, Instance> instanceCache;
+
+    private boolean persistentInstance;
+
+    private long catalogCacheTtl;
 
     @Override
     public String getName() {
@@ -101,18 +156,26 @@ public class NacosRegistryCenter implements RegistryCenter {
     @Override
     public void init(RegistryInitRequest registryInitRequest) {
         this.registryInitRequest = registryInitRequest;
+        this.persistentInstance = Boolean.parseBoolean(
+                registryInitRequest.getResourceEndpoint().getOptions().get(OPTION_PERSISTENT_INSTANCE));
+        this.catalogCacheTtl = registryInitRequest.getResourceEndpoint().getLongOption(
+                OPTION_CATALOG_CACHE_TTL, DEFAULT_CATALOG_CACHE_TTL_MS);
+        this.restOperator = new RestOperator(
+                HedgePolicy.fromOptions(registryInitRequest.getResourceEndpoint().getOptions()));
+        this.instanceCache = new DestinationInstanceCache<>(registryInitRequest.getResourceEndpoint().getLongOption(
+                DestinationInstanceCache.OPTION_RECONCILE_INTERVAL, DestinationInstanceCache.DEFAULT_RECONCILE_INTERVAL_MS));
     }
 
     @Override
     public void destroy() {
         destroyed.set(true);
+        namingInitExecutor.shutdownNow();
+        namingReadyTimer.shutdownNow();
+        catalogExecutor.shutdownNow();
+        catalogCache.clear();
+        instanceCache.clear();
         for (Map.Entry<String, NamingService> entry : ns2NamingService.entrySet()) {
-            try {
-                entry.getValue().shutDown();
-            } catch (NacosException e) {
-                LOG.error("[Nacos] fail to shutdown namingService {}, name {}",
-                        entry.getKey(), registryInitRequest.getResourceEndpoint().getName(), e);
-            }
+            shutdownNamingService(entry.getKey(), entry.getValue());
         }
     }
 
@@ -147,6 +210,10 @@ public class NacosRegistryCenter implements RegistryCenter {
 
     @Override
     public DiscoverResponse listServices(String namespace) {
+        CatalogEntry catalogEntry = catalogCache.get(namespace);
+        if (null != catalogEntry && System.currentTimeMillis() < catalogEntry.expireTime) {
+            return catalogEntry.response;
+        }
         Service service = new Service(namespace, "");
         NamingService namingService = getOrCreateNamingService(namespace);
         if (null == namingService) {
@@ -167,7 +234,7 @@ public class NacosRegistryCenter implements RegistryCenter {
         }
         List<NacosServiceView> serviceViews = new ArrayList<>();
         DiscoverResponse discoverResponse = NacosRestUtils.discoverAllServices(
-                authResponse, restOperator, registryEndpoint, service, 1, null, serviceViews);
+                authResponse, restOperator, registryEndpoint, service, catalogExecutor, serviceViews);
         if (null != discoverResponse) {
             return discoverResponse;
         }
@@ -185,7 +252,11 @@ public class NacosRegistryCenter implements RegistryCenter {
             }
             builder.addServices(svcBuilder.build());
         }
-        return builder.build();
+        DiscoverResponse response = builder.build();
+        if (catalogCacheTtl > 0) {
+            catalogCache.put(namespace, new CatalogEntry(response, System.currentTimeMillis() + catalogCacheTtl));
+        }
+        return response;
     }
 
 
@@ -201,36 +272,105 @@ public class NacosRegistryCenter implements RegistryCenter {
         if (null != namingService) {
             return namingService;
         }
-        synchronized (lock) {
-            ResourceEndpoint registryEndpoint = registryInitRequest.getResourceEndpoint();
-            namingService = ns2NamingService.get(namespace);
-            if (null != namingService) {
-                return namingService;
-            }
-            String address = String.join(",", registryEndpoint.getServerAddresses());
-            Properties properties = new Properties();
-            properties.setProperty("serverAddr", address);
-            properties.setProperty("namespace", toNamespaceId(namespace));
-            if (StringUtils.hasText(registryEndpoint.getAuthorization().getUsername())) {
-                properties.setProperty("username", registryEndpoint.getAuthorization().getUsername());
-            }
-            if (StringUtils.hasText(registryEndpoint.getAuthorization().getPassword())) {
-                properties.setProperty("password", registryEndpoint.getAuthorization().getPassword());
-            }
-            try {
-                namingService = NacosFactory.createNamingService(properties);
-            } catch (NacosException e) {
-                LOG.error("[Nacos][Registry] fail to create naming service to {}, namespace {}", address, namespace, e);
-                return null;
-            }
-            try {
-                //等待nacos连接建立完成
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        // 每个命名空间独立初始化，只有访问同一个命名空间的调用方需要等待
+        CompletableFuture<NamingService> future = prepareNamingService(namespace);
+        try {
+            return future.get(NAMING_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("[Nacos][Registry] naming service of namespace {} is not ready in {}ms",
+                    namespace, NAMING_WAIT_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("[Nacos][Registry] fail to init naming service of namespace {}", namespace, e);
+        }
+        return null;
+    }
+
+    /**
+     * start to create the naming service of the namespace in background if not created,
+     * naming services are only created for the namespaces accessed by the sync tasks
+     *
+     * @return future completed with the naming service when it is up, or null if creation failed
+     */
+    private CompletableFuture<NamingService> prepareNamingService(String namespace) {
+        NamingService namingService = ns2NamingService.get(namespace);
+        if (null != namingService) {
+            return CompletableFuture.completedFuture(namingService);
+        }
+        CompletableFuture<NamingService> future = new CompletableFuture<>();
+        CompletableFuture<NamingService> pending = pendingNamingServices.putIfAbsent(namespace, future);
+        if (null != pending) {
+            return pending;
+        }
+        namingService = ns2NamingService.get(namespace);
+        if (null != namingService) {
+            // 在检查期间已经初始化完成
+            pendingNamingServices.remove(namespace, future);
+            future.complete(namingService);
+            return future;
+        }
+        namingInitExecutor.execute(() -> {
+            NamingService created = createNamingService(namespace);
+            if (null == created) {
+                pendingNamingServices.remove(namespace, future);
+                future.complete(null);
+                return;
             }
-            ns2NamingService.put(namespace, namingService);
-            return namingService;
+            waitNamingServiceReady(namespace, created, future, System.currentTimeMillis() + NAMING_READY_TIMEOUT_MS);
+        });
+        return future;
+    }
+
+    private NamingService createNamingService(String namespace) {
+        ResourceEndpoint registryEndpoint = registryInitRequest.getResourceEndpoint();
+        String address = String.join(",", registryEndpoint.getServerAddresses());
+        Properties properties = new Properties();
+        properties.setProperty("serverAddr", address);
+        properties.setProperty("namespace", toNamespaceId(namespace));
+        if (StringUtils.hasText(registryEndpoint.getAuthorization().getUsername())) {
+            properties.setProperty("username", registryEndpoint.getAuthorization().getUsername());
+        }
+        if (StringUtils.hasText(registryEndpoint.getAuthorization().getPassword())) {
+            properties.setProperty("password", registryEndpoint.getAuthorization().getPassword());
+        }
+        try {
+            return NacosFactory.createNamingService(properties);
+        } catch (NacosException e) {
+            LOG.error("[Nacos][Registry] fail to create naming service to {}, namespace {}", address, namespace, e);
+            return null;
+        }
+    }
+
+    private void waitNamingServiceReady(String namespace, NamingService namingService,
+            CompletableFuture<NamingService> future, long deadline) {
+        if (destroyed.get()) {
+            shutdownNamingService(namespace, namingService);
+            pendingNamingServices.remove(namespace, future);
+            future.complete(null);
+            return;
+        }
+        boolean up = "UP".equals(namingService.getServerStatus());
+        if (!up && System.currentTimeMillis() < deadline) {
+            namingReadyTimer.schedule(() -> waitNamingServiceReady(namespace, namingService, future, deadline),
+                    NAMING_READY_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!up) {
+            LOG.warn("[Nacos][Registry] naming service of namespace {} is not up in {}ms, status {}",
+                    namespace, NAMING_READY_TIMEOUT_MS, namingService.getServerStatus());
+        }
+        ns2NamingService.put(namespace, namingService);
+        pendingNamingServices.remove(namespace, future);
+        future.complete(namingService);
+    }
+
+    private void shutdownNamingService(String namespace, NamingService namingService) {
+        try {
+            namingService.shutDown();
+        } catch (NacosException e) {
+            LOG.error("[Nacos] fail to shutdown namingService {}, name {}",
+                    namespace, registryInitRequest.getResourceEndpoint().getName(), e);
         }
     }
 
@@ -330,7 +470,7 @@ public class NacosRegistryCenter implements RegistryCenter {
                 DiscoverResponse.Builder builder = ResponseUtils
                         .toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE);
                 builder.addAllInstances(polarisInstances);
-                eventListener.onEvent(new WatchEvent(builder.build()));
+                eventListener.onEvent(new WatchEvent(builder.build(), true));
 
             }
         };
@@ -425,19 +565,33 @@ public class NacosRegistryCenter implements RegistryCenter {
     }
 
     @Override
-    public void updateInstances(Service service, ModelProto.Group group,
+    public boolean updateInstances(Service service, ModelProto.Group group,
+            Collection<ServiceProto.Instance> srcInstances) {
+        ReentrantLock lock = instanceCache.getLock(service);
+        lock.lock();
+        try {
+            return doUpdateInstances(service, group, srcInstances);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean doUpdateInstances(Service service, ModelProto.Group group,
             Collection<ServiceProto.Instance> srcInstances) {
         ResourceEndpoint registryEndpoint = registryInitRequest.getResourceEndpoint();
-        List<Instance> allInstances = queryNacosInstances(service, registryEndpoint.getName());
+        List<Instance> allInstances = instanceCache.get(service);
         if (null == allInstances) {
-            LOG.info("[Nacos][Registry] cancel update instances for query nacos errors");
-            return;
+            allInstances = queryNacosInstances(service, registryEndpoint.getName());
+            if (null == allInstances) {
+                LOG.info("[Nacos][Registry] cancel update instances for query nacos errors");
+                return false;
+            }
+            instanceCache.load(service, allInstances);
         }
         String sourceName = registryInitRequest.getSourceName();
         Map<HostAndPort, Instance> targetsToCreate = new HashMap<>();
         Map<HostAndPort, Instance> targetsToUpdate = new HashMap<>();
         Map<HostAndPort, Instance> targetsExists = new HashMap<>();
-        boolean hasExistsInstances = false;
         Set<HostAndPort> processedAddresses = new HashSet<>();
         // 比较新增、编辑、删除
         // 新增=源不带同步标签的实例，额外存在了（与当前全部实例作为对比）
@@ -461,9 +615,8 @@ public class NacosRegistryCenter implements RegistryCenter {
                     //并非同步实例，可能是目标注册中心新注册的，不处理
                     continue;
                 }
-                hasExistsInstances = true;
                 //比较是否存在不一致
-                if (!instanceEquals(srcInstance, destInstance)) {
+                if (!instanceEquals(srcInstance, destInstance, persistentInstance)) {
                     targetsToUpdate.put(srcAddress,
                             toNacosInstancePendingSync(srcInstance, destInstance.getInstanceId()));
                 }
@@ -482,95 +635,121 @@ public class NacosRegistryCenter implements RegistryCenter {
             }
         }
         // process operation
-        int targetAddCount = 0;
-        int targetPatchCount = 0;
-        int targetDeleteCount = 0;
-        NamingService namingService = ns2NamingService.get(service.getNamespace());
-        boolean deleted = false;
-        if (!targetsToDelete.isEmpty() || (!targetsToCreate.isEmpty() && hasExistsInstances)) {
-            //以下场景需要删除全部
-            //1. 有1-N个实例需要删除
-            //2. 存在新增+存量
-            if (!targetsToDelete.isEmpty()) {
-                LOG.info("[Nacos][Registry] targets pending to delete are {}, group {}", targetsToDelete.keySet(),
-                        group.getName());
-                deregisterInstance("delete", namingService, service.getService(), targetsToDelete.values().iterator()
-                        .next());
-                targetDeleteCount += targetsToDelete.size();
-            } else {
-                deregisterInstance("delete", namingService, service.getService(), targetsExists.values().iterator()
-                        .next());
-            }
-            deleted = true;
+        if (targetsToCreate.isEmpty() && targetsToUpdate.isEmpty() && targetsToDelete.isEmpty()) {
+            return true;
+        }
+        if (!targetsToDelete.isEmpty()) {
+            LOG.info("[Nacos][Registry] targets pending to delete are {}, group {}", targetsToDelete.keySet(),
+                    group.getName());
         }
         if (!targetsToCreate.isEmpty()) {
-            //新增实例
-            LOG.info("[Nacos][Registry] targets pending to create are {}, group {}", targetsToCreate.keySet(), group.getName());
-            List<Instance> instances = new ArrayList<>(targetsToCreate.values());
-            if (hasExistsInstances) {
-                //假如有存量，因为之前已经删除了全部，这里要加上去
-                instances.addAll(targetsExists.values());
-            }
-            registerInstances("create", namingService, service.getService(), instances);
-            targetAddCount += targetsToCreate.size();
-        } else {
-            if (deleted) {
-                //前面已经删除了，则把存量重新注册一遍
-                List<Instance> instances = new ArrayList<>(targetsExists.values());
-                LOG.info("[Nacos][Registry] targets pending to update are {}, group {}", targetsExists.keySet(), group.getName());
-                registerInstances("update", namingService, service.getService(), instances);
-                targetPatchCount += targetsExists.size();
-            } else if (!targetsToUpdate.isEmpty()) {
-                //前面已经删除了，则把存量重新注册一遍
-                List<Instance> instances = new ArrayList<>(targetsToUpdate.values());
-                LOG.info("[Nacos][Registry] targets pending to update are {}, group {}", targetsToUpdate.keySet(),
-                        group.getName());
-                registerInstances("update", namingService, service.getService(), instances);
-                targetPatchCount += targetsToUpdate.size();
-            }
+            LOG.info("[Nacos][Registry] targets pending to create are {}, group {}", targetsToCreate.keySet(),
+                    group.getName());
+        }
+        if (!targetsToUpdate.isEmpty()) {
+            LOG.info("[Nacos][Registry] targets pending to update are {}, group {}", targetsToUpdate.keySet(),
+                    group.getName());
         }
+        // 当前源同步到目标端的全部实例
+        Map<HostAndPort, Instance> targetsLatest = new HashMap<>(targetsExists);
+        targetsLatest.putAll(targetsToCreate);
+        NamingService namingService = getOrCreateNamingService(service.getNamespace());
+        if (null == namingService) {
+            LOG.error("[Nacos][Registry] fail to lookup namingService for service {}, registry {}",
+                    service, registryEndpoint.getName());
+            return false;
+        }
+        boolean success = writeInstances(namingService, service, targetsToCreate, targetsToUpdate, targetsToDelete,
+                targetsLatest);
+        if (!success) {
+            // 写失败时目标端的状态未知，下次同步重新读取
+            instanceCache.invalidate(service);
+            return false;
+        }
+        Map<HostAndPort, Instance> latestInstances = new HashMap<>(instancesMap);
+        targetsToDelete.keySet().forEach(latestInstances::remove);
+        latestInstances.putAll(targetsLatest);
+        instanceCache.writeThrough(service, latestInstances.values());
         LOG.info("[Nacos][Registry] success to update targets, add {}, patch {}, delete {}",
-                targetAddCount, targetPatchCount, targetDeleteCount);
+                targetsToCreate.size(), targetsToUpdate.size(), targetsToDelete.size());
+        return true;
+    }
 
+    /**
+     * write the changed instances to nacos.
+     * 只有持久化实例以及服务端不支持 gRPC 时的 HTTP 路径是增量写入，逐个发送新增、变更和删除的实例。
+     * 临时实例走 gRPC 时，每个客户端对每个服务只保存一份注册信息，batchRegisterInstance 会整体替换这份信息，
+     * Nacos 没有提供增量接口，因此仍需提交当前源同步的全量实例，请求大小随服务实例数增长；
+     * 这里只省去了原先先注销再注册的往返。
+     */
+    private boolean writeInstances(NamingService namingService, Service service,
+            Map<HostAndPort, Instance> targetsToCreate, Map<HostAndPort, Instance> targetsToUpdate,
+            Map<HostAndPort, Instance> targetsToDelete, Map<HostAndPort, Instance> targetsLatest) {
+        String[] values = parseServiceToGroupService(service.getService());
+        if (!persistentInstance && !httpNamespaces.contains(service.getNamespace())) {
+            try {
+                if (targetsLatest.isEmpty()) {
+                    // 没有需要保留的实例，注销整份注册信息
+                    namingService.deregisterInstance(values[1], values[0], targetsToDelete.values().iterator().next());
+                } else {
+                    namingService.batchRegisterInstance(values[1], values[0], new ArrayList<>(targetsLatest.values()));
+                }
+                return true;
+            } catch (NacosException e) {
+                if (!StringUtils.contains(e.getMessage(), "RequestHandler Not Found")) {
+                    LOG.error("[Nacos][Registry] fail to write instances {} to service {}, reason {}",
+                            targetsLatest.keySet(), service, e.getMessage());
+                    return false;
+                }
+                LOG.info("[Nacos][Registry] namespace {} does not support grpc, write instances by http",
+                        service.getNamespace());
+                httpNamespaces.add(service.getNamespace());
+            }
+        }
+        NamingClientProxy httpProxy = getHttpClientProxy(namingService);
+        boolean success = true;
+        for (Instance instance : targetsToCreate.values()) {
+            success &= registerInstance("create", httpProxy, values, instance);
+        }
+        for (Instance instance : targetsToUpdate.values()) {
+            success &= registerInstance("update", httpProxy, values, instance);
+        }
+        for (Instance instance : targetsToDelete.values()) {
+            success &= deregisterInstance("delete", httpProxy, values, instance);
+        }
+        return success;
     }
 
-    private void registerInstances(String operation, NamingService namingService,
-            String svcName, List<Instance> instances) {
-        String[] values = parseServiceToGroupService(svcName);
+    private static NamingClientProxy getHttpClientProxy(NamingService namingService) {
+        Field field = ReflectionUtils.findField(NacosNamingService.class, "clientProxy");
+        field.setAccessible(true);
+        NamingClientProxyDelegate proxy = (NamingClientProxyDelegate) ReflectionUtils.getField(field, namingService);
+        field = ReflectionUtils.findField(NamingClientProxyDelegate.class, "httpClientProxy");
+        field.setAccessible(true);
+        return (NamingClientProxy) ReflectionUtils.getField(field, proxy);
+    }
+
+    private static boolean registerInstance(String operation, NamingClientProxy httpProxy, String[] values,
+            Instance instance) {
         try {
-            namingService.batchRegisterInstance(values[1], values[0], instances);
+            httpProxy.registerService(values[1], values[0], instance);
+            return true;
         } catch (NacosException e) {
-            if (StringUtils.contains(e.getMessage(), "RequestHandler Not Found")) {
-                Field field = ReflectionUtils.findField(NacosNamingService.class, "clientProxy");
-                field.setAccessible(true);
-                NamingClientProxyDelegate proxy = (NamingClientProxyDelegate) ReflectionUtils.getField(field,
-                        namingService);
-                field = ReflectionUtils.findField(NamingClientProxyDelegate.class, "httpClientProxy");
-                field.setAccessible(true);
-                NamingClientProxy httpProxy = (NamingClientProxy) ReflectionUtils.getField(field, proxy);
-                for (Instance instance : instances) {
-                    try {
-                        httpProxy.registerService(values[1], values[0], instance);
-                    } catch (NacosException ex) {
-                        LOG.error("[Nacos][Registry] fail to register instances {} to service {} when {}, reason {}",
-                                instances, svcName, operation, e.getMessage());
-                    }
-                }
-            } else {
-                LOG.error("[Nacos][Registry] fail to register instances {} to service {} when {}, reason {}",
-                        instances, svcName, operation, e.getMessage());
-            }
+            LOG.error("[Nacos][Registry] fail to register instance {} to service {} when {}, reason {}",
+                    instance, values[1], operation, e.getMessage());
+            return false;
         }
     }
 
-    private void deregisterInstance(String operation, NamingService namingService,
-            String svcName, Instance instance) {
-        String[] values = parseServiceToGroupService(svcName);
+    private static boolean deregisterInstance(String operation, NamingClientProxy httpProxy, String[] values,
+            Instance instance) {
         try {
-            namingService.deregisterInstance(values[1], values[0], instance);
+            httpProxy.deregisterService(values[1], values[0], instance);
+            return true;
         } catch (NacosException e) {
             LOG.error("[Nacos][Registry] fail to deregister instance {} to service {} when {}, reason {}",
-                    instance, svcName, operation, e.getMessage());
+                    instance, values[1], operation, e.getMessage());
+            return false;
         }
     }
 
@@ -592,14 +771,20 @@ public class NacosRegistryCenter implements RegistryCenter {
         outInstance.setWeight(instance.getWeight().getValue());
         outInstance.setHealthy(instance.getHealthy().getValue());
         outInstance.setEnabled(!instance.getIsolate().getValue());
+        outInstance.setEphemeral(!persistentInstance);
         return outInstance;
     }
 
-    private static boolean instanceEquals(ServiceProto.Instance srcInstance, Instance dstInstance) {
+    private static boolean instanceEquals(ServiceProto.Instance srcInstance, Instance dstInstance,
+            boolean persistent) {
         if (dstInstance.getWeight() != srcInstance.getWeight().getValue()) {
             return false;
         }
-        if (dstInstance.isHealthy() != srcInstance.getHealthy().getValue()) {
+        if (dstInstance.isEphemeral() == persistent) {
+            return false;
+        }
+        // 持久化实例的健康状态由服务端探测，不与源端比较
+        if (!persistent && dstInstance.isHealthy() != srcInstance.getHealthy().getValue()) {
             return false;
         }
         if (dstInstance.isEnabled() == (srcInstance.getIsolate().getValue())) {
@@ -632,4 +817,16 @@ public class NacosRegistryCenter implements RegistryCenter {
         }
         return new Health(totalCount, errorCount);
     }
+
+    private static class CatalogEntry {
+
+        private final DiscoverResponse response;
+
+        private final long expireTime;
+
+        CatalogEntry(DiscoverResponse response, long expireTime) {
+            this.response = response;
+            this.expireTime = expireTime;
+        }
+    }
 }
@@ -17,6 +17,7 @@
 
 package cn.polarismesh.polaris.sync.registry.plugins.nacos;
 
+import cn.polarismesh.polaris.sync.common.rest.EndpointTokenCache;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
 import cn.polarismesh.polaris.sync.common.rest.RestResponse;
 import cn.polarismesh.polaris.sync.common.rest.RestUtils;
@@ -34,6 +35,8 @@ import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
 import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse.DiscoverResponseType;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
@@ -48,42 +51,82 @@ public class NacosRestUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(NacosRestUtils.class);
 
+    // 登录凭证按接入点和账号缓存，避免每次操作都重新登录
+    private static final EndpointTokenCache<AuthResponse> TOKEN_CACHE = new EndpointTokenCache<>(
+            AuthResponse::getTokenTtl);
+
     public static DiscoverResponse discoverAllNamespaces(AuthResponse authResponse,
             RestOperator restOperator, ResourceEndpoint registryEndpoint, List<NacosNamespace> namespaces) {
-        String namespacesUrl = NacosEndpointUtils.toNamespacesUrl(registryEndpoint.getServerAddresses());
-        if (StringUtils.hasText(authResponse.getAccessToken())) {
-            namespacesUrl += "?accessToken=" + authResponse.getAccessToken();
-        }
+        String query = StringUtils.hasText(authResponse.getAccessToken())
+                ? "?accessToken=" + authResponse.getAccessToken() : "";
+        String namespacesUrl = NacosEndpointUtils.toNamespacesUrl(
+                String.join(",", registryEndpoint.getServerAddresses())) + query;
         HttpMethod method = HttpMethod.GET;
-        RestResponse<String> restResponse = restOperator
-                .curlRemoteEndpoint(namespacesUrl, method, new HttpEntity<>(""), String.class);
+        // 响应直接从输入流解码为模型对象
+        RestResponse<NacosNamespaceResponse> restResponse = restOperator.readRemoteEndpoint(
+                registryEndpoint.getServerAddresses(), address -> NacosEndpointUtils.toNamespacesUrl(address) + query,
+                method, new HttpEntity<>(""), NacosNamespaceResponse.class);
         if (restResponse.hasServerError()) {
             LOG.error("[Nacos][Registry] server error to get namespaces {}, method {}, reason {}",
                     namespacesUrl, method.name(), restResponse.getException().getMessage());
             return ResponseUtils.toConnectException(null, DiscoverResponseType.NAMESPACES);
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(registryEndpoint, restResponse);
             LOG.warn("[Nacos][Registry] text error to get namespaces {}, method {}, code {}, reason {}",
                     namespacesUrl, method.name(), restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
             return ResponseUtils.toDiscoverResponse(null, ResponseUtils.normalizeStatusCode(
                     restResponse.getRawStatusCode()), DiscoverResponseType.SERVICES).build();
         }
-        String jsonText = restResponse.getResponseEntity().getBody();
-        NacosNamespaceResponse nacosNamespaceResponse = RestUtils
-                .unmarshalJsonText(jsonText, NacosNamespaceResponse.class);
-        if (null == nacosNamespaceResponse) {
+        NacosNamespaceResponse nacosNamespaceResponse = restResponse.getResponseEntity().getBody();
+        if (null == nacosNamespaceResponse || null == nacosNamespaceResponse.getData()) {
             LOG.error("[Nacos][Registry] invalid response to get namespaces {}, method {}, response {}",
-                    namespacesUrl, method.name(), jsonText);
+                    namespacesUrl, method.name(), nacosNamespaceResponse);
             return null;
         }
         namespaces.addAll(nacosNamespaceResponse.getData());
         return null;
     }
 
+    /**
+     * fetch the first page to get the total count, then fetch the rest pages concurrently in the executor
+     *
+     * @param executor executor to fetch the rest pages, the pool size limits the concurrency
+     * @param services services of all pages in page order
+     * @return error response, null if success
+     */
     public static DiscoverResponse discoverAllServices(AuthResponse authResponse, RestOperator restOperator,
-            ResourceEndpoint endpoint, Service service, int pageno, Integer restCount, List<NacosServiceView> services) {
-        String servicesUrl = NacosEndpointUtils.toServicesUrl(endpoint.getServerAddresses());
+            ResourceEndpoint endpoint, Service service, Executor executor, List<NacosServiceView> services) {
+        int[] totalCount = new int[1];
+        DiscoverResponse discoverResponse = discoverServicesPage(
+                authResponse, restOperator, endpoint, service, 1, services, totalCount);
+        if (null != discoverResponse || services.isEmpty()) {
+            return discoverResponse;
+        }
+        int pageCount = (totalCount[0] + NacosConsts.DEFAULT_PAGE_SIZE - 1) / NacosConsts.DEFAULT_PAGE_SIZE;
+        List<List<NacosServiceView>> pages = new ArrayList<>();
+        List<CompletableFuture<DiscoverResponse>> futures = new ArrayList<>();
+        for (int pageno = 2; pageno <= pageCount; pageno++) {
+            int curPageno = pageno;
+            List<NacosServiceView> page = new ArrayList<>();
+            pages.add(page);
+            futures.add(CompletableFuture.supplyAsync(() -> discoverServicesPage(
+                    authResponse, restOperator, endpoint, service, curPageno, page, new int[1]), executor));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            discoverResponse = futures.get(i).join();
+            if (null != discoverResponse) {
+                return discoverResponse;
+            }
+            services.addAll(pages.get(i));
+        }
+        return null;
+    }
+
+    private static DiscoverResponse discoverServicesPage(AuthResponse authResponse, RestOperator restOperator,
+            ResourceEndpoint endpoint, Service service, int pageno, List<NacosServiceView> services,
+            int[] totalCount) {
         List<String> parameters = new ArrayList<>();
         if (StringUtils.hasText(authResponse.getAccessToken())) {
             parameters.add(String.format("accessToken=%s", authResponse.getAccessToken()));
@@ -92,46 +135,39 @@ public class NacosRestUtils {
         parameters.add(String.format("pageNo=%d", pageno));
         parameters.add(String.format("pageSize=%d", NacosConsts.DEFAULT_PAGE_SIZE));
         String queryStr = String.join("&", parameters);
-        servicesUrl += "?" + queryStr;
+        String servicesUrl = NacosEndpointUtils.toServicesUrl(
+                String.join(",", endpoint.getServerAddresses())) + "?" + queryStr;
 
         HttpMethod method = HttpMethod.GET;
-        RestResponse<String> restResponse = restOperator
-                .curlRemoteEndpoint(servicesUrl, method, new HttpEntity<>(""), String.class);
+        RestResponse<NacosServicesResponse> restResponse = restOperator.readRemoteEndpoint(
+                endpoint.getServerAddresses(), address -> NacosEndpointUtils.toServicesUrl(address) + "?" + queryStr,
+                method, new HttpEntity<>(""), NacosServicesResponse.class);
         if (restResponse.hasServerError()) {
             LOG.error("[Nacos][Registry] server error to get services {}, method {}, reason {}",
                     servicesUrl, method.name(), restResponse.getException().getMessage());
             return ResponseUtils.toConnectException(service, DiscoverResponseType.SERVICES);
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(endpoint, restResponse);
             LOG.warn("[Nacos][Registry] text error to get services {}, method {}, code {}, reason {}",
                     servicesUrl, method.name(), restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
             return ResponseUtils.toDiscoverResponse(service, ResponseUtils.normalizeStatusCode(
                     restResponse.getRawStatusCode()), DiscoverResponseType.SERVICES).build();
         }
-        String jsonText = restResponse.getResponseEntity().getBody();
-        NacosServicesResponse nacosServicesResponse = RestUtils
-                .unmarshalJsonText(jsonText, NacosServicesResponse.class);
+        NacosServicesResponse nacosServicesResponse = restResponse.getResponseEntity().getBody();
         if (null == nacosServicesResponse) {
-            LOG.error("[Nacos][Registry] invalid response to get services {}, method {}, response {}",
-                    servicesUrl, method.name(), jsonText);
+            LOG.error("[Nacos][Registry] invalid response to get services {}, method {}",
+                    servicesUrl, method.name());
             return ResponseUtils.toInvalidResponseException(service, DiscoverResponseType.SERVICES);
         }
-        int totalCount = nacosServicesResponse.getCount();
+        totalCount[0] = nacosServicesResponse.getCount();
         List<NacosServiceView> serviceList = nacosServicesResponse.getServiceList();
-        if (totalCount <= 0 || CollectionUtils.isEmpty(serviceList)) {
+        if (totalCount[0] <= 0 || CollectionUtils.isEmpty(serviceList)) {
             return null;
         }
         services.addAll(serviceList);
-        if (null == restCount) {
-            restCount = totalCount;
-        }
-        restCount-= serviceList.size();
-        if (restCount <= 0) {
-            return null;
-        }
-        pageno++;
-        return discoverAllServices(authResponse, restOperator, endpoint, service, pageno, restCount, services);
+        return null;
     }
 
     public static void createNamespace(AuthResponse authResponse,
@@ -151,6 +187,7 @@ public class NacosRestUtils {
             return;
         }
         if (restResponse.hasTextError()) {
+            invalidateTokenIfForbidden(registryEndpoint, restResponse);
             LOG.warn("[Nacos][Registry] text error to create namespaces {}, method {}, request {}, code {}, reason {}",
                     namespacesUrl, method.name(), requestText, restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
@@ -159,7 +196,34 @@ public class NacosRestUtils {
         LOG.info("[Nacos][Registry] success to create namespaces {}, method {}, request {}", namespacesUrl, method, requestText);
     }
 
+    /**
+     * get the cached access token of the endpoint, login if the token is absent or about to expire
+     */
     public static DiscoverResponse auth(RestOperator restOperator,
+            ResourceEndpoint endpoint, AuthResponse authResponse, Service service, DiscoverResponseType type) {
+        DiscoverResponse[] loginError = new DiscoverResponse[1];
+        AuthResponse token = TOKEN_CACHE.get(endpoint.getServerAddresses(), endpoint.getAuthorization().getUsername(),
+                endpoint.getAuthorization().getPassword(), () -> {
+            AuthResponse loginResponse = new AuthResponse();
+            loginError[0] = login(restOperator, endpoint, loginResponse, service, type);
+            return null == loginError[0] ? loginResponse : null;
+        });
+        if (null == token) {
+            // 并发登录时由其他线程执行的登录失败
+            return null != loginError[0] ? loginError[0] : ResponseUtils.toConnectException(service, type);
+        }
+        authResponse.setAccessToken(token.getAccessToken());
+        authResponse.setGlobalAdmin(token.isGlobalAdmin());
+        authResponse.setTokenTtl(token.getTokenTtl());
+        return null;
+    }
+
+    private static void invalidateTokenIfForbidden(ResourceEndpoint endpoint, RestResponse<?> restResponse) {
+        TOKEN_CACHE.invalidateIfForbidden(endpoint.getServerAddresses(), endpoint.getAuthorization().getUsername(),
+                endpoint.getAuthorization().getPassword(), restResponse);
+    }
+
+    private static DiscoverResponse login(RestOperator restOperator,
             ResourceEndpoint registryEndpoint, AuthResponse authResponse, Service service, DiscoverResponseType type) {
         String authUrl = NacosEndpointUtils.toAuthUrl(registryEndpoint.getServerAddresses());
         String authMessage = String.format(
@@ -191,6 +255,7 @@ public class NacosRestUtils {
         }
         authResponse.setAccessToken(authResponseResp.getAccessToken());
         authResponse.setGlobalAdmin(authResponseResp.isGlobalAdmin());
+        authResponse.setTokenTtl(authResponseResp.getTokenTtl());
         return null;
     }
 
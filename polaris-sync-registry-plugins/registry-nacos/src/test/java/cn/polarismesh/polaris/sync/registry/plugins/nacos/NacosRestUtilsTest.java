@@ -0,0 +1,130 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.sync.registry.plugins.nacos;
+
+import cn.polarismesh.polaris.sync.common.rest.RestOperator;
+import cn.polarismesh.polaris.sync.extension.Authorization;
+import cn.polarismesh.polaris.sync.extension.ResourceEndpoint;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import cn.polarismesh.polaris.sync.registry.plugins.nacos.model.AuthResponse;
+import cn.polarismesh.polaris.sync.registry.plugins.nacos.model.NacosNamespace;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse.DiscoverResponseType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NacosRestUtilsTest {
+
+    private final AtomicInteger loginCount = new AtomicInteger(0);
+
+    private final AtomicInteger namespacesStatus = new AtomicInteger(200);
+
+    private HttpServer server;
+
+    private ResourceEndpoint endpoint;
+
+    private final RestOperator restOperator = new RestOperator();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/nacos/v1/auth/login", exchange -> respond(exchange, 200, "application/json",
+                "{\"accessToken\":\"token-" + loginCount.incrementAndGet() + "\",\"tokenTtl\":18000}"));
+        server.createContext("/nacos/v1/console/namespaces", exchange -> {
+            int status = namespacesStatus.get();
+            if (status != 200) {
+                respond(exchange, status, "text/plain", "authorization failed!");
+                return;
+            }
+            respond(exchange, 200, "application/json",
+                    "{\"code\":200,\"data\":[{\"namespace\":\"\",\"namespaceShowName\":\"public\"}]}");
+        });
+        server.start();
+        // 每个用例使用不同的端口，登录凭证缓存互不影响
+        endpoint = ResourceEndpoint.builder()
+                .name("nacos")
+                .resourceType(ResourceType.NACOS)
+                .addresses(Collections.singletonList("127.0.0.1:" + server.getAddress().getPort()))
+                .authorization(Authorization.builder().username("nacos").password("nacos").build())
+                .options(Collections.emptyMap())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void tokenCachedAcrossOperations() {
+        Assert.assertEquals("token-1", auth().getAccessToken());
+        Assert.assertEquals("token-1", auth().getAccessToken());
+        Assert.assertEquals(1, loginCount.get());
+    }
+
+    @Test
+    public void forbiddenInvalidatesToken() {
+        AuthResponse authResponse = auth();
+        Assert.assertEquals("token-1", authResponse.getAccessToken());
+        namespacesStatus.set(403);
+        List<NacosNamespace> namespaces = new ArrayList<>();
+        Assert.assertNotNull(NacosRestUtils.discoverAllNamespaces(authResponse, restOperator, endpoint, namespaces));
+        // 服务端拒绝凭证后，下一次操作重新登录
+        Assert.assertEquals("token-2", auth().getAccessToken());
+        Assert.assertEquals(2, loginCount.get());
+    }
+
+    @Test
+    public void otherErrorsKeepToken() {
+        AuthResponse authResponse = auth();
+        namespacesStatus.set(400);
+        Assert.assertNotNull(NacosRestUtils.discoverAllNamespaces(authResponse, restOperator, endpoint,
+                new ArrayList<>()));
+        Assert.assertEquals("token-1", auth().getAccessToken());
+        Assert.assertEquals(1, loginCount.get());
+    }
+
+    private AuthResponse auth() {
+        AuthResponse authResponse = new AuthResponse();
+        Assert.assertNull(NacosRestUtils.auth(restOperator, endpoint, authResponse, null,
+                DiscoverResponseType.NAMESPACES));
+        return authResponse;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content);
+        }
+    }
+}
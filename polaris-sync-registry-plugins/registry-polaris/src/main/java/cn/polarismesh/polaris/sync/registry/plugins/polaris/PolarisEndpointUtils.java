@@ -34,7 +34,10 @@ public class PolarisEndpointUtils {
     }
 
     public static String toDiscoverUrl(List<String> addresses) {
-        String address = pickAddress(addresses);
+        return toDiscoverUrl(pickAddress(addresses));
+    }
+
+    public static String toDiscoverUrl(String address) {
         return String.format("http://%s/v1/Discover", address);
     }
 }
@@ -18,12 +18,14 @@
 package cn.polarismesh.polaris.sync.registry.plugins.polaris;
 
 import cn.polarismesh.polaris.sync.common.rest.HostAndPort;
+import cn.polarismesh.polaris.sync.common.rest.HedgePolicy;
 import cn.polarismesh.polaris.sync.common.rest.RestOperator;
 import cn.polarismesh.polaris.sync.common.rest.RestResponse;
 import cn.polarismesh.polaris.sync.common.utils.CommonUtils;
 import cn.polarismesh.polaris.sync.common.utils.DefaultValues;
 import cn.polarismesh.polaris.sync.extension.ResourceType;
 import cn.polarismesh.polaris.sync.extension.registry.AbstractRegistryCenter;
+import cn.polarismesh.polaris.sync.extension.registry.DestinationInstanceCache;
 import cn.polarismesh.polaris.sync.extension.Health;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
 import cn.polarismesh.polaris.sync.extension.registry.Service;
@@ -52,6 +54,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -86,6 +89,8 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 
 	private final Object lock = new Object();
 
+	private DestinationInstanceCache<Service, ServiceProto.Instance> instanceCache;
+
 	@Override
 	public String getName() {
 		return getType().name();
@@ -99,7 +104,9 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 	@Override
 	public void init(RegistryInitRequest request) {
 		this.registryInitRequest = request;
-		restOperator = new RestOperator();
+		restOperator = new RestOperator(HedgePolicy.fromOptions(request.getResourceEndpoint().getOptions()));
+		instanceCache = new DestinationInstanceCache<>(request.getResourceEndpoint().getLongOption(
+				DestinationInstanceCache.OPTION_RECONCILE_INTERVAL, DestinationInstanceCache.DEFAULT_RECONCILE_INTERVAL_MS));
 		parseAddresses(request.getResourceEndpoint().getServerAddresses());
 		LOG.info("[Polaris] polaris {} inited, http addresses {}, grpc addresses {}",
 				request.getSourceName(), httpAddresses, grpcAddresses);
@@ -138,6 +145,7 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 	@Override
 	public void destroy() {
 		destroyed.set(true);
+		instanceCache.clear();
 	}
 
 	@Override
@@ -181,13 +189,13 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 		ServiceListener serviceListener = new ServiceListener() {
 			@Override
 			public void onEvent(ServiceChangeEvent event) {
-				List<com.tencent.polaris.api.pojo.Instance> allInstances = event.getAddInstances();
+				List<com.tencent.polaris.api.pojo.Instance> allInstances = event.getAllInstances();
 				List<ServiceProto.Instance> outInstances = convertPolarisInstances(
 						allInstances.toArray(new com.tencent.polaris.api.pojo.Instance[0]));
 				DiscoverResponse.Builder builder = ResponseUtils
 						.toDiscoverResponse(service, StatusCodes.SUCCESS, DiscoverResponseType.INSTANCE);
 				builder.addAllInstances(outInstances);
-				eventListener.onEvent(new WatchEvent(builder.build()));
+				eventListener.onEvent(new WatchEvent(builder.build(), true));
 			}
 		};
 		watchServiceRequest.setListeners(Collections.singletonList(serviceListener));
@@ -208,7 +216,7 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 			ServiceProto.Instance.Builder builder = ServiceProto.Instance.newBuilder();
 			builder.setId(ResponseUtils.toStringValue(instanceId));
 			builder.setWeight(ResponseUtils.toUInt32Value(instance.getWeight()));
-			if (CollectionUtils.isEmpty(metadata)) {
+			if (!CollectionUtils.isEmpty(metadata)) {
 				builder.putAllMetadata(metadata);
 			}
 			builder.setHost(ResponseUtils.toStringValue(ip));
@@ -253,17 +261,33 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 	}
 
 	@Override
-	public void updateInstances(Service service, ModelProto.Group group, Collection<ServiceProto.Instance> srcInstances) {
-		DiscoverResponse.Builder builder = DiscoverResponse.newBuilder();
-		DiscoverResponse discoverResponse = PolarisRestUtils.discoverAllInstances(
-				restOperator, service, registryInitRequest.getResourceEndpoint(), httpAddresses, builder);
-		if (null != discoverResponse) {
-			return;
+	public boolean updateInstances(Service service, ModelProto.Group group, Collection<ServiceProto.Instance> srcInstances) {
+		ReentrantLock lock = instanceCache.getLock(service);
+		lock.lock();
+		try {
+			return doUpdateInstances(service, group, srcInstances);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean doUpdateInstances(Service service, ModelProto.Group group,
+			Collection<ServiceProto.Instance> srcInstances) {
+		List<ServiceProto.Instance> allInstances = instanceCache.get(service);
+		if (null == allInstances) {
+			DiscoverResponse.Builder builder = DiscoverResponse.newBuilder();
+			DiscoverResponse discoverResponse = PolarisRestUtils.discoverAllInstances(
+					restOperator, service, registryInitRequest.getResourceEndpoint(), httpAddresses, builder);
+			if (null != discoverResponse) {
+				return false;
+			}
+			allInstances = builder.getInstancesList();
+			instanceCache.load(service, allInstances);
 		}
-		DiscoverResponse allInstances = builder.build();
 		Map<HostAndPort, ServiceProto.Instance> targetsToCreate = new HashMap<>();
 		Map<HostAndPort, ServiceProto.Instance> targetsToUpdate = new HashMap<>();
-		Map<HostAndPort, ServiceProto.Instance> instancesMap = toInstancesMap(allInstances.getInstancesList());
+		Map<HostAndPort, ServiceProto.Instance> instancesMap = toInstancesMap(allInstances);
 		Set<HostAndPort> processedAddresses = new HashSet<>();
 		String sourceName = registryInitRequest.getSourceName();
 		// 比较新增、编辑、删除
@@ -309,27 +333,38 @@ public class PolarisRegistryCenter extends AbstractRegistryCenter {
 		int targetAddCount = 0;
 		int targetPatchCount = 0;
 		int targetDeleteCount = 0;
+		boolean success = true;
 		if (!targetsToCreate.isEmpty()) {
 			LOG.info("[Polaris] targets pending to create are {}, group {}", targetsToCreate.keySet(), group.getName());
-			PolarisRestUtils.createInstances(
+			success &= PolarisRestUtils.createInstances(
 					restOperator, targetsToCreate.values(), registryInitRequest.getResourceEndpoint(), httpAddresses);
 			targetAddCount++;
 		}
 		if (!targetsToUpdate.isEmpty()) {
 			LOG.info("[Polaris] targets pending to update are {}, group {}", targetsToUpdate.keySet(), group.getName());
-			PolarisRestUtils.updateInstances(
+			success &= PolarisRestUtils.updateInstances(
 					restOperator, targetsToUpdate.values(), registryInitRequest.getResourceEndpoint(), httpAddresses);
 			targetPatchCount++;
 		}
 		if (!targetsToDelete.isEmpty()) {
 			LOG.info("[Polaris] targets pending to delete are {}, group {}", targetsToDelete.keySet(), group.getName());
-			PolarisRestUtils.deleteInstances(
+			success &= PolarisRestUtils.deleteInstances(
 					restOperator, targetsToDelete.values(), registryInitRequest.getResourceEndpoint(), httpAddresses);
 			targetDeleteCount++;
 		}
+		if (!success || !targetsToCreate.isEmpty()) {
+			// 写失败时目标端状态未知；新建实例的 ID 由服务端生成，同样需要重新读取
+			instanceCache.invalidate(service);
+		}
+		else if (!targetsToUpdate.isEmpty() || !targetsToDelete.isEmpty()) {
+			Map<HostAndPort, ServiceProto.Instance> latestInstances = new HashMap<>(instancesMap);
+			targetsToDelete.keySet().forEach(latestInstances::remove);
+			latestInstances.putAll(targetsToUpdate);
+			instanceCache.writeThrough(service, latestInstances.values());
+		}
 		LOG.info("[Polaris] success to update targets, add {}, patch {}, delete {}",
 				targetAddCount, targetPatchCount, targetDeleteCount);
-
+		return success;
 	}
 
 	private ServiceProto.Instance toUpdateInstance(ServiceProto.Instance instance, String instanceId) {
@@ -52,25 +52,25 @@ public class PolarisRestUtils {
 
     private static int CODE_NOT_FOUND_RESOURCE = 400202;
 
-    public static void createInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
+    public static boolean createInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
             ResourceEndpoint registryEndpoint, List<String> httpAddresses) {
         String instancesUrl = PolarisEndpointUtils.toInstancesUrl(httpAddresses);
-        operateInstances(instancesUrl, HttpMethod.POST, "create", restOperator, instances, registryEndpoint);
+        return operateInstances(instancesUrl, HttpMethod.POST, "create", restOperator, instances, registryEndpoint);
     }
 
-    public static void updateInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
+    public static boolean updateInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
             ResourceEndpoint registryEndpoint, List<String> httpAddresses) {
         String instancesUrl = PolarisEndpointUtils.toInstancesUrl(httpAddresses);
-        operateInstances(instancesUrl, HttpMethod.PUT, "update", restOperator, instances, registryEndpoint);
+        return operateInstances(instancesUrl, HttpMethod.PUT, "update", restOperator, instances, registryEndpoint);
     }
 
-    public static void deleteInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
+    public static boolean deleteInstances(RestOperator restOperator, Collection<ServiceProto.Instance> instances,
             ResourceEndpoint registryEndpoint, List<String> httpAddresses) {
         String instancesUrl = PolarisEndpointUtils.toInstancesDeleteUrl(httpAddresses);
-        operateInstances(instancesUrl, HttpMethod.POST, "delete", restOperator, instances, registryEndpoint);
+        return operateInstances(instancesUrl, HttpMethod.POST, "delete", restOperator, instances, registryEndpoint);
     }
 
-    private static void operateInstances(String instancesUrl, HttpMethod method, String operation,
+    private static boolean operateInstances(String instancesUrl, HttpMethod method, String operation,
             RestOperator restOperator, Collection<ServiceProto.Instance> instances, ResourceEndpoint registryEndpoint) {
         String jsonText = "[]";
         if (null != instances) {
@@ -81,16 +81,17 @@ public class PolarisRestUtils {
         if (restResponse.hasServerError()) {
             LOG.error("[Polaris] server error to {} instances to {}, method {}, request {}",
                     operation, instancesUrl, method.name(), jsonText, restResponse.getException());
-            return;
+            return false;
         }
         if (restResponse.hasTextError()) {
             LOG.warn("[Polaris] text error to {} instances to {}, method {}, request {}, code {}, reason {}",
                     operation, instancesUrl, method.name(), jsonText, restResponse.getRawStatusCode(),
                     restResponse.getStatusText());
-            return;
+            return false;
         }
         LOG.info("[Polaris] success to {} instances to {}, method {}, request {}", operation, instancesUrl, method.name(),
                 jsonText);
+        return true;
     }
 
     public static DiscoverResponse discoverAllInstances(RestOperator restOperator, Service service,
@@ -102,10 +103,12 @@ public class PolarisRestUtils {
                 .setName(ResponseUtils.toStringValue(service.getService())).build();
         requestBuilder.setService(requestService);
         String jsonText = marshalProtoMessageJsonText(requestBuilder.build());
-        String discoverUrl = PolarisEndpointUtils.toDiscoverUrl(httpAddresses);
+        String discoverUrl = PolarisEndpointUtils.toDiscoverUrl(String.join(",", httpAddresses));
         HttpMethod method = HttpMethod.POST;
-        RestResponse<String> restResponse = restOperator.curlRemoteEndpoint(
-                discoverUrl, method, getRequestEntity(registryEndpoint.getAuthorization().getToken(), jsonText), String.class);
+        // discover 请求是只读的，失败时可以换一个节点重试
+        RestResponse<String> restResponse = restOperator.readRemoteEndpoint(httpAddresses,
+                PolarisEndpointUtils::toDiscoverUrl, method,
+                getRequestEntity(registryEndpoint.getAuthorization().getToken(), jsonText), String.class);
         if (restResponse.hasServerError()) {
             LOG.error("[Polaris] server error to discover instances to {}, method {}, request {}, reason {}",
                     discoverUrl, method.name(), jsonText, restResponse.getException().getMessage());
@@ -17,13 +17,19 @@
 
 package cn.polarismesh.polaris.server;
 
+import cn.polarismesh.polaris.sync.common.rest.AddressBalancer;
+import cn.polarismesh.polaris.sync.common.rest.PooledHttpTransport;
 import cn.polarismesh.polaris.sync.core.server.RegistrySyncServer;
 import cn.polarismesh.polaris.sync.core.tasks.NamedResourceCenter;
+import cn.polarismesh.polaris.sync.core.tasks.PullScheduler;
+import cn.polarismesh.polaris.sync.core.tasks.registry.RegistryCenterWrapper;
+import cn.polarismesh.polaris.sync.extension.registry.ReadLagProvider;
 import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
 import cn.polarismesh.polaris.sync.extension.utils.ResponseUtils;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
 import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -96,4 +102,50 @@ public class SyncController {
         }
         return new ResponseEntity<>(jsonText, HttpStatus.valueOf(ResponseUtils.getHttpStatusCode(discoverResponse)));
     }
+
+    /**
+     * 查询拉取任务调度器的运行指标
+     * @return pull scheduler stats
+     */
+    @GetMapping("/maintain/v1/pull/stats")
+    public ResponseEntity<PullScheduler.Stats> maintainV1PullStats() {
+        return ResponseEntity.ok(server.getEngine().getPullStats());
+    }
+
+    /**
+     * 查询共享 HTTP 连接池的运行指标
+     * @return http pool stats
+     */
+    @GetMapping("/maintain/v1/http/stats")
+    public ResponseEntity<PooledHttpTransport.Stats> maintainV1HttpStats() {
+        return ResponseEntity.ok(PooledHttpTransport.shared().stats());
+    }
+
+    /**
+     * 查询各个服务端地址的延迟、错误率以及摘除状态
+     * @return address stats
+     */
+    @GetMapping("/maintain/v1/http/addresses")
+    public ResponseEntity<Map<String, AddressBalancer.Snapshot>> maintainV1HttpAddresses() {
+        return ResponseEntity.ok(AddressBalancer.shared().snapshot());
+    }
+
+    /**
+     * 查询注册中心（目前只有 Consul 支持）各数据中心的读请求落后 leader 的程度
+     * @return read lag of each datacenter
+     */
+    @GetMapping("/maintain/v1/consul/lag")
+    public ResponseEntity<Map<String, ?>> maintainV1ConsulLag(
+            @RequestParam("task") String taskName, @RequestParam("registry") String registryName) {
+        NamedResourceCenter<RegistryCenter> registry = server.getEngine().getResourceCenter(taskName, registryName);
+        if (null == registry) {
+            return ResponseEntity.notFound().build();
+        }
+        // 任务引擎中的注册中心都经过了包装，需要取出插件本身判断是否支持
+        ReadLagProvider readLagProvider = RegistryCenterWrapper.unwrap(registry.getCenter(), ReadLagProvider.class);
+        if (null == readLagProvider) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(readLagProvider.getReadLag());
+    }
 }
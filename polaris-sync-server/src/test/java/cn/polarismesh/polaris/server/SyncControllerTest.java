@@ -0,0 +1,183 @@
+/*
+ * Tencent is pleased to support the open source community by making Polaris available.
+ *
+ * Copyright (C) 2019 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package cn.polarismesh.polaris.server;
+
+import cn.polarismesh.polaris.sync.core.server.RegistrySyncServer;
+import cn.polarismesh.polaris.sync.core.taskconfig.SyncRegistryProperties;
+import cn.polarismesh.polaris.sync.extension.Health;
+import cn.polarismesh.polaris.sync.extension.ResourceType;
+import cn.polarismesh.polaris.sync.extension.registry.ReadLagProvider;
+import cn.polarismesh.polaris.sync.extension.registry.RegistryCenter;
+import cn.polarismesh.polaris.sync.extension.registry.RegistryInitRequest;
+import cn.polarismesh.polaris.sync.extension.registry.Service;
+import cn.polarismesh.polaris.sync.model.pb.ModelProto;
+import com.tencent.polaris.client.pb.ResponseProto.DiscoverResponse;
+import com.tencent.polaris.client.pb.ServiceProto.Instance;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class SyncControllerTest {
+
+    private static final String CONFIG = "{\"tasks\":[{\"name\":\"consul-to-nacos\",\"enable\":true,"
+            + "\"source\":{\"name\":\"source-consul\",\"type\":\"consul\",\"addresses\":[\"127.0.0.1:8500\"]},"
+            + "\"destination\":{\"name\":\"destination-nacos\",\"type\":\"nacos\",\"addresses\":[\"127.0.0.1:8848\"]},"
+            + "\"match\":[{\"namespace\":\"default\",\"service\":\"svc\"}]}],"
+            + "\"methods\":[{\"type\":\"pull\",\"enable\":true,\"interval\":\"1h\"}],"
+            + "\"report\":{\"interval\":\"1m\"}}";
+
+    private File configDir;
+
+    private RegistrySyncServer server;
+
+    private SyncController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        configDir = Files.createTempDirectory("sync-controller").toFile();
+        File configFile = new File(configDir, "sync-registry.json");
+        Files.write(configFile.toPath(), CONFIG.getBytes(StandardCharsets.UTF_8));
+        SyncRegistryProperties properties = new SyncRegistryProperties();
+        properties.setConfigProvider("file");
+        properties.setConfigBackupPath(new File(configDir, "sync-registry-backup.json").getAbsolutePath());
+        properties.setOptions(Collections.singletonMap("watchFile", configFile.getAbsolutePath()));
+        server = new RegistrySyncServer(properties,
+                Arrays.asList(new LagRegistryCenter(), new PlainRegistryCenter()), Collections.emptyList());
+        server.init();
+        controller = new SyncController(server);
+    }
+
+    @After
+    public void tearDown() {
+        server.destroy();
+        for (File file : configDir.listFiles()) {
+            file.delete();
+        }
+        configDir.delete();
+    }
+
+    @Test
+    public void readLagThroughWrappedCenter() {
+        // 引擎创建的注册中心经过 RegistryCenterWrapper 包装，需要识别出插件实现的能力
+        ResponseEntity<Map<String, ?>> response = controller.maintainV1ConsulLag("consul-to-nacos", "source-consul");
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals(LagRegistryCenter.READ_LAG, response.getBody());
+    }
+
+    @Test
+    public void readLagNotSupported() {
+        Assert.assertEquals(HttpStatus.NOT_FOUND,
+                controller.maintainV1ConsulLag("consul-to-nacos", "destination-nacos").getStatusCode());
+        Assert.assertEquals(HttpStatus.NOT_FOUND,
+                controller.maintainV1ConsulLag("unknown", "source-consul").getStatusCode());
+    }
+
+    public static class LagRegistryCenter extends PlainRegistryCenter implements ReadLagProvider {
+
+        private static final Map<String, Long> READ_LAG = Collections.singletonMap("dc1", 10L);
+
+        @Override
+        public ResourceType getType() {
+            return ResourceType.CONSUL;
+        }
+
+        @Override
+        public Map<String, ?> getReadLag() {
+            return READ_LAG;
+        }
+    }
+
+    public static class PlainRegistryCenter implements RegistryCenter {
+
+        @Override
+        public String getName() {
+            return getClass().getSimpleName();
+        }
+
+        @Override
+        public ResourceType getType() {
+            return ResourceType.NACOS;
+        }
+
+        @Override
+        public void init(RegistryInitRequest request) {
+
+        }
+
+        @Override
+        public void destroy() {
+
+        }
+
+        @Override
+        public Health healthCheck() {
+            return new Health(0, 0);
+        }
+
+        @Override
+        public DiscoverResponse listNamespaces() {
+            return DiscoverResponse.getDefaultInstance();
+        }
+
+        @Override
+        public DiscoverResponse listServices(String namespace) {
+            return DiscoverResponse.getDefaultInstance();
+        }
+
+        @Override
+        public DiscoverResponse listInstances(Service service, ModelProto.Group group) {
+            return DiscoverResponse.getDefaultInstance();
+        }
+
+        @Override
+        public boolean watch(Service service, ResponseListener eventListener) {
+            return true;
+        }
+
+        @Override
+        public void unwatch(Service service) {
+
+        }
+
+        @Override
+        public void updateServices(Collection<Service> services) {
+
+        }
+
+        @Override
+        public void updateGroups(Service service, Collection<ModelProto.Group> groups) {
+
+        }
+
+        @Override
+        public boolean updateInstances(Service service, ModelProto.Group group, Collection<Instance> instances) {
+            return true;
+        }
+    }
+}